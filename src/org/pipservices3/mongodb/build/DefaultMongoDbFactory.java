@@ -3,20 +3,24 @@ package org.pipservices3.mongodb.build;
 import org.pipservices3.commons.refer.Descriptor;
 import org.pipservices3.components.build.Factory;
 import org.pipservices3.mongodb.connect.MongoDbConnection;
+import org.pipservices3.mongodb.connect.ReactiveMongoDbConnection;
 
 /**
  * Creates MongoDb components by their descriptors.
  *
  * @see Factory
  * @see org.pipservices3.mongodb.connect.MongoDbConnection
+ * @see org.pipservices3.mongodb.connect.ReactiveMongoDbConnection
  */
 public class DefaultMongoDbFactory extends Factory {
     private static final Descriptor MongoDbConnectionDescriptor = new Descriptor("pip-services", "connection", "mongodb", "*", "1.0");
+    private static final Descriptor ReactiveMongoDbConnectionDescriptor = new Descriptor("pip-services", "connection", "mongodb-reactive", "*", "1.0");
 
     /**
      * Create a new instance of the factory.
      */
     public DefaultMongoDbFactory() {
         this.registerAsType(DefaultMongoDbFactory.MongoDbConnectionDescriptor, MongoDbConnection.class);
+        this.registerAsType(DefaultMongoDbFactory.ReactiveMongoDbConnectionDescriptor, ReactiveMongoDbConnection.class);
     }
 }
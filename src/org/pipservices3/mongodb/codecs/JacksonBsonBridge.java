@@ -0,0 +1,271 @@
+package org.pipservices3.mongodb.codecs;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.bson.BsonBinary;
+import org.bson.BsonReader;
+import org.bson.BsonSerializationException;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.types.Decimal128;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Streams objects between Jackson and BSON without intermediate JSON strings
+ * or Document trees.
+ * <p>
+ * Values are serialized by Jackson into a token buffer that is replayed directly
+ * into a BsonWriter. On reading, BSON values are pulled from a BsonReader into a token
+ * buffer that Jackson binds to the requested class. When id mapping is enabled
+ * the top-level <code>id</code> property is written as <code>_id</code> and
+ * <code>_id</code> is read back as <code>id</code>.
+ * <p>
+ * Mapping of BSON types that have no JSON counterpart:
+ * <ul>
+ * <li>ObjectId is read as its hex string
+ * <li>DateTime is read as ISO-8601 string
+ * <li>Decimal128 is read as BigDecimal, BigDecimal is written as Decimal128
+ * <li>Binary data is read as byte array
+ * </ul>
+ */
+public class JacksonBsonBridge {
+    private static final JacksonBsonBridge _default = new JacksonBsonBridge(createDefaultMapper());
+
+    private final ObjectMapper _mapper;
+
+    /**
+     * Creates a new instance of the bridge.
+     *
+     * @param mapper Jackson object mapper used to serialize and bind values.
+     */
+    public JacksonBsonBridge(ObjectMapper mapper) {
+        if (mapper == null)
+            throw new NullPointerException("mapper is null");
+
+        _mapper = mapper;
+    }
+
+    /**
+     * Gets a shared bridge configured the same way as JsonConverter.
+     *
+     * @return the default bridge instance.
+     */
+    public static JacksonBsonBridge getDefault() {
+        return _default;
+    }
+
+    private static ObjectMapper createDefaultMapper() {
+        var mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.findAndRegisterModules();
+        return mapper;
+    }
+
+    /**
+     * Gets the Jackson object mapper used by this bridge.
+     *
+     * @return the object mapper.
+     */
+    public ObjectMapper getMapper() {
+        return _mapper;
+    }
+
+    /**
+     * Writes an object as a BSON document.
+     *
+     * @param writer BSON writer to write the document to.
+     * @param value  an object to be written.
+     * @param mapId  true to write top-level <code>id</code> property as <code>_id</code>.
+     */
+    public void write(BsonWriter writer, Object value, boolean mapId) {
+        try {
+            try (var parser = serialize(value)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT)
+                    throw new BsonSerializationException("Value of " + value.getClass().getName()
+                            + " cannot be written as BSON document");
+
+                writeDocument(parser, writer, mapId);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Reads a BSON document into an object of the given class.
+     *
+     * @param reader BSON reader positioned at the document.
+     * @param type   the class to bind the document to.
+     * @param mapId  true to read top-level <code>_id</code> field as <code>id</code> property.
+     * @param <T>    the class type
+     * @return the read object.
+     */
+    public <T> T read(BsonReader reader, Class<T> type, boolean mapId) {
+        try {
+            var buffer = new TokenBuffer(_mapper, false);
+            readDocument(reader, buffer, mapId);
+
+            try (var parser = buffer.asParser(_mapper)) {
+                return _mapper.readValue(parser, type);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Creates a deep copy of an object by replaying its Jackson serialization.
+     *
+     * @param value an object to be copied.
+     * @param type  the class of the copy.
+     * @param <T>   the class type
+     * @return the copied object.
+     */
+    public <T> T copy(T value, Class<T> type) {
+        if (value == null)
+            return null;
+
+        try {
+            try (var parser = serialize(value)) {
+                return _mapper.readValue(parser, type);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private JsonParser serialize(Object value) throws IOException {
+        var buffer = new TokenBuffer(_mapper, false);
+        _mapper.writeValue(buffer, value);
+        return buffer.asParser(_mapper);
+    }
+
+    private void writeDocument(JsonParser parser, BsonWriter writer, boolean mapId) throws IOException {
+        writer.writeStartDocument();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var name = parser.getCurrentName();
+            var token = parser.nextToken();
+
+            if (mapId && "id".equals(name)) {
+                // Let the server generate _id for items without id
+                if (token == JsonToken.VALUE_NULL)
+                    continue;
+                name = "_id";
+            }
+
+            writer.writeName(name);
+            writeValue(parser, writer);
+        }
+
+        writer.writeEndDocument();
+    }
+
+    private void writeValue(JsonParser parser, BsonWriter writer) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT -> writeDocument(parser, writer, false);
+            case START_ARRAY -> {
+                writer.writeStartArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY)
+                    writeValue(parser, writer);
+                writer.writeEndArray();
+            }
+            case VALUE_STRING -> writer.writeString(parser.getText());
+            case VALUE_NUMBER_INT -> {
+                switch (parser.getNumberType()) {
+                    case INT -> writer.writeInt32(parser.getIntValue());
+                    case LONG -> writer.writeInt64(parser.getLongValue());
+                    default -> writer.writeDecimal128(new Decimal128(new BigDecimal(parser.getBigIntegerValue())));
+                }
+            }
+            case VALUE_NUMBER_FLOAT -> {
+                // Keep BigDecimal precision, Decimal128 is read back as BigDecimal
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_DECIMAL)
+                    writer.writeDecimal128(new Decimal128(parser.getDecimalValue()));
+                else
+                    writer.writeDouble(parser.getDoubleValue());
+            }
+            case VALUE_TRUE -> writer.writeBoolean(true);
+            case VALUE_FALSE -> writer.writeBoolean(false);
+            case VALUE_NULL -> writer.writeNull();
+            case VALUE_EMBEDDED_OBJECT -> {
+                var value = parser.getEmbeddedObject();
+                if (value == null)
+                    writer.writeNull();
+                else if (value instanceof byte[] bytes)
+                    writer.writeBinaryData(new BsonBinary(bytes));
+                else
+                    writer.writeString(value.toString());
+            }
+            default -> throw new BsonSerializationException("Unexpected token " + parser.currentToken());
+        }
+    }
+
+    private void readDocument(BsonReader reader, TokenBuffer buffer, boolean mapId) throws IOException {
+        reader.readStartDocument();
+        buffer.writeStartObject();
+
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            var name = reader.readName();
+
+            if (mapId) {
+                if ("_id".equals(name)) {
+                    name = "id";
+                } else if ("id".equals(name)) {
+                    // _id is the only source of truth for the id
+                    reader.skipValue();
+                    continue;
+                }
+            }
+
+            buffer.writeFieldName(name);
+            readValue(reader, buffer);
+        }
+
+        reader.readEndDocument();
+        buffer.writeEndObject();
+    }
+
+    private void readValue(BsonReader reader, TokenBuffer buffer) throws IOException {
+        switch (reader.getCurrentBsonType()) {
+            case DOCUMENT -> readDocument(reader, buffer, false);
+            case ARRAY -> {
+                reader.readStartArray();
+                buffer.writeStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT)
+                    readValue(reader, buffer);
+                reader.readEndArray();
+                buffer.writeEndArray();
+            }
+            case STRING -> buffer.writeString(reader.readString());
+            case INT32 -> buffer.writeNumber(reader.readInt32());
+            case INT64 -> buffer.writeNumber(reader.readInt64());
+            case DOUBLE -> buffer.writeNumber(reader.readDouble());
+            case DECIMAL128 -> buffer.writeNumber(reader.readDecimal128().bigDecimalValue());
+            case BOOLEAN -> buffer.writeBoolean(reader.readBoolean());
+            case OBJECT_ID -> buffer.writeString(reader.readObjectId().toHexString());
+            case DATE_TIME -> buffer.writeString(Instant.ofEpochMilli(reader.readDateTime()).toString());
+            case TIMESTAMP -> buffer.writeNumber(reader.readTimestamp().getValue());
+            case BINARY -> buffer.writeBinary(reader.readBinaryData().getData());
+            case SYMBOL -> buffer.writeString(reader.readSymbol());
+            case JAVASCRIPT -> buffer.writeString(reader.readJavaScript());
+            case REGULAR_EXPRESSION -> buffer.writeString(reader.readRegularExpression().getPattern());
+            case NULL -> {
+                reader.readNull();
+                buffer.writeNull();
+            }
+            default -> {
+                reader.skipValue();
+                buffer.writeNull();
+            }
+        }
+    }
+}
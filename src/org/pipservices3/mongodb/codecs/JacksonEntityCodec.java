@@ -0,0 +1,68 @@
+package org.pipservices3.mongodb.codecs;
+
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Codec that encodes and decodes entities with Jackson mapping
+ * streamed directly through {@link JacksonBsonBridge}.
+ * <p>
+ * The entity <code>id</code> property is stored in the <code>_id</code> field.
+ *
+ * @param <T> the entity class type
+ */
+public class JacksonEntityCodec<T> implements Codec<T> {
+    private final Class<T> _type;
+    private final JacksonBsonBridge _bridge;
+
+    /**
+     * Creates a new instance of the codec with default Jackson configuration.
+     *
+     * @param type the entity class.
+     */
+    public JacksonEntityCodec(Class<T> type) {
+        this(type, JacksonBsonBridge.getDefault());
+    }
+
+    /**
+     * Creates a new instance of the codec.
+     *
+     * @param type   the entity class.
+     * @param bridge the bridge to stream values between Jackson and BSON.
+     */
+    public JacksonEntityCodec(Class<T> type, JacksonBsonBridge bridge) {
+        if (type == null)
+            throw new NullPointerException("type is null");
+
+        _type = type;
+        _bridge = bridge != null ? bridge : JacksonBsonBridge.getDefault();
+    }
+
+    /**
+     * Creates a deep copy of an entity with the same Jackson mapping.
+     *
+     * @param value an entity to be copied.
+     * @return the copied entity.
+     */
+    public T copy(T value) {
+        return _bridge.copy(value, _type);
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return _type;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        _bridge.write(writer, value, true);
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        return _bridge.read(reader, _type, true);
+    }
+}
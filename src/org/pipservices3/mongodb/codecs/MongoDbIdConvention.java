@@ -0,0 +1,42 @@
+package org.pipservices3.mongodb.codecs;
+
+import org.bson.codecs.pojo.ClassModelBuilder;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.PropertyModelBuilder;
+
+/**
+ * POJO codec convention that stores the <code>id</code> property of data items
+ * in the <code>_id</code> field.
+ * <p>
+ * The property is found by its name or by its mapped name set with annotations.
+ * It must be applied after the default conventions to take precedence over them.
+ * String ids are read with {@link StringIdCodec}, so ObjectIds generated by the server
+ * are decoded as hex strings.
+ */
+public class MongoDbIdConvention implements Convention {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void apply(ClassModelBuilder<?> classModelBuilder) {
+        PropertyModelBuilder<?> idProperty = classModelBuilder.getProperty("id");
+
+        if (idProperty == null) {
+            for (var property : classModelBuilder.getPropertyModelBuilders()) {
+                if ("id".equals(property.getReadName())) {
+                    idProperty = property;
+                    break;
+                }
+            }
+        }
+
+        if (idProperty == null)
+            return;
+
+        // Id property is renamed to _id when the class model is built
+        classModelBuilder.idPropertyName(idProperty.getName());
+
+        // Items created without id get ObjectIds generated by the server
+        if (idProperty.getTypeData().getType() == String.class)
+            ((PropertyModelBuilder<String>) idProperty).codec(new StringIdCodec());
+    }
+}
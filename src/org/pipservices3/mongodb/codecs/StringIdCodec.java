@@ -0,0 +1,32 @@
+package org.pipservices3.mongodb.codecs;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * Codec for string ids that also reads ObjectIds generated by the server as their hex strings.
+ */
+public class StringIdCodec implements Codec<String> {
+
+	@Override
+	public Class<String> getEncoderClass() {
+		return String.class;
+	}
+
+	@Override
+	public void encode(BsonWriter writer, String value, EncoderContext encoderContext) {
+		writer.writeString(value);
+	}
+
+	@Override
+	public String decode(BsonReader reader, DecoderContext decoderContext) {
+		if (reader.getCurrentBsonType() == BsonType.OBJECT_ID)
+			return reader.readObjectId().toHexString();
+		return reader.readString();
+	}
+
+}
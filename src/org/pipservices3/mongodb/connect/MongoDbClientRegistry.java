@@ -0,0 +1,68 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.MongoClient;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of reference-counted MongoDB clients.
+ * <p>
+ * Connections with the same URI and settings share one client with its connection pool
+ * and monitoring threads. The client is closed when the last connection releases it.
+ */
+class MongoDbClientRegistry {
+    private static class ClientEntry {
+        MongoClient client;
+        int references;
+    }
+
+    private static final Map<String, ClientEntry> _clients = new HashMap<>();
+
+    /**
+     * Gets a shared client or creates a new one.
+     *
+     * @param key     a key composed from the connection URI and settings.
+     * @param factory a factory to create the client when it does not exist.
+     * @return the shared client.
+     */
+    public static synchronized MongoClient acquire(String key, Supplier<MongoClient> factory) {
+        var entry = _clients.get(key);
+
+        if (entry == null) {
+            entry = new ClientEntry();
+            entry.client = factory.get();
+            _clients.put(key, entry);
+        }
+
+        entry.references++;
+        return entry.client;
+    }
+
+    /**
+     * Releases a shared client and closes it when it is not used anymore.
+     *
+     * @param key a key the client was acquired with.
+     */
+    public static synchronized void release(String key) {
+        var entry = _clients.get(key);
+        if (entry == null)
+            return;
+
+        if (--entry.references > 0)
+            return;
+
+        _clients.remove(key);
+        entry.client.close();
+    }
+
+    /**
+     * Gets the number of shared clients.
+     *
+     * @return the number of open shared clients.
+     */
+    public static synchronized int getSize() {
+        return _clients.size();
+    }
+}
@@ -0,0 +1,86 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.MongoCompressor;
+import org.pipservices3.commons.errors.ConfigException;
+import org.pipservices3.components.log.ILogger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper to create wire protocol compressors from a comma-separated list of names.
+ * <p>
+ * zlib is supported by the driver itself, snappy is enabled only when its library
+ * is found in classpath and is skipped with a warning otherwise.
+ * zstd requires driver 4.0 and above and is rejected.
+ * Compression level applies to zlib only and must be between -1 and 9.
+ */
+class MongoDbCompressors {
+    private static final int MIN_ZLIB_LEVEL = -1;
+    private static final int MAX_ZLIB_LEVEL = 9;
+
+    /**
+     * Creates compressors in the order of preference.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param names         comma-separated compressor names: zlib or snappy.
+     * @param level         compression level for zlib or null to use the default level.
+     * @param logger        the logger to report unavailable compressors.
+     * @return the list of compressors.
+     * @throws ConfigException when a compressor is not supported or the level is out of its range.
+     */
+    public static List<MongoCompressor> create(String correlationId, String names, Integer level, ILogger logger)
+            throws ConfigException {
+        List<MongoCompressor> result = new ArrayList<>();
+        if (names == null || names.isBlank())
+            return result;
+
+        for (var name : names.split(",")) {
+            name = name.trim().toLowerCase();
+            if (name.isEmpty())
+                continue;
+
+            MongoCompressor compressor = switch (name) {
+                case "zlib" -> createZlibCompressor(correlationId, level);
+                case "snappy" -> isAvailable("org.xerial.snappy.Snappy")
+                        ? MongoCompressor.createSnappyCompressor() : null;
+                case "zstd" -> throw new ConfigException(correlationId, "UNSUPPORTED_COMPRESSOR",
+                        "Compressor zstd requires MongoDB driver 4.0 or above, use zlib or snappy instead");
+                default -> throw new ConfigException(correlationId, "BAD_COMPRESSOR",
+                        "Compressor " + name + " is not supported");
+            };
+
+            if (compressor == null) {
+                logger.warn(correlationId, "Compressor %s is not available and will not be used", name);
+                continue;
+            }
+
+            result.add(compressor);
+        }
+
+        return result;
+    }
+
+    private static MongoCompressor createZlibCompressor(String correlationId, Integer level) throws ConfigException {
+        var compressor = MongoCompressor.createZlibCompressor();
+        if (level == null)
+            return compressor;
+
+        if (level < MIN_ZLIB_LEVEL || level > MAX_ZLIB_LEVEL) {
+            throw new ConfigException(correlationId, "BAD_COMPRESSION_LEVEL",
+                    "Option compression_level for zlib must be between " + MIN_ZLIB_LEVEL + " and "
+                            + MAX_ZLIB_LEVEL + ", but it is " + level);
+        }
+
+        return compressor.withProperty(MongoCompressor.LEVEL, level);
+    }
+
+    private static boolean isAvailable(String className) {
+        try {
+            Class.forName(className, false, MongoDbCompressors.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
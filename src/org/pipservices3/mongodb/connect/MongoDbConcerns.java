@@ -0,0 +1,139 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadConcernLevel;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helper to parse read preference, read concern and write concern from configuration values.
+ * <p>
+ * Empty values are returned as null to keep driver defaults.
+ */
+public class MongoDbConcerns {
+
+    /**
+     * Parses a read preference: primary, primary_preferred, secondary, secondary_preferred or nearest.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param value         the read preference name.
+     * @return the read preference or null when the value is empty.
+     * @throws ConfigException when the name is not supported.
+     */
+    public static ReadPreference parseReadPreference(String correlationId, String value) throws ConfigException {
+        if (value == null || value.isEmpty())
+            return null;
+
+        try {
+            // Driver names are camel case, config values are usually snake case
+            return ReadPreference.valueOf(value.replace("_", ""));
+        } catch (IllegalArgumentException ex) {
+            throw (ConfigException) new ConfigException(correlationId, "BAD_READ_PREFERENCE",
+                    "Read preference " + value + " is not supported").withCause(ex);
+        }
+    }
+
+    /**
+     * Parses a read concern: local, available, majority, linearizable or snapshot.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param value         the read concern level.
+     * @return the read concern or null when the value is empty.
+     * @throws ConfigException when the level is not supported.
+     */
+    public static ReadConcern parseReadConcern(String correlationId, String value) throws ConfigException {
+        if (value == null || value.isEmpty())
+            return null;
+
+        try {
+            return new ReadConcern(ReadConcernLevel.fromString(value));
+        } catch (IllegalArgumentException ex) {
+            throw (ConfigException) new ConfigException(correlationId, "BAD_READ_CONCERN",
+                    "Read concern " + value + " is not supported").withCause(ex);
+        }
+    }
+
+    /**
+     * Parses a write concern: a number of acknowledging members or a name like
+     * acknowledged, unacknowledged, journaled or majority.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param value         the write concern name or number.
+     * @return the write concern or null when the value is empty.
+     * @throws ConfigException when the name is not supported.
+     */
+    public static WriteConcern parseWriteConcern(String correlationId, String value) throws ConfigException {
+        if (value == null || value.isEmpty())
+            return null;
+
+        if (value.chars().allMatch(Character::isDigit)) {
+            try {
+                return new WriteConcern(Integer.parseInt(value));
+            } catch (IllegalArgumentException ex) {
+                // The number is out of the integer range
+                throw (ConfigException) new ConfigException(correlationId, "BAD_WRITE_CONCERN",
+                        "Write concern " + value + " is not valid").withCause(ex);
+            }
+        }
+
+        var result = WriteConcern.valueOf(value);
+        if (result == null) {
+            throw new ConfigException(correlationId, "BAD_WRITE_CONCERN",
+                    "Write concern " + value + " is not supported");
+        }
+        return result;
+    }
+
+    /**
+     * Composes a write concern from a name and detailed options:
+     * <ul>
+     * <li>w:        number of members or a tag set like majority to acknowledge writes, 0 for unacknowledged writes
+     * <li>j:        true to wait until writes are journaled
+     * <li>wtimeout: time limit in milliseconds to wait for acknowledgement
+     * </ul>
+     * Detailed options override the named write concern.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param value         (optional) the write concern name or number.
+     * @param options       (optional) the detailed write concern options.
+     * @return the write concern or null when nothing is set.
+     * @throws ConfigException when the write concern is invalid.
+     */
+    public static WriteConcern parseWriteConcern(String correlationId, String value, ConfigParams options)
+            throws ConfigException {
+        var result = parseWriteConcern(correlationId, value);
+        if (options == null || options.isEmpty())
+            return result;
+
+        result = result != null ? result : WriteConcern.ACKNOWLEDGED;
+
+        try {
+            var w = options.getAsNullableString("w");
+            if (w != null && !w.isEmpty())
+                result = w.chars().allMatch(Character::isDigit) ? result.withW(Integer.parseInt(w)) : result.withW(w);
+
+            var journal = options.getAsNullableBoolean("j");
+            if (journal != null)
+                result = result.withJournal(journal);
+
+            var timeout = options.getAsNullableLong("wtimeout");
+            if (timeout != null)
+                result = result.withWTimeout(timeout, TimeUnit.MILLISECONDS);
+        } catch (IllegalArgumentException ex) {
+            throw (ConfigException) new ConfigException(correlationId, "BAD_WRITE_CONCERN",
+                    "Write concern " + options + " is not valid").withCause(ex);
+        }
+
+        // The driver treats w:0 with journal as acknowledged, which is rarely intended
+        if (Integer.valueOf(0).equals(result.getWObject()) && Boolean.TRUE.equals(result.getJournal())) {
+            throw new ConfigException(correlationId, "BAD_WRITE_CONCERN",
+                    "Unacknowledged writes cannot wait for journal");
+        }
+
+        return result;
+    }
+}
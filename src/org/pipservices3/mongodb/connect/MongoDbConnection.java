@@ -3,27 +3,31 @@ package org.pipservices3.mongodb.connect;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
+import com.mongodb.MongoCompressor;
 import com.mongodb.client.MongoDatabase;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.Convention;
+import org.bson.codecs.pojo.Conventions;
 import org.bson.codecs.pojo.PojoCodecProvider;
 import org.pipservices3.commons.config.ConfigParams;
 import org.pipservices3.commons.config.IConfigurable;
 import org.pipservices3.commons.errors.ApplicationException;
-import org.pipservices3.commons.errors.ConfigException;
 import org.pipservices3.commons.errors.ConnectionException;
 import org.pipservices3.commons.refer.IReferenceable;
 import org.pipservices3.commons.refer.IReferences;
 import org.pipservices3.commons.refer.ReferenceException;
 import org.pipservices3.commons.run.IOpenable;
+import org.pipservices3.components.count.CompositeCounters;
 import org.pipservices3.components.log.CompositeLogger;
 import org.pipservices3.mongodb.codecs.DurationInt64Codec;
 import org.pipservices3.mongodb.codecs.LocalDateStringCodec;
 import org.pipservices3.mongodb.codecs.LocalDateTimeStringCodec;
+import org.pipservices3.mongodb.codecs.MongoDbIdConvention;
 import org.pipservices3.mongodb.codecs.ZonedDateTimeStringCodec;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -49,7 +53,14 @@ import java.util.logging.Logger;
  * </ul>
  * <ul>
  * options:
- * <li>max_pool_size:             (optional) maximum connection pool size (default: 2)
+ * <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ * <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ * <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ * <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection, 0 for no limit (default: 0)
+ * <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection, 0 for no limit (default: 0)
+ * <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ * <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ * <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
  * <li>keep_alive:                (optional) enable connection keep alive (default: true)
  * <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5000)
  * <li>socket_timeout:            (optional) socket timeout in milliseconds (default: 360000)
@@ -57,10 +68,24 @@ import java.util.logging.Logger;
  * <li>reconnect_interval:        (optional) reconnection interval in milliseconds (default: 1000)
  * <li>max_page_size:             (optional) maximum page size (default: 100)
  * <li>replica_set:               (optional) name of replica set
+ * <li>read_preference:           (optional) default read preference: primary, primary_preferred, secondary, secondary_preferred or nearest
+ * <li>read_concern:              (optional) default read concern: local, available, majority, linearizable or snapshot
+ * <li>write_concern:             (optional) default write concern: number of members, acknowledged, unacknowledged, journaled or majority
  * <li>ssl:                       (optional) enable SSL connection (default: false)
  * <li>auth_source:               (optional) authentication source
  * <li>debug:                     (optional) enable debug output (default: false).
+ * <li>monitoring:                (optional) report pool, command and network metrics to counters (default: true), see {@link MongoDbMonitor}
+ * <li>compressors:               (optional) comma-separated wire compressors in the order of preference: zlib or snappy
+ * <li>compression_level:         (optional) compression level for zlib (-1 to 9)
+ * <li>share_client:              (optional) share one client between connections with the same URI and options (default: true)
  * </ul>
+ * <p>
+ * Pool options are validated when the connection is opened.
+ * Options set in the connection URI take precedence over the ones above.
+ * <p>
+ * Connections with the same URI and options share one reference-counted client with its pool,
+ * which is closed when the last connection is closed. Performance counters of a shared client
+ * are reported to the connection that opened it first.
  *
  * <p>
  * ### References ###
@@ -69,26 +94,19 @@ import java.util.logging.Logger;
  * <li>*:logger:*:*:1.0           (optional) {@link org.pipservices3.components.log.ILogger} components to pass log messages
  * <li>*:discovery:*:*:1.0        (optional) {@link org.pipservices3.components.connect.IDiscovery} services
  * <li>*:credential-store:*:*:1.0 (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0         (optional) {@link org.pipservices3.components.count.ICounters} components to pass collected measurements
  * </ul>
  */
 public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenable {
 
-    private final ConfigParams _defaultConfig = ConfigParams.fromTuples(
-            // connections.*
-            // credential.*
-
-            "options.max_pool_size", 2,
-            "options.keep_alive", 1,
-            "options.connect_timeout", 5000,
-            "options.auto_reconnect", true,
-            "options.max_page_size", 100,
-            "options.debug", true
-    );
-
     /**
      * The logger.
      */
     protected CompositeLogger _logger = new CompositeLogger();
+    /**
+     * The performance counters.
+     */
+    protected CompositeCounters _counters = new CompositeCounters();
     /**
      * The connection resolver.
      */
@@ -111,6 +129,8 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
      */
     protected MongoDatabase _db;
 
+    private String _clientKey;
+
     /**
      * Configures component by passing configuration parameters.
      *
@@ -118,11 +138,7 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
      */
     @Override
     public void configure(ConfigParams config) {
-        config = config.setDefaults(this._defaultConfig);
-
-        this._connectionResolver.configure(config);
-
-//        this._options = this._options.override(config.getSection("options"));
+        this._options = MongoDbConnectionSupport.configure(config, this._connectionResolver, this._options);
     }
 
     /**
@@ -132,8 +148,7 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
      */
     @Override
     public void setReferences(IReferences references) {
-        this._logger.setReferences(references);
-        this._connectionResolver.setReferences(references);
+        MongoDbConnectionSupport.setReferences(references, this._logger, this._counters, this._connectionResolver);
     }
 
     /**
@@ -146,33 +161,69 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
         return this._connection != null;
     }
 
-    private MongoClientOptions.Builder composeSettings() {
-        var maxPoolSize = this._options.getAsIntegerWithDefault("max_pool_size", 100);
-        var keepAlive = this._options.getAsIntegerWithDefault("keep_alive", 1);
-        var connectTimeoutMS = this._options.getAsIntegerWithDefault("connect_timeout", _defaultConfig.getAsInteger("connect_timeout"));
-        var socketTimeoutMS = this._options.getAsIntegerWithDefault("socket_timeout", _defaultConfig.getAsInteger("socket_timeout"));
-        var autoReconnect = this._options.getAsBooleanWithDefault("auto_reconnect", _defaultConfig.getAsBoolean("auto_reconnect"));
-        var reconnectInterval = this._options.getAsIntegerWithDefault("reconnect_interval", _defaultConfig.getAsInteger("reconnect_interval"));
-        var debug = this._options.getAsBooleanWithDefault("debug", _defaultConfig.getAsBoolean("debug"));
-
-        var ssl = this._options.getAsBoolean("ssl");
-        var replicaSet = this._options.getAsNullableString("replica_set");
-
-//            var authSource = this._options.getAsNullableString("auth_source");
-//            var authUser = this._options.getAsNullableString("auth_user");
-//            var authPassword = this._options.getAsNullableString("auth_password");
-//            assert databaseName != null;
-//            MongoCredential cred = MongoCredential.createCredential(authUser, databaseName, authPassword.toCharArray());
-
-        Logger.getLogger("org.mongodb.driver").setLevel(!debug ? Level.OFF : Level.ALL);
-
-        return MongoClientOptions.builder()
-                .connectTimeout(connectTimeoutMS)
-                .socketTimeout(socketTimeoutMS)
-                .maxConnectionIdleTime(keepAlive)
-                .sslEnabled(ssl)
-                .requiredReplicaSetName(replicaSet)
-                .maxConnectionLifeTime(maxPoolSize);
+    private MongoClientOptions.Builder composeSettings(MongoDbConnectionOptions options, List<MongoCompressor> compressors) {
+        var builder = MongoClientOptions.builder()
+                .connectionsPerHost(options.maxPoolSize)
+                .minConnectionsPerHost(options.minPoolSize)
+                .maxWaitTime(options.maxWaitTime)
+                .maxConnectionIdleTime(options.maxIdleTime)
+                .maxConnectionLifeTime(options.maxLifeTime)
+                .heartbeatFrequency(options.heartbeatFrequency)
+                .serverSelectionTimeout(options.serverSelectionTimeout)
+                .localThreshold(options.localThreshold)
+                .connectTimeout(options.connectTimeout)
+                .socketTimeout(options.socketTimeout)
+                .sslEnabled(options.ssl);
+
+        if (options.replicaSet != null)
+            builder.requiredReplicaSetName(options.replicaSet);
+        if (options.readPreference != null)
+            builder.readPreference(options.readPreference);
+        if (options.readConcern != null)
+            builder.readConcern(options.readConcern);
+        if (options.writeConcern != null)
+            builder.writeConcern(options.writeConcern);
+
+        if (!compressors.isEmpty())
+            builder.compressorList(compressors);
+
+        var monitor = MongoDbConnectionSupport.createMonitor(options, this._counters);
+        if (monitor != null) {
+            builder.addConnectionPoolListener(monitor).addCommandListener(monitor)
+                    .streamFactoryFactory(MongoDbCountingStreamFactory.createFactory(this._counters));
+        }
+
+        return builder;
+    }
+
+    /**
+     * Creates the codec registry used by MongoDB connections: custom codecs for unsupported types,
+     * the driver default codecs and POJO codecs for all other classes.
+     *
+     * @return the codec registry.
+     */
+    public static CodecRegistry createCodecRegistry() {
+        // Map id properties to _id after the default conventions
+        List<Convention> conventions = new ArrayList<>(Conventions.DEFAULT_CONVENTIONS);
+        conventions.add(new MongoDbIdConvention());
+
+        PojoCodecProvider pojoCodecProvider = PojoCodecProvider.builder()
+                .automatic(true)
+                .conventions(conventions)
+                .build();
+
+        return CodecRegistries.fromRegistries(
+                // Custom codecs for unsupported types
+                CodecRegistries.fromCodecs(
+                        new ZonedDateTimeStringCodec(),
+                        new LocalDateTimeStringCodec(),
+                        new LocalDateStringCodec(),
+                        new DurationInt64Codec()
+                ),
+                MongoClient.getDefaultCodecRegistry(),
+                // POJO codecs to allow object serialization
+                CodecRegistries.fromProviders(pojoCodecProvider)
+        );
     }
 
     /**
@@ -183,36 +234,36 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
     @Override
     public void open(String correlationId) throws ApplicationException {
 
-        var uri = this._connectionResolver.resolve(correlationId);
+        var resolved = MongoDbConnectionSupport.resolve(correlationId, this._connectionResolver, this._options, this._logger);
+        var uri = resolved.uri;
+        var options = resolved.options;
+        var settings = this.composeSettings(options, resolved.compressors);
 
         this._logger.debug(correlationId, "Connecting to mongodb");
 
         try {
-            var settings = this.composeSettings();
 
             MongoClientURI clientUri = new MongoClientURI(uri, settings);
             String databaseName = clientUri.getDatabase();
 
-            var connection = new MongoClient(clientUri);
-
-            PojoCodecProvider pojoCodecProvider = PojoCodecProvider.builder().automatic(true).build();
-            CodecRegistry pojoCodecRegistry = CodecRegistries.fromRegistries(
-                    // Custom codecs for unsupported types
-                    CodecRegistries.fromCodecs(
-                            new ZonedDateTimeStringCodec(),
-                            new LocalDateTimeStringCodec(),
-                            new LocalDateStringCodec(),
-                            new DurationInt64Codec()
-                    ),
-                    MongoClient.getDefaultCodecRegistry(),
-                    // POJO codecs to allow object serialization
-                    CodecRegistries.fromProviders(pojoCodecProvider)
-            );
+            MongoClient connection;
+            if (options.shareClient) {
+                var clientKey = uri + "|" + options.getKey();
+                connection = MongoDbClientRegistry.acquire(clientKey, () -> new MongoClient(clientUri));
+                this._clientKey = clientKey;
+            } else {
+                connection = new MongoClient(clientUri);
+            }
 
             this._connection = connection;
-            this._db = connection.getDatabase(databaseName).withCodecRegistry(pojoCodecRegistry);
+            this._db = connection.getDatabase(databaseName).withCodecRegistry(createCodecRegistry());
             this._databaseName = this._db.getName();
         } catch (Exception ex) {
+            if (this._clientKey != null) {
+                MongoDbClientRegistry.release(this._clientKey);
+                this._clientKey = null;
+            }
+
             throw new ConnectionException(
                     correlationId,
                     "CONNECT_FAILED",
@@ -231,9 +282,13 @@ public class MongoDbConnection implements IReferenceable, IConfigurable, IOpenab
         if (this._connection == null)
             return;
 
-        this._connection.close();
+        if (this._clientKey != null)
+            MongoDbClientRegistry.release(this._clientKey);
+        else
+            this._connection.close();
 
         this._connection = null;
+        this._clientKey = null;
         this._db = null;
 
         this._logger.debug(correlationId, "Disconnected from mongodb database %s", this._databaseName);
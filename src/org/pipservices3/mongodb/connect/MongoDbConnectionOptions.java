@@ -0,0 +1,128 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+
+/**
+ * Connection pool and timeout settings read from <code>options.*</code> configuration section.
+ * Time values are in milliseconds.
+ */
+class MongoDbConnectionOptions {
+    int maxPoolSize;
+    int minPoolSize;
+    int maxWaitTime;
+    int maxIdleTime;
+    int maxLifeTime;
+    int heartbeatFrequency;
+    int serverSelectionTimeout;
+    int localThreshold;
+    int connectTimeout;
+    int socketTimeout;
+    boolean ssl;
+    String replicaSet;
+    boolean debug;
+    boolean monitoring;
+    boolean shareClient;
+    String readPreferenceName;
+    String readConcernName;
+    String writeConcernName;
+    String compressors;
+    Integer compressionLevel;
+
+    ReadPreference readPreference;
+    ReadConcern readConcern;
+    WriteConcern writeConcern;
+
+    /**
+     * Reads settings from configuration options.
+     *
+     * @param options the <code>options</code> configuration section.
+     * @return the connection settings.
+     */
+    static MongoDbConnectionOptions fromConfig(ConfigParams options) {
+        var result = new MongoDbConnectionOptions();
+
+        result.maxPoolSize = options.getAsIntegerWithDefault("max_pool_size", 100);
+        result.minPoolSize = options.getAsIntegerWithDefault("min_pool_size", 0);
+        result.maxWaitTime = options.getAsIntegerWithDefault("max_wait_time", 120000);
+        result.maxIdleTime = options.getAsIntegerWithDefault("max_idle_time", 0);
+        result.maxLifeTime = options.getAsIntegerWithDefault("max_life_time", 0);
+        result.heartbeatFrequency = options.getAsIntegerWithDefault("heartbeat_frequency", 10000);
+        result.serverSelectionTimeout = options.getAsIntegerWithDefault("server_selection_timeout", 30000);
+        result.localThreshold = options.getAsIntegerWithDefault("local_threshold", 15);
+        result.connectTimeout = options.getAsIntegerWithDefault("connect_timeout", 5000);
+        result.socketTimeout = options.getAsIntegerWithDefault("socket_timeout", 360000);
+        result.ssl = options.getAsBooleanWithDefault("ssl", false);
+        result.replicaSet = options.getAsNullableString("replica_set");
+        result.debug = options.getAsBooleanWithDefault("debug", false);
+        result.monitoring = options.getAsBooleanWithDefault("monitoring", true);
+        result.shareClient = options.getAsBooleanWithDefault("share_client", true);
+        result.readPreferenceName = options.getAsNullableString("read_preference");
+        result.readConcernName = options.getAsNullableString("read_concern");
+        result.writeConcernName = options.getAsNullableString("write_concern");
+        result.compressors = options.getAsNullableString("compressors");
+        result.compressionLevel = options.getAsNullableInteger("compression_level");
+
+        return result;
+    }
+
+    /**
+     * Validates the settings and parses read preference, read and write concerns.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @throws ConfigException when settings are invalid.
+     */
+    void validate(String correlationId) throws ConfigException {
+        if (maxPoolSize < 1) {
+            throw new ConfigException(correlationId, "BAD_POOL_SIZE",
+                    "Option max_pool_size must be positive, but it is " + maxPoolSize);
+        }
+        if (minPoolSize < 0 || minPoolSize > maxPoolSize) {
+            throw new ConfigException(correlationId, "BAD_POOL_SIZE",
+                    "Option min_pool_size must be between 0 and max_pool_size, but it is " + minPoolSize);
+        }
+
+        checkTime(correlationId, "max_wait_time", maxWaitTime);
+        checkTime(correlationId, "max_idle_time", maxIdleTime);
+        checkTime(correlationId, "max_life_time", maxLifeTime);
+        checkTime(correlationId, "server_selection_timeout", serverSelectionTimeout);
+        checkTime(correlationId, "local_threshold", localThreshold);
+        checkTime(correlationId, "connect_timeout", connectTimeout);
+        checkTime(correlationId, "socket_timeout", socketTimeout);
+
+        // The driver rejects more frequent heartbeats
+        if (heartbeatFrequency < 500) {
+            throw new ConfigException(correlationId, "BAD_TIMEOUT",
+                    "Option heartbeat_frequency must be at least 500 milliseconds, but it is " + heartbeatFrequency);
+        }
+
+        readPreference = MongoDbConcerns.parseReadPreference(correlationId, readPreferenceName);
+        readConcern = MongoDbConcerns.parseReadConcern(correlationId, readConcernName);
+        writeConcern = MongoDbConcerns.parseWriteConcern(correlationId, writeConcernName);
+    }
+
+    /**
+     * Composes a key that identifies clients created with the same settings.
+     *
+     * @return the settings key.
+     */
+    String getKey() {
+        return String.join(",", String.valueOf(maxPoolSize), String.valueOf(minPoolSize),
+                String.valueOf(maxWaitTime), String.valueOf(maxIdleTime), String.valueOf(maxLifeTime),
+                String.valueOf(heartbeatFrequency), String.valueOf(serverSelectionTimeout),
+                String.valueOf(localThreshold), String.valueOf(connectTimeout), String.valueOf(socketTimeout),
+                String.valueOf(ssl), String.valueOf(replicaSet), String.valueOf(monitoring),
+                String.valueOf(readPreferenceName), String.valueOf(readConcernName), String.valueOf(writeConcernName),
+                String.valueOf(compressors), String.valueOf(compressionLevel));
+    }
+
+    private static void checkTime(String correlationId, String name, int value) throws ConfigException {
+        if (value < 0) {
+            throw new ConfigException(correlationId, "BAD_TIMEOUT",
+                    "Option " + name + " must not be negative, but it is " + value);
+        }
+    }
+}
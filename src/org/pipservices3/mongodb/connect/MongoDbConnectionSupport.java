@@ -0,0 +1,125 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.MongoCompressor;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.refer.IReferences;
+import org.pipservices3.components.count.CompositeCounters;
+import org.pipservices3.components.log.CompositeLogger;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Configuration and opening steps shared by {@link MongoDbConnection} and {@link ReactiveMongoDbConnection}.
+ * <p>
+ * Both connections accept the same configuration and resolve it the same way,
+ * they differ only in how the resolved settings are applied to the driver client.
+ */
+class MongoDbConnectionSupport {
+
+    /**
+     * Connection settings resolved when a connection is opened.
+     */
+    static class Settings {
+        /**
+         * The connection string.
+         */
+        final String uri;
+        /**
+         * The validated connection options.
+         */
+        final MongoDbConnectionOptions options;
+        /**
+         * The wire compressors in the order of preference.
+         */
+        final List<MongoCompressor> compressors;
+
+        Settings(String uri, MongoDbConnectionOptions options, List<MongoCompressor> compressors) {
+            this.uri = uri;
+            this.options = options;
+            this.compressors = compressors;
+        }
+    }
+
+    private static ConfigParams createDefaultConfig() {
+        return ConfigParams.fromTuples(
+                // connections.*
+                // credential.*
+
+                "options.max_pool_size", 100,
+                "options.keep_alive", 1,
+                "options.connect_timeout", 5000,
+                "options.socket_timeout", 360000,
+                "options.auto_reconnect", true,
+                "options.max_page_size", 100,
+                "options.debug", false
+        );
+    }
+
+    /**
+     * Configures the connection resolver and merges connection options.
+     *
+     * @param config             configuration parameters to be set.
+     * @param connectionResolver the connection resolver to configure.
+     * @param options            the current connection options.
+     * @return the connection options overridden by the configuration.
+     */
+    static ConfigParams configure(ConfigParams config, MongoDbConnectionResolver connectionResolver, ConfigParams options) {
+        config = config.setDefaults(createDefaultConfig());
+
+        connectionResolver.configure(config);
+
+        return options.override(config.getSection("options"));
+    }
+
+    /**
+     * Sets references to the components of a connection.
+     *
+     * @param references         references to locate the component dependencies.
+     * @param logger             the connection logger.
+     * @param counters           the connection performance counters.
+     * @param connectionResolver the connection resolver.
+     */
+    static void setReferences(IReferences references, CompositeLogger logger, CompositeCounters counters,
+                              MongoDbConnectionResolver connectionResolver) {
+        logger.setReferences(references);
+        counters.setReferences(references);
+        connectionResolver.setReferences(references);
+    }
+
+    /**
+     * Resolves the connection string, validates options and creates compressors before a connection is opened.
+     *
+     * @param correlationId      (optional) transaction id to trace execution through call chain.
+     * @param connectionResolver the connection resolver.
+     * @param config             the connection options.
+     * @param logger             the connection logger.
+     * @return the resolved settings.
+     * @throws ApplicationException when the connection or options are not valid.
+     */
+    static Settings resolve(String correlationId, MongoDbConnectionResolver connectionResolver, ConfigParams config,
+                            CompositeLogger logger) throws ApplicationException {
+        var uri = connectionResolver.resolve(correlationId);
+
+        var options = MongoDbConnectionOptions.fromConfig(config);
+        options.validate(correlationId);
+        var compressors = MongoDbCompressors.create(correlationId, options.compressors, options.compressionLevel, logger);
+
+        Logger.getLogger("org.mongodb.driver").setLevel(!options.debug ? Level.OFF : Level.ALL);
+
+        return new Settings(uri, options, compressors);
+    }
+
+    /**
+     * Creates a monitor that reports pool and command metrics when monitoring is enabled.
+     *
+     * @param options  the connection options.
+     * @param counters the performance counters to report metrics to.
+     * @return the monitor or null when monitoring is disabled.
+     */
+    static MongoDbMonitor createMonitor(MongoDbConnectionOptions options, CompositeCounters counters) {
+        return options.monitoring ? new MongoDbMonitor(counters) : null;
+    }
+}
@@ -0,0 +1,152 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.AsyncCompletionHandler;
+import com.mongodb.connection.SocketSettings;
+import com.mongodb.connection.SocketStreamFactory;
+import com.mongodb.connection.SslSettings;
+import com.mongodb.connection.Stream;
+import com.mongodb.connection.StreamFactory;
+import com.mongodb.connection.StreamFactoryFactory;
+import org.bson.ByteBuf;
+import org.pipservices3.components.count.CompositeCounters;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Socket stream factory that counts bytes sent and received over the wire.
+ * <p>
+ * Bytes are counted after compression, so comparing the counters with and without
+ * compressors shows the savings. Reported counters:
+ * <ul>
+ * <li>mongodb.network.bytes_sent:     number of bytes written to sockets
+ * <li>mongodb.network.bytes_received: number of bytes read from sockets
+ * </ul>
+ */
+class MongoDbCountingStreamFactory implements StreamFactory {
+    private static final String BYTES_SENT = "mongodb.network.bytes_sent";
+    private static final String BYTES_RECEIVED = "mongodb.network.bytes_received";
+
+    private final StreamFactory _factory;
+    private final CompositeCounters _counters;
+
+    /**
+     * Creates a new instance of the stream factory.
+     *
+     * @param factory  the factory of streams to count bytes for.
+     * @param counters the counters to report measurements to.
+     */
+    public MongoDbCountingStreamFactory(StreamFactory factory, CompositeCounters counters) {
+        _factory = factory;
+        _counters = counters;
+    }
+
+    /**
+     * Creates a factory of counting socket stream factories for client options.
+     *
+     * @param counters the counters to report measurements to.
+     * @return the stream factory factory.
+     */
+    public static StreamFactoryFactory createFactory(CompositeCounters counters) {
+        return (SocketSettings socketSettings, SslSettings sslSettings) ->
+                new MongoDbCountingStreamFactory(new SocketStreamFactory(socketSettings, sslSettings), counters);
+    }
+
+    @Override
+    public Stream create(ServerAddress serverAddress) {
+        return new CountingStream(_factory.create(serverAddress));
+    }
+
+    private static int getSize(List<ByteBuf> buffers) {
+        var size = 0;
+        for (var buffer : buffers)
+            size += buffer.remaining();
+        return size;
+    }
+
+    private class CountingStream implements Stream {
+        private final Stream _stream;
+
+        CountingStream(Stream stream) {
+            _stream = stream;
+        }
+
+        @Override
+        public ByteBuf getBuffer(int size) {
+            return _stream.getBuffer(size);
+        }
+
+        @Override
+        public void open() throws IOException {
+            _stream.open();
+        }
+
+        @Override
+        public void openAsync(AsyncCompletionHandler<Void> handler) {
+            _stream.openAsync(handler);
+        }
+
+        @Override
+        public void write(List<ByteBuf> buffers) throws IOException {
+            var size = getSize(buffers);
+            _stream.write(buffers);
+            _counters.increment(BYTES_SENT, size);
+        }
+
+        @Override
+        public ByteBuf read(int numBytes) throws IOException {
+            var result = _stream.read(numBytes);
+            _counters.increment(BYTES_RECEIVED, numBytes);
+            return result;
+        }
+
+        @Override
+        public void writeAsync(List<ByteBuf> buffers, AsyncCompletionHandler<Void> handler) {
+            var size = getSize(buffers);
+            _stream.writeAsync(buffers, new AsyncCompletionHandler<>() {
+                @Override
+                public void completed(Void result) {
+                    _counters.increment(BYTES_SENT, size);
+                    handler.completed(result);
+                }
+
+                @Override
+                public void failed(Throwable ex) {
+                    handler.failed(ex);
+                }
+            });
+        }
+
+        @Override
+        public void readAsync(int numBytes, AsyncCompletionHandler<ByteBuf> handler) {
+            _stream.readAsync(numBytes, new AsyncCompletionHandler<>() {
+                @Override
+                public void completed(ByteBuf result) {
+                    _counters.increment(BYTES_RECEIVED, numBytes);
+                    handler.completed(result);
+                }
+
+                @Override
+                public void failed(Throwable ex) {
+                    handler.failed(ex);
+                }
+            });
+        }
+
+        @Override
+        public ServerAddress getAddress() {
+            return _stream.getAddress();
+        }
+
+        @Override
+        public void close() {
+            _stream.close();
+        }
+
+        @Override
+        public boolean isClosed() {
+            return _stream.isClosed();
+        }
+    }
+}
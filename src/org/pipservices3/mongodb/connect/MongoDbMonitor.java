@@ -0,0 +1,124 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.event.ConnectionAddedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListenerAdapter;
+import com.mongodb.event.ConnectionPoolWaitQueueEnteredEvent;
+import com.mongodb.event.ConnectionPoolWaitQueueExitedEvent;
+import com.mongodb.event.ConnectionRemovedEvent;
+import org.bson.BsonDocument;
+import org.pipservices3.components.count.CompositeCounters;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Driver listener that reports connection pool and command metrics to performance counters.
+ * <p>
+ * Reported counters:
+ * <ul>
+ * <li>mongodb.pool.size:                              number of open connections in all pools
+ * <li>mongodb.pool.checked_out:                       number of connections in use
+ * <li>mongodb.pool.wait_time:                         time spent waiting for a free connection
+ * <li>mongodb.&lt;database&gt;.&lt;collection&gt;.&lt;command&gt;.exec_time: command execution time
+ * <li>mongodb.&lt;database&gt;.&lt;collection&gt;.&lt;command&gt;.errors:    number of failed commands
+ * </ul>
+ * Commands that do not target a collection are reported as <code>mongodb.&lt;database&gt;.&lt;command&gt;</code>.
+ */
+@SuppressWarnings("deprecation")
+public class MongoDbMonitor extends ConnectionPoolListenerAdapter implements CommandListener {
+    private static final String PREFIX = "mongodb";
+
+    private final CompositeCounters _counters;
+    private final AtomicInteger _poolSize = new AtomicInteger();
+    private final AtomicInteger _checkedOut = new AtomicInteger();
+    private final ThreadLocal<Long> _waitStart = new ThreadLocal<>();
+    private final Map<Integer, String> _commands = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of the monitor.
+     *
+     * @param counters the counters to report measurements to.
+     */
+    public MongoDbMonitor(CompositeCounters counters) {
+        _counters = counters;
+    }
+
+    @Override
+    public void connectionAdded(ConnectionAddedEvent event) {
+        _counters.last(PREFIX + ".pool.size", _poolSize.incrementAndGet());
+    }
+
+    @Override
+    public void connectionRemoved(ConnectionRemovedEvent event) {
+        _counters.last(PREFIX + ".pool.size", _poolSize.decrementAndGet());
+    }
+
+    @Override
+    public void waitQueueEntered(ConnectionPoolWaitQueueEnteredEvent event) {
+        _waitStart.set(System.nanoTime());
+    }
+
+    @Override
+    public void waitQueueExited(ConnectionPoolWaitQueueExitedEvent event) {
+        // Synchronous checkouts enter and exit the queue on the same thread
+        var start = _waitStart.get();
+        if (start == null)
+            return;
+
+        _waitStart.remove();
+        _counters.endTiming(PREFIX + ".pool.wait_time", (System.nanoTime() - start) / 1000000f);
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        _counters.last(PREFIX + ".pool.checked_out", _checkedOut.incrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        _counters.last(PREFIX + ".pool.checked_out", _checkedOut.decrementAndGet());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        _commands.put(event.getRequestId(),
+                composeName(event.getDatabaseName(), event.getCommandName(), event.getCommand()));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        var name = _commands.remove(event.getRequestId());
+        if (name != null)
+            _counters.endTiming(name + ".exec_time", event.getElapsedTime(TimeUnit.MICROSECONDS) / 1000f);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        var name = _commands.remove(event.getRequestId());
+        if (name != null) {
+            _counters.endTiming(name + ".exec_time", event.getElapsedTime(TimeUnit.MICROSECONDS) / 1000f);
+            _counters.incrementOne(name + ".errors");
+        }
+    }
+
+    private static String composeName(String database, String commandName, BsonDocument command) {
+        String collection = null;
+
+        // getMore keeps the collection in a separate field, other commands in the command field
+        var value = "getMore".equals(commandName) ? command.get("collection") : command.get(commandName);
+        if (value != null && value.isString())
+            collection = value.asString().getValue();
+
+        return collection != null
+                ? PREFIX + "." + database + "." + collection + "." + commandName
+                : PREFIX + "." + database + "." + commandName;
+    }
+}
@@ -0,0 +1,245 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.config.IConfigurable;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.errors.ConnectionException;
+import org.pipservices3.commons.refer.IReferenceable;
+import org.pipservices3.commons.refer.IReferences;
+import org.pipservices3.commons.run.IOpenable;
+import org.pipservices3.components.count.CompositeCounters;
+import org.pipservices3.components.log.CompositeLogger;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * MongoDB connection using the reactive streams driver.
+ * <p>
+ * Operations of the reactive driver do not block calling threads, so a few threads
+ * can serve many concurrent queries. The connection accepts the same configuration
+ * as {@link MongoDbConnection} and shall be shared through
+ * {@link org.pipservices3.mongodb.persistence.ReactiveMongoDbPersistence} components.
+ * <p>
+ * ### Configuration parameters ###
+ * <p>
+ * <ul>
+ * connection(s):
+ * <li>discovery_key:             (optional) a key to retrieve the connection from {@link org.pipservices3.components.connect.IDiscovery}
+ * <li>host:                      host name or IP address
+ * <li>port:                      port number (default: 27017)
+ * <li>uri:                       resource URI or connection string with all parameters in it
+ * </ul>
+ * <ul>
+ * credential(s):
+ * <li>store_key:                 (optional) a key to retrieve the credentials from {@link org.pipservices3.components.auth.ICredentialStore}
+ * <li>username:                  (optional) user name
+ * <li>password:                  (optional) user password
+ * </ul>
+ * <ul>
+ * options:
+ * <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ * <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ * <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ * <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection, 0 for no limit (default: 0)
+ * <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection, 0 for no limit (default: 0)
+ * <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ * <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ * <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
+ * <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5000)
+ * <li>socket_timeout:            (optional) socket timeout in milliseconds (default: 360000)
+ * <li>replica_set:               (optional) name of replica set
+ * <li>read_preference:           (optional) default read preference: primary, primary_preferred, secondary, secondary_preferred or nearest
+ * <li>read_concern:              (optional) default read concern: local, available, majority, linearizable or snapshot
+ * <li>write_concern:             (optional) default write concern: number of members, acknowledged, unacknowledged, journaled or majority
+ * <li>ssl:                       (optional) enable SSL connection (default: false)
+ * <li>debug:                     (optional) enable debug output (default: false).
+ * <li>compressors:               (optional) comma-separated wire compressors in the order of preference: zlib or snappy
+ * <li>compression_level:         (optional) compression level for zlib (-1 to 9)
+ * <li>monitoring:                (optional) report pool and command metrics to counters (default: true), see {@link MongoDbMonitor}
+ * </ul>
+ *
+ * <p>
+ * ### References ###
+ * <p>
+ * <ul>
+ * <li>*:logger:*:*:1.0           (optional) {@link org.pipservices3.components.log.ILogger} components to pass log messages
+ * <li>*:discovery:*:*:1.0        (optional) {@link org.pipservices3.components.connect.IDiscovery} services
+ * <li>*:credential-store:*:*:1.0 (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0         (optional) {@link org.pipservices3.components.count.ICounters} components to pass collected measurements
+ * </ul>
+ */
+public class ReactiveMongoDbConnection implements IReferenceable, IConfigurable, IOpenable {
+
+    /**
+     * The logger.
+     */
+    protected CompositeLogger _logger = new CompositeLogger();
+    /**
+     * The performance counters.
+     */
+    protected CompositeCounters _counters = new CompositeCounters();
+    /**
+     * The connection resolver.
+     */
+    protected MongoDbConnectionResolver _connectionResolver = new MongoDbConnectionResolver();
+    /**
+     * The configuration options.
+     */
+    protected ConfigParams _options = new ConfigParams();
+
+    /**
+     * The MongoDB connection object.
+     */
+    protected MongoClient _connection;
+    /**
+     * The MongoDB database name.
+     */
+    protected String _databaseName;
+    /**
+     * The MongoDb database object.
+     */
+    protected MongoDatabase _db;
+
+    /**
+     * Configures component by passing configuration parameters.
+     *
+     * @param config configuration parameters to be set.
+     */
+    @Override
+    public void configure(ConfigParams config) {
+        this._options = MongoDbConnectionSupport.configure(config, this._connectionResolver, this._options);
+    }
+
+    /**
+     * Sets references to dependent components.
+     *
+     * @param references references to locate the component dependencies.
+     */
+    @Override
+    public void setReferences(IReferences references) {
+        MongoDbConnectionSupport.setReferences(references, this._logger, this._counters, this._connectionResolver);
+    }
+
+    /**
+     * Checks if the component is opened.
+     *
+     * @return true if the component has been opened and false otherwise.
+     */
+    @Override
+    public boolean isOpen() {
+        return this._connection != null;
+    }
+
+    private MongoClientSettings composeSettings(ConnectionString connectionString, MongoDbConnectionOptions options,
+                                                List<MongoCompressor> compressors) {
+        var builder = MongoClientSettings.builder()
+                .applyToConnectionPoolSettings(settings -> settings
+                        .maxSize(options.maxPoolSize)
+                        .minSize(options.minPoolSize)
+                        .maxWaitTime(options.maxWaitTime, TimeUnit.MILLISECONDS)
+                        .maxConnectionIdleTime(options.maxIdleTime, TimeUnit.MILLISECONDS)
+                        .maxConnectionLifeTime(options.maxLifeTime, TimeUnit.MILLISECONDS))
+                .applyToServerSettings(settings -> settings
+                        .heartbeatFrequency(options.heartbeatFrequency, TimeUnit.MILLISECONDS))
+                .applyToClusterSettings(settings -> settings
+                        .serverSelectionTimeout(options.serverSelectionTimeout, TimeUnit.MILLISECONDS)
+                        .localThreshold(options.localThreshold, TimeUnit.MILLISECONDS))
+                .applyToSocketSettings(settings -> settings
+                        .connectTimeout(options.connectTimeout, TimeUnit.MILLISECONDS)
+                        .readTimeout(options.socketTimeout, TimeUnit.MILLISECONDS))
+                .codecRegistry(MongoDbConnection.createCodecRegistry());
+
+        if (options.ssl)
+            builder.applyToSslSettings(settings -> settings.enabled(true));
+        if (options.replicaSet != null)
+            builder.applyToClusterSettings(settings -> settings.requiredReplicaSetName(options.replicaSet));
+        if (options.readPreference != null)
+            builder.readPreference(options.readPreference);
+        if (options.readConcern != null)
+            builder.readConcern(options.readConcern);
+        if (options.writeConcern != null)
+            builder.writeConcern(options.writeConcern);
+
+        if (!compressors.isEmpty())
+            builder.compressorList(compressors);
+
+        var monitor = MongoDbConnectionSupport.createMonitor(options, this._counters);
+        if (monitor != null) {
+            builder.applyToConnectionPoolSettings(settings -> settings.addConnectionPoolListener(monitor))
+                    .addCommandListener(monitor);
+        }
+
+        // Options set in the connection string take precedence
+        builder.applyConnectionString(connectionString);
+
+        return builder.build();
+    }
+
+    /**
+     * Opens the component.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     */
+    @Override
+    public void open(String correlationId) throws ApplicationException {
+
+        var settings = MongoDbConnectionSupport.resolve(correlationId, this._connectionResolver, this._options, this._logger);
+
+        this._logger.debug(correlationId, "Connecting to mongodb");
+
+        try {
+            var connectionString = new ConnectionString(settings.uri);
+            var connection = MongoClients.create(this.composeSettings(connectionString, settings.options, settings.compressors));
+
+            this._connection = connection;
+            this._db = connection.getDatabase(connectionString.getDatabase());
+            this._databaseName = this._db.getName();
+        } catch (Exception ex) {
+            throw new ConnectionException(
+                    correlationId,
+                    "CONNECT_FAILED",
+                    "Connection to mongodb failed"
+            ).withCause(ex);
+        }
+    }
+
+    /**
+     * Closes component and frees used resources.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     */
+    @Override
+    public void close(String correlationId) {
+        if (this._connection == null)
+            return;
+
+        this._connection.close();
+
+        this._connection = null;
+        this._db = null;
+
+        this._logger.debug(correlationId, "Disconnected from mongodb database %s", this._databaseName);
+
+        this._databaseName = null;
+    }
+
+    public MongoClient getConnection() {
+        return this._connection;
+    }
+
+    public MongoDatabase getDatabase() {
+        return this._db;
+    }
+
+    public String getDatabaseName() {
+        return this._databaseName;
+    }
+}
@@ -0,0 +1,39 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.bson.BsonDocument;
+
+/**
+ * Source of document changes for a collection.
+ * <p>
+ * The source keeps its stream open until it is closed.
+ * After a failure the caller closes the source and opens it again with the last resume token.
+ */
+public interface IMongoDbChangeSource {
+    /**
+     * Opens the stream. Changes made after the stream is opened are delivered by {@link #tryNext()}.
+     *
+     * @param resumeToken (optional) a token to resume after, or null to start from the current time.
+     */
+    void open(BsonDocument resumeToken);
+
+    /**
+     * Waits for the next change for a limited time.
+     *
+     * @return the next change or null when there were no changes.
+     */
+    MongoDbChangeEvent tryNext();
+
+    /**
+     * Gets the token to resume after the last read position of the stream.
+     * It advances when the server reports progress without returning changes,
+     * so the stream can be resumed after a quiet period as well.
+     *
+     * @return the resume token or null when the stream is not open or reported no position yet.
+     */
+    BsonDocument getResumeToken();
+
+    /**
+     * Closes the stream and frees used resources.
+     */
+    void close();
+}
@@ -1,21 +1,37 @@
 package org.pipservices3.mongodb.persistence;
 
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWrapper;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
 import org.bson.conversions.Bson;
-import org.pipservices3.commons.convert.JsonConverter;
+import org.pipservices3.commons.config.ConfigParams;
 import org.pipservices3.commons.data.AnyValueMap;
 import org.pipservices3.commons.data.IIdentifiable;
 import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.errors.ConfigException;
 import org.pipservices3.data.IGetter;
 import org.pipservices3.data.ISetter;
 import org.pipservices3.data.IWriter;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Abstract persistence component that stores data in MongoDB
@@ -47,27 +63,69 @@ import java.util.List;
  *   </ul>
  * <li>options:
  *   <ul>
- *   <li>max_pool_size:             (optional) maximum connection pool size (default: 2)
+ *   <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ *   <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ *   <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ *   <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ *   <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ *   <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
  *   <li>keep_alive:                (optional) enable connection keep alive (default: true)
  *   <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5000)
  *   <li>socket_timeout:            (optional) socket timeout in milliseconds (default: 360000)
  *   <li>auto_reconnect:            (optional) enable auto reconnection (default: true)
  *   <li>reconnect_interval:        (optional) reconnection interval in milliseconds (default: 1000)
  *   <li>max_page_size:             (optional) maximum page size (default: 100)
+ *   <li>pojo_codec:                (optional) decode data items with driver POJO codecs instead of Jackson mapping (default: false)
+ *   <li>copy_on_write:             (optional) copy data items before writes to keep caller objects unchanged (default: true)
+ *   <li>write_behind:              (optional) buffer create and set calls and send them in bulk from a background thread (default: false),
+ *                                  writes are attempted at most once and failures are reported by flush and close
+ *   <li>write_buffer_size:         (optional) maximum number of buffered writes, callers block when it is reached (default: 10000)
+ *   <li>write_batch_size:          (optional) number of buffered writes that triggers a flush (default: 1000)
+ *   <li>write_interval:            (optional) interval in milliseconds to flush buffered writes (default: 1000)
+ *   <li>cache_size:                (optional) maximum number of items kept in the read-through cache of getOneById, 0 to disable (default: 0)
+ *   <li>cache_timeout:             (optional) time in milliseconds to keep items in the cache, 0 to keep them until evicted (default: 60000)
+ *   <li>cache_change_stream:       (optional) keep the cache coherent with changes from other processes using the collection change stream,
+ *                                  falls back to the cache timeout when change streams are not supported
+ *                                  and disables a cache without timeout then (default: false)
+ *   <li>load_batch_window:         (optional) time in milliseconds to collect concurrent getOneById calls into one query, 0 to disable (default: 0)
+ *   <li>load_batch_size:           (optional) maximum number of ids in one batched query (default: 100)
+ *   <li>async_max_concurrency:     (optional) maximum number of concurrently executed async calls (default: max_pool_size)
+ *   <li>read_preference:           (optional) default read preference of the collection: primary, primary_preferred, secondary, secondary_preferred or nearest
+ *   <li>read_concern:              (optional) default read concern of the collection: local, available, majority, linearizable or snapshot
+ *   <li>write_concern:             (optional) default write concern of the collection: number of members, acknowledged, unacknowledged, journaled or majority
+ *   <li>write_concern.w:           (optional) number of members or majority to acknowledge writes, 0 for unacknowledged writes
+ *   <li>write_concern.j:           (optional) wait until writes are journaled
+ *   <li>write_concern.wtimeout:    (optional) time limit in milliseconds to wait for acknowledgement
+ *   <li>background_indexes:        (optional) create missing indexes in background after the component is opened (default: false)
+ *   <li>recreate_indexes:          (optional) drop and recreate existing indexes that differ from declared ones (default: false)
+ *   <li>slow_query_threshold:      (optional) duration in milliseconds to log find, count and findOneAnd* operations as slow, 0 to disable (default: 0)
+ *   <li>slow_query_explain:        (optional) explain slow queries once per filter shape and report collection scans (default: false)
  *   <li>replica_set:               (optional) name of replica set
  *   <li>ssl:                       (optional) enable SSL connection (default: false)
  *   <li>auth_source:               (optional) authentication source
  *   <li>auth_user:                 (optional) authentication user name
  *   <li>auth_password:             (optional) authentication user password
  *   <li>debug:                     (optional) enable debug output (default: false).
+ *   <li>monitoring:                (optional) report pool, command and network metrics to counters (default: true)
+ *   <li>share_client:              (optional) share one client between local connections with the same URI and options (default: true)
+ *   <li>compressors:               (optional) comma-separated wire compressors in the order of preference: zlib, snappy or zstd
+ *   <li>compression_level:         (optional) compression level for zlib (-1 to 9) and zstd (1 to 22)
  *   </ul>
  * </ul>
  * <p>
+ * With unacknowledged writes (w:0) the server returns no documents, so methods that read back
+ * the written item fall back to plain writes: <code>set</code> returns the item that was written,
+ * <code>update</code> returns the item passed in, <code>updatePartially</code> and <code>deleteById</code>
+ * return null. Cached items are evicted instead of refreshed.
+ * <p>
  * ### References ###
  * <ul>
  * <li>*:logger:*:*:1.0           (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/log/ILogger.html">ILogger</a> components to pass log messages
  * <li>*:discovery:*:*:1.0        (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a> services
  * <li>*:credential-store:*:*:1.0 (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0         (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/count/ICounters.html">ICounters</a> components to pass collected measurements
  * </ul>
  * <p>
  * ### Example ###
@@ -123,6 +181,55 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
      */
     protected boolean _autoGenerateId = true;
 
+    private static final long CHANGE_STREAM_MAX_AWAIT_TIME = 1000;
+    private static final long CHANGE_STREAM_RETRY_INTERVAL = 1000;
+
+    /**
+     * Flag to copy data items before writes. When it is turned off,
+     * generated ids are assigned to the caller objects.
+     */
+    protected boolean _copyOnWrite = true;
+
+    /**
+     * Maximum number of items in the read-through cache, 0 to disable it
+     */
+    protected int _cacheSize = 0;
+
+    /**
+     * Time in milliseconds to keep items in the cache
+     */
+    protected long _cacheTimeout = 60000;
+
+    /**
+     * The read-through cache of items retrieved by ids, null when it is disabled.
+     */
+    protected MongoDbEntityCache<K, T> _cache;
+
+    /**
+     * Flag to synchronize the cache with the collection change stream
+     */
+    protected boolean _cacheChangeStream = false;
+
+    /**
+     * The synchronizer that applies changes from other processes to the cache.
+     */
+    protected MongoDbCacheSynchronizer<K, T> _cacheSynchronizer;
+
+    /**
+     * Time in milliseconds to collect concurrent lookups by ids into one query, 0 to disable it
+     */
+    protected long _loadBatchWindow = 0;
+
+    /**
+     * Maximum number of ids in one batched lookup
+     */
+    protected int _loadBatchSize = 100;
+
+    /**
+     * The loader that coalesces concurrent lookups by ids, null when it is disabled.
+     */
+    protected MongoDbBatchLoader<K, T> _batchLoader;
+
     /**
      * Creates a new instance of the persistence component.
      *
@@ -134,6 +241,242 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
         super(collectionName, documentClass);
     }
 
+    /**
+     * Configures component by passing configuration parameters.
+     *
+     * @param config configuration parameters to be set.
+     */
+    @Override
+    public void configure(ConfigParams config) throws ConfigException {
+        super.configure(config);
+
+        this._copyOnWrite = config.getAsBooleanWithDefault("options.copy_on_write", this._copyOnWrite);
+        this._cacheSize = config.getAsIntegerWithDefault("options.cache_size", this._cacheSize);
+        this._cacheTimeout = config.getAsLongWithDefault("options.cache_timeout", this._cacheTimeout);
+        this._cacheChangeStream = config.getAsBooleanWithDefault("options.cache_change_stream", this._cacheChangeStream);
+
+        this._loadBatchWindow = config.getAsLongWithDefault("options.load_batch_window", this._loadBatchWindow);
+        this._loadBatchSize = config.getAsIntegerWithDefault("options.load_batch_size", this._loadBatchSize);
+
+        this._cache = this._cacheSize > 0 ? new MongoDbEntityCache<>(this._cacheSize, this._cacheTimeout) : null;
+        this._batchLoader = this._loadBatchWindow > 0
+                ? new MongoDbBatchLoader<>(this::getListByIds, IIdentifiable::getId, this._loadBatchSize, this._loadBatchWindow)
+                : null;
+    }
+
+    /**
+     * Gets the read-through cache with its hit, miss and eviction counters.
+     *
+     * @return the cache or null when it is disabled.
+     */
+    public MongoDbEntityCache<K, T> getCache() {
+        return this._cache;
+    }
+
+    /**
+     * Opens the component.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void open(String correlationId) throws ApplicationException {
+        if (this.isOpen())
+            return;
+
+        super.open(correlationId);
+
+        if (this._cache != null && this._cacheChangeStream) {
+            this._cacheSynchronizer = new MongoDbCacheSynchronizer<>(this._cache, this.createChangeSource(),
+                    this::convertCacheKey, this::convertCacheItem, this._logger, CHANGE_STREAM_RETRY_INTERVAL);
+            this._cacheSynchronizer.start("mongodb-cache-sync-" + this._collectionName);
+        }
+    }
+
+    /**
+     * Closes component and frees used resources.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void close(String correlationId) throws ApplicationException {
+        if (this._cacheSynchronizer != null) {
+            this._cacheSynchronizer.close();
+            this._cacheSynchronizer = null;
+        }
+
+        super.close(correlationId);
+
+        if (this._cache != null)
+            this._cache.clear();
+    }
+
+    /**
+     * Clears component state.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void clear(String correlationId) throws ApplicationException {
+        super.clear(correlationId);
+
+        if (this._cache != null)
+            this._cache.clear();
+        if (this._batchLoader != null)
+            this._batchLoader.forgetAll();
+    }
+
+    /**
+     * Creates a source of changes made to the collection.
+     * Override it to feed the cache from a different source.
+     *
+     * @return the change source.
+     */
+    protected IMongoDbChangeSource createChangeSource() {
+        return new MongoDbChangeStreamSource(this._collection, CHANGE_STREAM_MAX_AWAIT_TIME);
+    }
+
+    /**
+     * Converts a document id from a change event into a cache key.
+     *
+     * @param id the document id.
+     * @return the cache key.
+     */
+    @SuppressWarnings("unchecked")
+    protected K convertCacheKey(BsonValue id) {
+        if (id.isObjectId())
+            return (K) id.asObjectId().getValue().toHexString();
+
+        var document = new DocumentCodec().decode(new BsonDocumentReader(new BsonDocument("_id", id)),
+                DecoderContext.builder().build());
+        return (K) document.get("_id");
+    }
+
+    /**
+     * Converts a changed document from a change event into a data item.
+     *
+     * @param document the changed document.
+     * @return the data item.
+     */
+    protected T convertCacheItem(BsonDocument document) {
+        return this._codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    /**
+     * Puts an item into the cache or removes it when the item is null.
+     * Cached items are copied to keep them unchanged by the callers.
+     * It is called after writes, so batched lookups of the item sent before are not shared anymore.
+     *
+     * @param id   an id of the item.
+     * @param item the item to cache.
+     */
+    protected void putToCache(K id, T item) {
+        this.forgetLoads(List.of(id));
+
+        if (this._cache == null)
+            return;
+
+        if (item != null && this._copyOnWrite)
+            item = copyItem(item);
+
+        this._cache.put(id, item);
+    }
+
+    /**
+     * Puts an item read from the database into the cache unless the cache
+     * has changed since the read started, so a stale item is not put back
+     * after a concurrent write.
+     *
+     * @param id         an id of the item.
+     * @param item       the item to cache.
+     * @param generation the cache generation taken before the item was read.
+     */
+    protected void populateCache(K id, T item, long generation) {
+        if (this._cache == null || item == null)
+            return;
+
+        if (this._copyOnWrite)
+            item = copyItem(item);
+
+        this._cache.putIfAbsent(id, item, generation);
+    }
+
+    /**
+     * Removes items from the cache.
+     * It is called after writes, so batched lookups of the items sent before are not shared anymore.
+     *
+     * @param ids ids of the items to remove.
+     */
+    protected void removeFromCache(Iterable<K> ids) {
+        this.forgetLoads(ids);
+
+        if (this._cache == null)
+            return;
+
+        for (var id : ids)
+            this._cache.remove(id);
+    }
+
+    /**
+     * Makes lookups that start after a write load the items again
+     * instead of sharing a batch that was sent before the write.
+     *
+     * @param ids ids of the written items.
+     */
+    protected void forgetLoads(Iterable<K> ids) {
+        if (this._batchLoader != null)
+            this._batchLoader.forget(ids);
+    }
+
+    /**
+     * Removes an item from the cache when its buffered write fails,
+     * so the cache does not serve an item that was never stored.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            id of the item or null for items without ids.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void onBufferedWriteFailed(String correlationId, Object id) {
+        if (id != null)
+            this.removeFromCache(List.of((K) id));
+    }
+
+    /**
+     * Writes buffered writes of the items before they are changed directly in the collection,
+     * so a buffered write sent later does not overwrite the change or restore a deleted item.
+     * It does nothing when write-behind is not enabled.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of the items to be changed.
+     */
+    protected void flushBufferedWrites(String correlationId, Collection<K> ids) {
+        if (this._writeBuffer != null)
+            this._writeBuffer.flushIds(correlationId, ids);
+    }
+
+    /**
+     * Prepares a data item for writing: copies it when copying is enabled
+     * and generates a missing id.
+     *
+     * @param item an item to be written.
+     * @return the item to write.
+     */
+    protected T prepareForWrite(T item) {
+        var newItem = this._copyOnWrite ? copyItem(item) : item;
+
+        // Auto generate id
+        if (newItem.getId() == null && this._autoGenerateId)
+            newItem.setId(newItem.withGeneratedId());
+
+        return newItem;
+    }
+
     /**
      * Converts the given object from the public partial format.
      *
@@ -177,14 +520,38 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
      * @return the found data item.
      */
     public T getOneById(String correlationId, K id) {
-        var filter = new Document("_id", id);
+        var generation = 0L;
+        if (this._cache != null) {
+            generation = this._cache.getGeneration();
+
+            var cached = this._cache.get(id);
+            if (cached != null) {
+                this._logger.trace(correlationId, "Retrieved from cache of %s with id = %s", this._collectionName, id);
+                return this._copyOnWrite ? copyItem(cached) : cached;
+            }
+        }
 
-        var item = convertToPublic(this._collection.find(filter).first());
+        T item;
 
-        if (item == null)
+        if (this._batchLoader != null) {
+            item = this._batchLoader.load(correlationId, id);
+
+            // Concurrent lookups of the same id share the loaded item
+            if (item != null && this._copyOnWrite)
+                item = copyItem(item);
+        } else {
+            var filter = new Document("_id", id);
+            var startTime = System.nanoTime();
+            item = this._entityCollection.find(filter).first();
+            checkSlowOperation(correlationId, "find", filter, null, startTime);
+        }
+
+        if (item == null) {
             this._logger.trace(correlationId, "Nothing found from %s with id = %s", this._collectionName, id);
-        else
+        } else {
             this._logger.trace(correlationId, "Retrieved from %s with id = %s", this._collectionName, id);
+            this.populateCache(id, item, generation);
+        }
 
         return item;
     }
@@ -201,19 +568,13 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
     public T create(String correlationId, T item) {
         if (item == null) return null;
 
-        // clone object
-        T newItem;
+        var newItem = prepareForWrite(item);
+
         try {
-            newItem = JsonConverter.fromJson(_documentClass, JsonConverter.toJson(item));
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+            return super.create(correlationId, newItem);
+        } finally {
+            this.forgetLoads(List.of(newItem.getId()));
         }
-
-        // Auto generate id
-        if (newItem.getId() == null && this._autoGenerateId)
-            newItem.setId(newItem.withGeneratedId());
-
-        return super.create(correlationId, item);
     }
 
     /**
@@ -229,34 +590,39 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
         if (item == null)
             return null;
 
-        // Copy object
-        T newItem;
-        try {
-            newItem = JsonConverter.fromJson(_documentClass, JsonConverter.toJson(item));
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
+        var newItem = prepareForWrite(item);
 
-        // Auto generate id
-        if (newItem.getId() == null && this._autoGenerateId)
-            newItem.setId(newItem.withGeneratedId());
+        if (this._writeBuffer != null) {
+            // Cached before it is buffered, so a failed write always evicts it
+            this.putToCache(newItem.getId(), newItem);
+            this._writeBuffer.add(correlationId, newItem.getId(), newItem, true);
+            return newItem;
+        }
 
         var filter = new Document("_id", newItem.getId());
 
-        var options = new FindOneAndUpdateOptions();
+        var options = new FindOneAndReplaceOptions();
 
         options.upsert(true);
         options.returnDocument(ReturnDocument.AFTER);
 
-        var update = convertFromPublic(newItem);
+        if (!isWriteAcknowledged()) {
+            // The write may fail unnoticed, so the item is read from the database next time
+            this._entityCollection.replaceOne(filter, newItem, new ReplaceOptions().upsert(true));
+            this.removeFromCache(List.of(newItem.getId()));
+            return newItem;
+        }
 
-        var result = this._collection.findOneAndUpdate(filter, update, options);
+        var startTime = System.nanoTime();
+        var result = this._entityCollection.findOneAndReplace(filter, newItem, options);
+        checkSlowOperation(correlationId, "findOneAndReplace", filter, null, startTime);
 
-        if (result != null && !result.isEmpty())
+        if (result != null)
             this._logger.trace(correlationId, "Set in %s with id = %s", this._collectionName, item.getId());
 
-        newItem = result != null ? this.convertToPublic(result) : null;
-        return newItem;
+        this.putToCache(newItem.getId(), result);
+
+        return result;
     }
 
     /**
@@ -270,28 +636,30 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
         if (item == null || item.getId() == null)
             return null;
 
-        // Copy object
-        T newItem;
-        try {
-            newItem = JsonConverter.fromJson(_documentClass, JsonConverter.toJson(item));
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
-
-        var update = this.convertFromPublic(newItem);
-        update = new Document("$set", update);
+        // The item is encoded once while the update is sent, so it needs no copy
+        var update = new Document("$set", new BsonDocumentWrapper<>(item, this._codec));
 
         var options = new FindOneAndUpdateOptions();
-        var filter = new Document("_id", newItem.getId());
+        var filter = new Document("_id", item.getId());
 
         options.returnDocument(ReturnDocument.AFTER);
+        this.flushBufferedWrites(correlationId, List.of(item.getId()));
 
-        var result = this._collection.findOneAndUpdate(filter, update, options);
+        if (!isWriteAcknowledged()) {
+            this._entityCollection.updateOne(filter, update);
+            this.removeFromCache(List.of(item.getId()));
+            return item;
+        }
+
+        var startTime = System.nanoTime();
+        var result = this._entityCollection.findOneAndUpdate(filter, update, options);
+        checkSlowOperation(correlationId, "findOneAndUpdate", filter, null, startTime);
 
         this._logger.trace(correlationId, "Updated in %s with id = %s", this._collectionName, item.getId());
 
-        newItem = result != null ? this.convertToPublic(result) : null;
-        return newItem;
+        this.putToCache(item.getId(), result);
+
+        return result;
     }
 
     /**
@@ -315,12 +683,23 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
         options.returnDocument(ReturnDocument.AFTER);
 
         var filter = new Document("_id", id);
+        this.flushBufferedWrites(correlationId, List.of(id));
 
-        var result = this._collection.findOneAndUpdate(filter, update, options);
+        if (!isWriteAcknowledged()) {
+            this._entityCollection.updateOne(filter, update);
+            this.removeFromCache(List.of(id));
+            return null;
+        }
+
+        var startTime = System.nanoTime();
+        var result = this._entityCollection.findOneAndUpdate(filter, update, options);
+        checkSlowOperation(correlationId, "findOneAndUpdate", filter, null, startTime);
 
         this._logger.trace(correlationId, "Updated partially in %s with id = %s", this._collectionName, id);
 
-        return result != null ? this.convertToPublic(result) : null;
+        this.putToCache(id, result);
+
+        return result;
     }
 
     /**
@@ -333,12 +712,23 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
      */
     public T deleteById(String correlationId, K id) {
         var filter = new Document("_id", id);
+        this.flushBufferedWrites(correlationId, List.of(id));
 
-        var result = this._collection.findOneAndDelete(filter);
+        if (!isWriteAcknowledged()) {
+            this._entityCollection.deleteOne(filter);
+            this.removeFromCache(List.of(id));
+            return null;
+        }
+
+        var startTime = System.nanoTime();
+        var result = this._entityCollection.findOneAndDelete(filter);
+        checkSlowOperation(correlationId, "findOneAndDelete", filter, null, startTime);
 
         this._logger.trace(correlationId, "Deleted from %s with id = %s", this._collectionName, id);
 
-        return result != null ? this.convertToPublic(result) : null;
+        this.removeFromCache(List.of(id));
+
+        return result;
     }
 
     /**
@@ -349,12 +739,16 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
      * @param ids           ids of data items to be deleted.
      */
     public void deleteByIds(String correlationId, K[] ids) {
+        this.flushBufferedWrites(correlationId, Arrays.asList(ids));
 
         Bson filter = new Document("_id", new Document("$in", Arrays.stream(ids).toList()));
 
         DeleteResult result = _collection.deleteMany(filter);
 
-        _logger.trace(correlationId, "Deleted %d from %s", result.getDeletedCount(), _collectionName);
+        if (result.wasAcknowledged())
+            _logger.trace(correlationId, "Deleted %d from %s", result.getDeletedCount(), _collectionName);
+
+        removeFromCache(Arrays.asList(ids));
     }
 
     /**
@@ -365,11 +759,233 @@ public class IdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extend
      * @param ids           ids of data items to be deleted.
      */
     public void deleteByIds(String correlationId, List<K> ids) {
+        this.flushBufferedWrites(correlationId, ids);
 
         Bson filter = new Document("_id", new Document("$in", ids));
 
         DeleteResult result = _collection.deleteMany(filter);
 
-        _logger.trace(correlationId, "Deleted %d from %s", result.getDeletedCount(), _collectionName);
+        if (result.wasAcknowledged())
+            _logger.trace(correlationId, "Deleted %d from %s", result.getDeletedCount(), _collectionName);
+
+        removeFromCache(ids);
+    }
+
+    /**
+     * Deletes data items that match to a given filter.
+     * The read-through cache is cleared since deleted ids are not known.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object.
+     */
+    @Override
+    public void deleteByFilter(String correlationId, Bson filter) {
+        super.deleteByFilter(correlationId, filter);
+
+        if (this._cache != null)
+            this._cache.clear();
+        if (this._batchLoader != null)
+            this._batchLoader.forgetAll();
+    }
+
+    /**
+     * Creates multiple data items in bulk.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param items         items to be created.
+     * @param ordered       true to stop on the first error, false to attempt all items.
+     * @return results for every item in the same order.
+     */
+    public List<MongoDbBulkItemResult<K>> createMany(String correlationId, List<T> items, boolean ordered) {
+        List<WriteModel<T>> models = new ArrayList<>(items.size());
+        List<K> ids = new ArrayList<>(items.size());
+
+        for (var item : items) {
+            var newItem = prepareForWrite(item);
+            models.add(new InsertOneModel<>(newItem));
+            ids.add(newItem.getId());
+        }
+
+        this.flushBufferedWrites(correlationId, ids);
+        try {
+            return this.bulkWrite(correlationId, models, ids, ordered);
+        } finally {
+            this.forgetLoads(ids);
+        }
+    }
+
+    /**
+     * Sets multiple data items in bulk. Existing items are replaced, missing items are created.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param items         items to be set.
+     * @param ordered       true to stop on the first error, false to attempt all items.
+     * @return results for every item in the same order.
+     */
+    public List<MongoDbBulkItemResult<K>> setMany(String correlationId, List<T> items, boolean ordered) {
+        List<WriteModel<T>> models = new ArrayList<>(items.size());
+        List<K> ids = new ArrayList<>(items.size());
+        var options = new ReplaceOptions().upsert(true);
+
+        for (var item : items) {
+            var newItem = prepareForWrite(item);
+            models.add(new ReplaceOneModel<>(new Document("_id", newItem.getId()), newItem, options));
+            ids.add(newItem.getId());
+        }
+
+        this.flushBufferedWrites(correlationId, ids);
+        try {
+            return this.bulkWrite(correlationId, models, ids, ordered);
+        } finally {
+            removeFromCache(ids);
+        }
+    }
+
+    /**
+     * Updates multiple data items in bulk. Items without ids do not match any data.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param items         items to be updated.
+     * @param ordered       true to stop on the first error, false to attempt all items.
+     * @return results for every item in the same order.
+     */
+    public List<MongoDbBulkItemResult<K>> updateMany(String correlationId, List<T> items, boolean ordered) {
+        List<WriteModel<T>> models = new ArrayList<>(items.size());
+        List<K> ids = new ArrayList<>(items.size());
+
+        for (var item : items) {
+            var update = new Document("$set", new BsonDocumentWrapper<>(item, this._codec));
+            models.add(new UpdateOneModel<>(new Document("_id", item.getId()), update));
+            ids.add(item.getId());
+        }
+
+        this.flushBufferedWrites(correlationId, ids);
+        try {
+            return this.bulkWrite(correlationId, models, ids, ordered);
+        } finally {
+            removeFromCache(ids);
+        }
+    }
+
+    /**
+     * Deletes multiple data items in bulk with a result for every id.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be deleted.
+     * @param ordered       true to stop on the first error, false to attempt all items.
+     * @return results for every id in the same order.
+     */
+    public List<MongoDbBulkItemResult<K>> deleteMany(String correlationId, List<K> ids, boolean ordered) {
+        List<WriteModel<T>> models = new ArrayList<>(ids.size());
+
+        for (var id : ids)
+            models.add(new DeleteOneModel<>(new Document("_id", id)));
+
+        this.flushBufferedWrites(correlationId, ids);
+        try {
+            return this.bulkWrite(correlationId, models, ids, ordered);
+        } finally {
+            removeFromCache(ids);
+        }
+    }
+
+    /**
+     * Gets a list of data items retrieved by given unique ids asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be retrieved
+     * @return a future with the data list.
+     * @see #getListByIds(String, List)
+     */
+    public CompletableFuture<List<T>> getListByIdsAsync(String correlationId, List<K> ids) {
+        return runAsync(correlationId, () -> getListByIds(correlationId, ids));
+    }
+
+    /**
+     * Gets a data item by its unique id asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of data item to be retrieved.
+     * @return a future with the found data item or null.
+     * @see #getOneById(String, Comparable)
+     */
+    public CompletableFuture<T> getOneByIdAsync(String correlationId, K id) {
+        return runAsync(correlationId, () -> getOneById(correlationId, id));
+    }
+
+    /**
+     * Creates a data item asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          an item to be created.
+     * @return a future with the created item.
+     * @see #create(String, IIdentifiable)
+     */
+    public CompletableFuture<T> createAsync(String correlationId, T item) {
+        return runAsync(correlationId, () -> create(correlationId, item));
+    }
+
+    /**
+     * Sets a data item asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          a item to be set.
+     * @return a future with the updated item.
+     * @see #set(String, IIdentifiable)
+     */
+    public CompletableFuture<T> setAsync(String correlationId, T item) {
+        return runAsync(correlationId, () -> set(correlationId, item));
+    }
+
+    /**
+     * Updates a data item asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          an item to be updated.
+     * @return a future with the updated item.
+     * @see #update(String, IIdentifiable)
+     */
+    public CompletableFuture<T> updateAsync(String correlationId, T item) {
+        return runAsync(correlationId, () -> update(correlationId, item));
+    }
+
+    /**
+     * Updates only few selected fields in a data item asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of data item to be updated.
+     * @param data          a map with fields to be updated.
+     * @return a future with the updated item.
+     * @see #updatePartially(String, Comparable, AnyValueMap)
+     */
+    public CompletableFuture<T> updatePartiallyAsync(String correlationId, K id, AnyValueMap data) {
+        return runAsync(correlationId, () -> updatePartially(correlationId, id, data));
+    }
+
+    /**
+     * Deletes a data item by it's unique id asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of the item to be deleted
+     * @return a future with the deleted item.
+     * @see #deleteById(String, Comparable)
+     */
+    public CompletableFuture<T> deleteByIdAsync(String correlationId, K id) {
+        return runAsync(correlationId, () -> deleteById(correlationId, id));
+    }
+
+    /**
+     * Deletes multiple data items by their unique ids asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be deleted.
+     * @return a future that completes when items are deleted.
+     * @see #deleteByIds(String, List)
+     */
+    public CompletableFuture<Void> deleteByIdsAsync(String correlationId, List<K> ids) {
+        return runAsync(correlationId, () -> {
+            deleteByIds(correlationId, ids);
+            return null;
+        });
     }
 }
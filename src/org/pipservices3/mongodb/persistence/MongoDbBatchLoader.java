@@ -0,0 +1,181 @@
+package org.pipservices3.mongodb.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of single items into batched queries.
+ * <p>
+ * The first lookup opens a batch and waits for the batch window, then it loads all ids
+ * collected in the meantime with one query. A batch that reaches the maximum size is loaded
+ * at once by the caller that filled it. Concurrent lookups of the same id share one result
+ * until it is loaded. Writers call {@link #forget} after a write, so lookups that start after it
+ * do not join a batch that was sent before the write and could return the old item.
+ *
+ * @param <K> the class type of item ids
+ * @param <T> the class type of data items
+ */
+public class MongoDbBatchLoader<K, T> {
+
+    /**
+     * Callback that loads data items by their ids.
+     *
+     * @param <K> the class type of item ids
+     * @param <T> the class type of data items
+     */
+    @FunctionalInterface
+    public interface Loader<K, T> {
+        /**
+         * Loads data items by their ids.
+         *
+         * @param correlationId (optional) transaction id to trace execution through call chain.
+         * @param ids           ids of data items to be loaded.
+         * @return found data items in any order.
+         */
+        List<T> load(String correlationId, List<K> ids);
+    }
+
+    private final Object _lock = new Object();
+    private final Map<K, CompletableFuture<T>> _inFlight = new HashMap<>();
+    private final Loader<K, T> _loader;
+    private final Function<T, K> _keyExtractor;
+    private final int _maxBatchSize;
+    private final long _window;
+    private Map<K, CompletableFuture<T>> _pending = new LinkedHashMap<>();
+
+    /**
+     * Creates a new instance of the loader.
+     *
+     * @param loader       callback to load a batch of items.
+     * @param keyExtractor function to get ids of loaded items.
+     * @param maxBatchSize maximum number of ids in one batch.
+     * @param window       time in milliseconds to collect ids into a batch.
+     */
+    public MongoDbBatchLoader(Loader<K, T> loader, Function<T, K> keyExtractor, int maxBatchSize, long window) {
+        if (loader == null)
+            throw new NullPointerException("loader is null");
+        if (keyExtractor == null)
+            throw new NullPointerException("keyExtractor is null");
+
+        _loader = loader;
+        _keyExtractor = keyExtractor;
+        _maxBatchSize = Math.max(maxBatchSize, 1);
+        _window = Math.max(window, 0);
+    }
+
+    /**
+     * Loads a data item by its id as part of a batch.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of data item to be loaded.
+     * @return the found data item or null if it was not found.
+     */
+    public T load(String correlationId, K id) {
+        CompletableFuture<T> future;
+        Map<K, CompletableFuture<T>> batch = null;
+        Map<K, CompletableFuture<T>> opened = null;
+
+        synchronized (_lock) {
+            future = _inFlight.get(id);
+
+            if (future == null) {
+                future = new CompletableFuture<>();
+                _inFlight.put(id, future);
+                _pending.put(id, future);
+
+                if (_pending.size() >= _maxBatchSize)
+                    batch = takePending();
+                else if (_pending.size() == 1)
+                    opened = _pending;
+            }
+        }
+
+        if (opened != null && _window > 0) {
+            try {
+                Thread.sleep(_window);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // The batch could be already taken by a caller that filled it
+        if (opened != null) {
+            synchronized (_lock) {
+                if (_pending == opened)
+                    batch = takePending();
+            }
+        }
+
+        if (batch != null)
+            execute(correlationId, batch);
+
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+    }
+
+    /**
+     * Stops sharing results of batches already sent for the given ids, so later lookups start a new batch.
+     * Ids that wait for their batch to be sent keep sharing it, since it is read after the call.
+     *
+     * @param ids ids of the changed items.
+     */
+    public void forget(Iterable<K> ids) {
+        synchronized (_lock) {
+            for (var id : ids) {
+                if (!_pending.containsKey(id))
+                    _inFlight.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Stops sharing results of all batches already sent, so later lookups start new batches.
+     */
+    public void forgetAll() {
+        synchronized (_lock) {
+            _inFlight.keySet().retainAll(_pending.keySet());
+        }
+    }
+
+    private Map<K, CompletableFuture<T>> takePending() {
+        var batch = _pending;
+        _pending = new LinkedHashMap<>();
+        return batch;
+    }
+
+    private void execute(String correlationId, Map<K, CompletableFuture<T>> batch) {
+        Map<K, T> items = new HashMap<>();
+        RuntimeException error = null;
+
+        try {
+            for (var item : _loader.load(correlationId, new ArrayList<>(batch.keySet())))
+                items.put(_keyExtractor.apply(item), item);
+        } catch (RuntimeException ex) {
+            error = ex;
+        }
+
+        // Later lookups of these ids start a new batch
+        synchronized (_lock) {
+            for (var entry : batch.entrySet())
+                _inFlight.remove(entry.getKey(), entry.getValue());
+        }
+
+        for (var entry : batch.entrySet()) {
+            if (error != null)
+                entry.getValue().completeExceptionally(error);
+            else
+                entry.getValue().complete(items.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.pipservices3.mongodb.persistence;
+
+/**
+ * Result of a single item in a bulk write operation.
+ *
+ * @param <K> the class type of the item id
+ */
+public class MongoDbBulkItemResult<K> {
+
+    /**
+     * Outcome of the item write.
+     */
+    public enum Status {
+        /**
+         * The item was inserted.
+         */
+        INSERTED,
+        /**
+         * The item did not exist and was inserted by upsert.
+         */
+        UPSERTED,
+        /**
+         * The update, replacement or deletion was executed without errors.
+         * The server does not report whether it matched a document.
+         */
+        APPLIED,
+        /**
+         * The item write failed. See error code and message.
+         */
+        FAILED,
+        /**
+         * The item was not written because an ordered write stopped on an earlier error.
+         */
+        SKIPPED
+    }
+
+    public MongoDbBulkItemResult() {
+
+    }
+
+    public MongoDbBulkItemResult(int index, K id, Status status) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+    }
+
+    /**
+     * Position of the item in the list passed to the bulk operation
+     */
+    public int index;
+    /**
+     * Id of the item
+     */
+    public K id;
+    /**
+     * Outcome of the item write
+     */
+    public Status status;
+    /**
+     * Server error code for failed items
+     */
+    public Integer errorCode;
+    /**
+     * Server error message for failed items
+     */
+    public String errorMessage;
+    /**
+     * Write concern error code when the item was written but the requested acknowledgement failed
+     */
+    public Integer writeConcernErrorCode;
+    /**
+     * Write concern error message when the item was written but the requested acknowledgement failed
+     */
+    public String writeConcernErrorMessage;
+
+    /**
+     * Checks if the write of the item was not acknowledged as requested by the write concern,
+     * for instance when it was not replicated to enough members in time.
+     * The item may still be rolled back.
+     *
+     * @return true if the write concern failed and false otherwise.
+     */
+    public boolean hasWriteConcernError() {
+        return writeConcernErrorCode != null;
+    }
+
+    /**
+     * Checks if the item was written and acknowledged as requested by the write concern.
+     *
+     * @return true if the item was inserted, upserted or applied without write concern error.
+     */
+    public boolean isSuccessful() {
+        return (status == Status.INSERTED || status == Status.UPSERTED || status == Status.APPLIED)
+                && !hasWriteConcernError();
+    }
+}
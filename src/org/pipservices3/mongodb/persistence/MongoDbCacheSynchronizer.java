@@ -0,0 +1,278 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoCommandException;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.pipservices3.components.log.ILogger;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps an entity cache coherent with changes made by other processes.
+ * <p>
+ * A background thread reads changes from a change source. Updated and replaced items
+ * are refreshed when they are cached and their current version is available, and evicted otherwise,
+ * deleted items are evicted, and drops, renames and invalidations clear the whole cache.
+ * The stream is opened when the synchronizer starts, so changes made after that are not missed.
+ * The last resume token, including the ones the server reports without changes, is kept
+ * to continue after the stream is reopened. When the stream is reopened without a token,
+ * changes made meanwhile are lost and the cache is cleared.
+ * When the server does not support change streams, the synchronizer stops
+ * and the cache relies on its timeout only. A cache without timeout is disabled then,
+ * since its items would never be refreshed.
+ *
+ * @param <K> the class type of item ids
+ * @param <T> the class type of data items
+ */
+public class MongoDbCacheSynchronizer<K, T> {
+
+    // NotAReplicaSet ($changeStream on a standalone server), CommandNotSupported, unknown pipeline stage
+    private static final List<Integer> NOT_SUPPORTED_CODES = List.of(40573, 115, 40324);
+    // ChangeStreamHistoryLost, ChangeStreamFatalError
+    private static final List<Integer> HISTORY_LOST_CODES = List.of(286, 280);
+
+    private final Object _lock = new Object();
+    private final MongoDbEntityCache<K, T> _cache;
+    private final IMongoDbChangeSource _source;
+    private final Function<BsonValue, K> _keyConverter;
+    private final Function<BsonDocument, T> _itemConverter;
+    private final ILogger _logger;
+    private final long _retryInterval;
+    private Thread _thread;
+    private boolean _opened;
+    private volatile boolean _closed;
+    private volatile boolean _degraded;
+    private volatile BsonDocument _resumeToken;
+
+    /**
+     * Creates a new instance of the synchronizer.
+     *
+     * @param cache         the cache to keep coherent.
+     * @param source        the source of changes.
+     * @param keyConverter  function to convert document ids into cache keys.
+     * @param itemConverter function to convert changed documents into data items.
+     * @param logger        logger to report stream errors.
+     * @param retryInterval interval in milliseconds to reopen the stream after a failure.
+     */
+    public MongoDbCacheSynchronizer(MongoDbEntityCache<K, T> cache, IMongoDbChangeSource source,
+                                    Function<BsonValue, K> keyConverter, Function<BsonDocument, T> itemConverter,
+                                    ILogger logger, long retryInterval) {
+        if (cache == null)
+            throw new NullPointerException("cache is null");
+        if (source == null)
+            throw new NullPointerException("source is null");
+
+        _cache = cache;
+        _source = source;
+        _keyConverter = keyConverter;
+        _itemConverter = itemConverter;
+        _logger = logger;
+        _retryInterval = Math.max(retryInterval, 1);
+    }
+
+    /**
+     * Opens the change stream and starts reading changes in a background thread.
+     * When the stream can not be opened, the background thread keeps trying.
+     *
+     * @param name name of the thread.
+     */
+    public void start(String name) {
+        synchronized (_lock) {
+            if (_thread != null)
+                return;
+
+            _closed = false;
+            _degraded = false;
+            _opened = false;
+            _resumeToken = null;
+
+            try {
+                _source.open(null);
+                _opened = true;
+                _resumeToken = _source.getResumeToken();
+            } catch (RuntimeException ex) {
+                if (ex instanceof MongoCommandException commandEx
+                        && NOT_SUPPORTED_CODES.contains(commandEx.getErrorCode())) {
+                    degrade(commandEx);
+                    return;
+                }
+
+                if (_logger != null)
+                    _logger.error(null, ex, "Failed to open the change stream, retrying in background");
+                _source.close();
+            }
+
+            _thread = new Thread(this::run, name);
+            _thread.setDaemon(true);
+            _thread.start();
+        }
+    }
+
+    /**
+     * Stops reading changes and closes the change source.
+     */
+    public void close() {
+        Thread thread;
+
+        synchronized (_lock) {
+            _closed = true;
+            thread = _thread;
+            _thread = null;
+            _lock.notifyAll();
+        }
+
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Checks if the synchronizer stopped because change streams are not supported.
+     *
+     * @return true when the cache relies on its timeout only.
+     */
+    public boolean isDegraded() {
+        return _degraded;
+    }
+
+    /**
+     * Gets the token to resume after the last read position of the change stream.
+     *
+     * @return the resume token or null when the stream reported no position yet.
+     */
+    public BsonDocument getResumeToken() {
+        return _resumeToken;
+    }
+
+    /**
+     * Applies a change to the cache.
+     *
+     * @param event the change to apply.
+     */
+    public void apply(MongoDbChangeEvent event) {
+        switch (event.getOperationType()) {
+            case "update", "replace" -> {
+                var id = event.getId() != null ? _keyConverter.apply(event.getId()) : null;
+                var document = event.getFullDocument();
+                _cache.replace(id, document != null && _itemConverter != null ? convertItem(document) : null);
+            }
+            case "delete" -> {
+                if (event.getId() != null)
+                    _cache.remove(_keyConverter.apply(event.getId()));
+            }
+            case "drop", "dropDatabase", "rename", "invalidate" -> _cache.clear();
+            default -> {
+                // Inserted items are not cached yet
+            }
+        }
+    }
+
+    private T convertItem(BsonDocument document) {
+        try {
+            return _itemConverter.apply(document);
+        } catch (RuntimeException ex) {
+            // The item is evicted and read from the database next time
+            if (_logger != null)
+                _logger.warn(null, "Failed to convert changed document: %s", ex.getMessage());
+            return null;
+        }
+    }
+
+    private void run() {
+        try {
+            while (!_closed) {
+                try {
+                    if (!_opened)
+                        reopen();
+
+                    var event = _source.tryNext();
+                    if (event != null) {
+                        apply(event);
+
+                        // Invalidated stream can not be resumed, the next one starts from the current time
+                        if ("invalidate".equals(event.getOperationType())) {
+                            _resumeToken = null;
+                            _opened = false;
+                            _source.close();
+                            continue;
+                        }
+                    }
+
+                    // The post-batch token advances on empty batches too
+                    var token = _source.getResumeToken();
+                    if (token == null && event != null)
+                        token = event.getResumeToken();
+                    if (token != null)
+                        _resumeToken = token;
+                } catch (MongoCommandException ex) {
+                    if (NOT_SUPPORTED_CODES.contains(ex.getErrorCode())) {
+                        degrade(ex);
+                        return;
+                    }
+
+                    // Changes after the token are lost, cached items can not be trusted
+                    if (HISTORY_LOST_CODES.contains(ex.getErrorCode())) {
+                        _cache.clear();
+                        _resumeToken = null;
+                    }
+
+                    retry(ex);
+                } catch (RuntimeException ex) {
+                    retry(ex);
+                }
+            }
+        } finally {
+            _source.close();
+        }
+    }
+
+    private void reopen() {
+        var resumeToken = _resumeToken;
+        _source.open(resumeToken);
+        _opened = true;
+
+        // Changes made while no stream was open are lost
+        if (resumeToken == null)
+            _cache.clear();
+    }
+
+    private void degrade(MongoCommandException ex) {
+        _degraded = true;
+
+        if (_cache.getTimeout() > 0) {
+            if (_logger != null)
+                _logger.warn(null, "Change streams are not supported, cache relies on its timeout: %s",
+                        ex.getErrorMessage());
+        } else {
+            _cache.disable();
+            if (_logger != null)
+                _logger.warn(null, "Change streams are not supported and cache has no timeout, "
+                        + "cache is disabled: %s", ex.getErrorMessage());
+        }
+    }
+
+    private void retry(Exception ex) {
+        if (_logger != null)
+            _logger.error(null, ex, "Failed to read changes, reopening the change stream");
+
+        _opened = false;
+        _source.close();
+
+        synchronized (_lock) {
+            if (_closed)
+                return;
+
+            try {
+                _lock.wait(_retryInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                _closed = true;
+            }
+        }
+    }
+}
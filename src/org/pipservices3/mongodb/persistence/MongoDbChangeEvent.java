@@ -0,0 +1,45 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+/**
+ * Change of a document received from a collection change stream.
+ */
+public class MongoDbChangeEvent {
+    private final String _operationType;
+    private final BsonValue _id;
+    private final BsonDocument _fullDocument;
+    private final BsonDocument _resumeToken;
+
+    /**
+     * Creates a new change event.
+     *
+     * @param operationType type of the operation: insert, update, replace, delete, drop, rename or invalidate.
+     * @param id            (optional) an id of the changed document.
+     * @param fullDocument  (optional) the current version of the changed document.
+     * @param resumeToken   a token to resume the change stream after this event.
+     */
+    public MongoDbChangeEvent(String operationType, BsonValue id, BsonDocument fullDocument, BsonDocument resumeToken) {
+        _operationType = operationType;
+        _id = id;
+        _fullDocument = fullDocument;
+        _resumeToken = resumeToken;
+    }
+
+    public String getOperationType() {
+        return _operationType;
+    }
+
+    public BsonValue getId() {
+        return _id;
+    }
+
+    public BsonDocument getFullDocument() {
+        return _fullDocument;
+    }
+
+    public BsonDocument getResumeToken() {
+        return _resumeToken;
+    }
+}
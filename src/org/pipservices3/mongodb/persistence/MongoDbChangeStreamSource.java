@@ -0,0 +1,81 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change source that reads a MongoDB collection change stream.
+ * <p>
+ * Updated documents are looked up to deliver their current version.
+ * The resume token is taken from the cursor, so it includes the post-batch token
+ * the server returns for empty batches.
+ * Change streams require a replica set or a sharded cluster.
+ */
+public class MongoDbChangeStreamSource implements IMongoDbChangeSource {
+    private final MongoCollection<BsonDocument> _collection;
+    private final long _maxAwaitTime;
+    private MongoChangeStreamCursor<ChangeStreamDocument<BsonDocument>> _cursor;
+
+    /**
+     * Creates a new change source.
+     *
+     * @param collection   the collection to watch.
+     * @param maxAwaitTime maximum time in milliseconds to wait for new changes.
+     */
+    public MongoDbChangeStreamSource(MongoCollection<Document> collection, long maxAwaitTime) {
+        _collection = collection.withDocumentClass(BsonDocument.class);
+        _maxAwaitTime = maxAwaitTime;
+    }
+
+    @Override
+    public synchronized void open(BsonDocument resumeToken) {
+        if (_cursor != null)
+            return;
+
+        var stream = _collection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(_maxAwaitTime, TimeUnit.MILLISECONDS);
+
+        if (resumeToken != null)
+            stream = stream.resumeAfter(resumeToken);
+
+        _cursor = stream.cursor();
+    }
+
+    @Override
+    public synchronized MongoDbChangeEvent tryNext() {
+        if (_cursor == null)
+            throw new IllegalStateException("Change stream is not open");
+
+        var change = _cursor.tryNext();
+        if (change == null)
+            return null;
+
+        var key = change.getDocumentKey();
+        return new MongoDbChangeEvent(
+                change.getOperationType().getValue(),
+                key != null ? key.get("_id") : null,
+                change.getFullDocument(),
+                change.getResumeToken()
+        );
+    }
+
+    @Override
+    public synchronized BsonDocument getResumeToken() {
+        return _cursor != null ? _cursor.getResumeToken() : null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (_cursor != null) {
+            _cursor.close();
+            _cursor = null;
+        }
+    }
+}
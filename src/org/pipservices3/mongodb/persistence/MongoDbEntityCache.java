@@ -0,0 +1,257 @@
+package org.pipservices3.mongodb.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process LRU cache of data items by their ids with time-based expiration.
+ * <p>
+ * When the cache is full the least recently used item is evicted.
+ * Expired items are evicted when they are accessed. All operations are thread-safe.
+ * <p>
+ * Every put, remove and clear advances the cache generation. Items read from the database
+ * are added with {@link #putIfAbsent(Object, Object, long)} and the generation taken before
+ * the read, so a read that overlaps a write cannot put a stale item back into the cache.
+ *
+ * @param <K> the class type of item ids
+ * @param <T> the class type of data items
+ */
+public class MongoDbEntityCache<K, T> {
+
+    private static class CacheEntry<T> {
+        T value;
+        long expireTime;
+    }
+
+    private final Map<K, CacheEntry<T>> _entries;
+    private final int _maxSize;
+    private final long _timeout;
+    private long _hits;
+    private long _misses;
+    private long _evictions;
+    private long _generation;
+    private boolean _disabled;
+
+    /**
+     * Creates a new instance of the cache.
+     *
+     * @param maxSize maximum number of cached items.
+     * @param timeout time in milliseconds to keep items in the cache or 0 to keep them until evicted.
+     */
+    public MongoDbEntityCache(int maxSize, long timeout) {
+        _maxSize = Math.max(maxSize, 1);
+        _timeout = timeout;
+
+        // Access order makes the eldest entry the least recently used one
+        _entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<T>> eldest) {
+                if (size() <= _maxSize)
+                    return false;
+
+                _evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached item.
+     *
+     * @param id an id of the item.
+     * @return the cached item or null if it is not cached or expired.
+     */
+    public synchronized T get(K id) {
+        var entry = id != null && !_disabled ? _entries.get(id) : null;
+
+        if (entry == null) {
+            _misses++;
+            return null;
+        }
+
+        if (_timeout > 0 && entry.expireTime <= System.currentTimeMillis()) {
+            _entries.remove(id);
+            _evictions++;
+            _misses++;
+            return null;
+        }
+
+        _hits++;
+        return entry.value;
+    }
+
+    /**
+     * Gets the generation of the cache that is advanced by every change.
+     * Take it before reading an item from the database to add the item with
+     * {@link #putIfAbsent(Object, Object, long)}.
+     *
+     * @return the current generation.
+     */
+    public synchronized long getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Puts an item into the cache or removes it when the item is null.
+     *
+     * @param id    an id of the item.
+     * @param value the item to cache.
+     */
+    public synchronized void put(K id, T value) {
+        if (id == null)
+            return;
+
+        _generation++;
+
+        if (value == null) {
+            _entries.remove(id);
+            return;
+        }
+
+        putEntry(id, value);
+    }
+
+    /**
+     * Replaces an item only when it is already cached, or removes it when the item is null.
+     * Items that are not cached are not added, so changes to items nobody reads do not fill the cache.
+     *
+     * @param id    an id of the item.
+     * @param value the new version of the item.
+     * @return true if the cached item was replaced and false otherwise.
+     */
+    public synchronized boolean replace(K id, T value) {
+        if (id == null)
+            return false;
+
+        // Reads in progress may hold an older version
+        _generation++;
+
+        if (value == null) {
+            _entries.remove(id);
+            return false;
+        }
+
+        var entry = _entries.get(id);
+        if (entry == null)
+            return false;
+
+        entry.value = value;
+        entry.expireTime = System.currentTimeMillis() + _timeout;
+        return true;
+    }
+
+    /**
+     * Puts an item read from the database when the item is not cached
+     * and the cache has not changed since the read started.
+     *
+     * @param id         an id of the item.
+     * @param value      the item to cache.
+     * @param generation the generation taken before the item was read.
+     * @return true if the item was cached and false otherwise.
+     */
+    public synchronized boolean putIfAbsent(K id, T value, long generation) {
+        if (id == null || value == null)
+            return false;
+
+        // A write or invalidation may have happened after the item was read
+        if (generation != _generation || _entries.containsKey(id))
+            return false;
+
+        putEntry(id, value);
+        return true;
+    }
+
+    private void putEntry(K id, T value) {
+        if (_disabled)
+            return;
+
+        var entry = new CacheEntry<T>();
+        entry.value = value;
+        entry.expireTime = System.currentTimeMillis() + _timeout;
+        _entries.put(id, entry);
+    }
+
+    /**
+     * Removes an item from the cache.
+     *
+     * @param id an id of the item.
+     */
+    public synchronized void remove(K id) {
+        if (id == null)
+            return;
+
+        _generation++;
+        _entries.remove(id);
+    }
+
+    /**
+     * Removes all items from the cache.
+     */
+    public synchronized void clear() {
+        _generation++;
+        _entries.clear();
+    }
+
+    /**
+     * Removes all items and stops caching new ones.
+     * It is used when the cached items can no longer be kept coherent.
+     */
+    public synchronized void disable() {
+        _disabled = true;
+        clear();
+    }
+
+    /**
+     * Checks if the cache has been disabled.
+     *
+     * @return true if the cache is disabled and false otherwise.
+     */
+    public synchronized boolean isDisabled() {
+        return _disabled;
+    }
+
+    /**
+     * Gets the time to keep items in the cache.
+     *
+     * @return the timeout in milliseconds or 0 when items are kept until evicted.
+     */
+    public long getTimeout() {
+        return _timeout;
+    }
+
+    /**
+     * Gets the number of cached items.
+     *
+     * @return the number of cached items.
+     */
+    public synchronized int getSize() {
+        return _entries.size();
+    }
+
+    /**
+     * Gets the number of reads served from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized long getHits() {
+        return _hits;
+    }
+
+    /**
+     * Gets the number of reads not found in the cache.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return _misses;
+    }
+
+    /**
+     * Gets the number of items removed because the cache was full or they expired.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictions() {
+        return _evictions;
+    }
+}
@@ -1,10 +1,34 @@
 package org.pipservices3.mongodb.persistence;
 
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
 import org.bson.conversions.Bson;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Index definition for mondodb
+ * <p>
+ * ### Configuration parameters ###
+ * <p>
+ * Indexes can be defined in configuration by their names:
+ * <ul>
+ * <li>indexes.&lt;name&gt;.keys:                 index keys as JSON object or a comma-separated list like "key:1,created:-1"
+ * <li>indexes.&lt;name&gt;.unique:               (optional) true to create a unique index (default: false)
+ * <li>indexes.&lt;name&gt;.sparse:               (optional) true to skip documents without the indexed fields (default: false)
+ * <li>indexes.&lt;name&gt;.partial_filter:       (optional) JSON filter of documents to index
+ * <li>indexes.&lt;name&gt;.expire_after_seconds: (optional) time to live of documents in seconds
+ * <li>indexes.&lt;name&gt;.collation.locale:     (optional) collation locale
+ * <li>indexes.&lt;name&gt;.collation.strength:   (optional) collation strength from 1 to 5
+ * </ul>
  */
 public class MongoDbIndex {
     public MongoDbIndex() {
@@ -24,4 +48,70 @@ public class MongoDbIndex {
      * Index options
      */
     public IndexOptions options;
+
+    /**
+     * Creates index definitions from <code>indexes.*</code> configuration section.
+     *
+     * @param config configuration parameters with indexes section.
+     * @return the list of index definitions.
+     * @throws ConfigException when an index definition is invalid.
+     */
+    public static List<MongoDbIndex> manyFromConfig(ConfigParams config) throws ConfigException {
+        List<MongoDbIndex> result = new ArrayList<>();
+        var indexes = config.getSection("indexes");
+
+        for (var name : indexes.getSectionNames()) {
+            var index = indexes.getSection(name);
+            var options = new IndexOptions().name(name);
+
+            try {
+                options.unique(index.getAsBooleanWithDefault("unique", false));
+                options.sparse(index.getAsBooleanWithDefault("sparse", false));
+
+                var partialFilter = index.getAsNullableString("partial_filter");
+                if (partialFilter != null)
+                    options.partialFilterExpression(BsonDocument.parse(partialFilter));
+
+                var expireAfter = index.getAsNullableLong("expire_after_seconds");
+                if (expireAfter != null)
+                    options.expireAfter(expireAfter, TimeUnit.SECONDS);
+
+                var collation = index.getSection("collation");
+                var locale = collation.getAsNullableString("locale");
+                if (locale != null) {
+                    var builder = Collation.builder().locale(locale);
+                    var strength = collation.getAsNullableInteger("strength");
+                    if (strength != null)
+                        builder.collationStrength(CollationStrength.fromInt(strength));
+                    options.collation(builder.build());
+                }
+
+                result.add(new MongoDbIndex(parseKeys(index.getAsNullableString("keys")), options));
+            } catch (RuntimeException ex) {
+                throw (ConfigException) new ConfigException(null, "BAD_INDEX",
+                        "Index " + name + " is not valid: " + ex.getMessage()).withCause(ex);
+            }
+        }
+
+        return result;
+    }
+
+    private static BsonDocument parseKeys(String value) {
+        if (value == null || value.isBlank())
+            throw new IllegalArgumentException("keys are not set");
+
+        if (value.trim().startsWith("{"))
+            return BsonDocument.parse(value);
+
+        var keys = new BsonDocument();
+        for (var key : value.split(",")) {
+            var parts = key.trim().split(":");
+            var field = parts[0].trim();
+            var type = parts.length > 1 ? parts[1].trim() : "1";
+
+            // Special index types like text or 2dsphere are kept as strings
+            keys.append(field, type.matches("-?\\d+") ? new BsonInt32(Integer.parseInt(type)) : new BsonString(type));
+        }
+        return keys;
+    }
 }
@@ -0,0 +1,596 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.pipservices3.components.log.CompositeLogger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates indexes declared for a collection, skipping the ones that already exist.
+ * <p>
+ * Existing indexes are listed once. Indexes with the same keys and options are kept
+ * and all missing indexes are created in a single <code>createIndexes</code> call.
+ * Declared keys are compared in the form <code>listIndexes</code> returns them:
+ * text fields are replaced with <code>_fts</code> and <code>_ftsx</code> keys
+ * and compared through index weights.
+ * <p>
+ * An existing index with the same name or keys but a different definition cannot be
+ * created over. It is dropped and recreated only when recreation is enabled, otherwise
+ * it is kept with a warning and the declared index is skipped.
+ * Builds can run in a background thread, reporting progress through the logger.
+ * <p>
+ * The collection is accessed through {@link Target}, so the same manager serves
+ * the synchronous and the reactive streams drivers.
+ */
+class MongoDbIndexManager {
+    private static final long PROGRESS_INTERVAL = 10000;
+    private static final BsonString TEXT = new BsonString("text");
+
+    /**
+     * Blocking operations on the collection to create indexes in.
+     */
+    interface Target {
+        /**
+         * Gets the collection namespace.
+         *
+         * @return the namespace of the collection.
+         */
+        MongoNamespace getNamespace();
+
+        /**
+         * Lists existing indexes of the collection.
+         *
+         * @return the index definitions.
+         */
+        List<BsonDocument> listIndexes();
+
+        /**
+         * Creates indexes and waits until they are built.
+         *
+         * @param models the indexes to create.
+         */
+        void createIndexes(List<IndexModel> models);
+
+        /**
+         * Drops an index.
+         *
+         * @param name the index name.
+         */
+        void dropIndex(String name);
+
+        /**
+         * Runs a command on the admin database.
+         *
+         * @param command the command to run.
+         * @return the command result or null when the admin database is not available.
+         */
+        BsonDocument runAdminCommand(Document command);
+    }
+
+    /**
+     * Creates a target for a collection of the synchronous driver.
+     *
+     * @param collection the collection to create indexes in.
+     * @param adminDb    (optional) the admin database to report build progress.
+     * @return the index target.
+     */
+    static Target forCollection(MongoCollection<Document> collection, MongoDatabase adminDb) {
+        return new Target() {
+            @Override
+            public MongoNamespace getNamespace() {
+                return collection.getNamespace();
+            }
+
+            @Override
+            public List<BsonDocument> listIndexes() {
+                return collection.listIndexes(BsonDocument.class).into(new ArrayList<>());
+            }
+
+            @Override
+            public void createIndexes(List<IndexModel> models) {
+                collection.createIndexes(models);
+            }
+
+            @Override
+            public void dropIndex(String name) {
+                collection.dropIndex(name);
+            }
+
+            @Override
+            public BsonDocument runAdminCommand(Document command) {
+                return adminDb != null ? adminDb.runCommand(command, BsonDocument.class) : null;
+            }
+        };
+    }
+
+    /**
+     * Creates a target for a collection of the reactive streams driver.
+     * Operations block until their publishers complete.
+     *
+     * @param collection the collection to create indexes in.
+     * @param adminDb    (optional) the admin database to report build progress.
+     * @return the index target.
+     */
+    static Target forCollection(com.mongodb.reactivestreams.client.MongoCollection<Document> collection,
+                                com.mongodb.reactivestreams.client.MongoDatabase adminDb) {
+        return new Target() {
+            @Override
+            public MongoNamespace getNamespace() {
+                return collection.getNamespace();
+            }
+
+            @Override
+            public List<BsonDocument> listIndexes() {
+                return join(MongoDbPublishers.toList(collection.listIndexes(BsonDocument.class)));
+            }
+
+            @Override
+            public void createIndexes(List<IndexModel> models) {
+                join(MongoDbPublishers.toList(collection.createIndexes(models)));
+            }
+
+            @Override
+            public void dropIndex(String name) {
+                join(MongoDbPublishers.toVoid(collection.dropIndex(name)));
+            }
+
+            @Override
+            public BsonDocument runAdminCommand(Document command) {
+                return adminDb != null ? join(MongoDbPublishers.first(adminDb.runCommand(command, BsonDocument.class))) : null;
+            }
+        };
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            // Report driver errors the same way as the synchronous driver
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+    }
+
+    private final Target _target;
+    private final CodecRegistry _registry;
+    private final CompositeLogger _logger;
+    private final boolean _recreate;
+    private Thread _thread;
+
+    /**
+     * Creates a new instance of the index manager.
+     *
+     * @param target   the collection to create indexes in.
+     * @param registry the codec registry to convert index keys.
+     * @param logger   the logger to report progress.
+     * @param recreate true to drop and recreate changed indexes, false to keep them.
+     */
+    public MongoDbIndexManager(Target target, CodecRegistry registry, CompositeLogger logger, boolean recreate) {
+        _target = target;
+        _registry = registry;
+        _logger = logger;
+        _recreate = recreate;
+    }
+
+    /**
+     * Creates missing and changed indexes and waits until they are built.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param indexes       the declared indexes.
+     */
+    public void ensureIndexes(String correlationId, List<MongoDbIndex> indexes) {
+        createIndexes(correlationId, indexes, false);
+    }
+
+    private void createIndexes(String correlationId, List<MongoDbIndex> indexes, boolean background) {
+        var models = prepareIndexes(correlationId, indexes, background);
+        if (models.isEmpty())
+            return;
+
+        var names = models.stream().map(model -> model.getOptions().getName()).toList();
+        var collectionName = _target.getNamespace().getCollectionName();
+        this._logger.info(correlationId, "Creating indexes %s for collection %s", names, collectionName);
+
+        var startTime = System.currentTimeMillis();
+        _target.createIndexes(models);
+
+        this._logger.info(correlationId, "Created indexes %s for collection %s in %d ms",
+                names, collectionName, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Creates missing and changed indexes in a background thread.
+     * Failures are logged and do not affect the caller.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param indexes       the declared indexes.
+     * @param threadName    the name of the thread.
+     */
+    public synchronized void start(String correlationId, List<MongoDbIndex> indexes, String threadName) {
+        if (_thread != null)
+            return;
+
+        _thread = new Thread(() -> {
+            var monitor = startProgressMonitor(correlationId, threadName + "-progress");
+            try {
+                createIndexes(correlationId, indexes, true);
+            } catch (Exception ex) {
+                this._logger.error(correlationId, ex, "Failed to create indexes for collection %s",
+                        _target.getNamespace().getCollectionName());
+            } finally {
+                monitor.interrupt();
+            }
+        }, threadName);
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    /**
+     * Stops waiting for background index builds. Builds already sent to the server continue there.
+     */
+    public synchronized void stop() {
+        if (_thread != null) {
+            _thread.interrupt();
+            _thread = null;
+        }
+    }
+
+    /**
+     * Checks if a background index build is running.
+     *
+     * @return true if indexes are being created and false otherwise.
+     */
+    public synchronized boolean isRunning() {
+        return _thread != null && _thread.isAlive();
+    }
+
+    private Thread startProgressMonitor(String correlationId, String threadName) {
+        var thread = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(PROGRESS_INTERVAL);
+                    reportProgress(correlationId);
+                }
+            } catch (InterruptedException ex) {
+                // Build is finished
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void reportProgress(String correlationId) {
+        try {
+            var namespace = _target.getNamespace();
+            var result = _target.runAdminCommand(new Document("currentOp", true)
+                    .append("command.createIndexes", namespace.getCollectionName())
+                    .append("ns", namespace.getFullName()));
+            if (result == null)
+                return;
+
+            for (var op : result.getArray("inprog", new BsonArray())) {
+                var message = op.asDocument().getString("msg", new BsonString("in progress")).getValue();
+                this._logger.info(correlationId, "Building indexes for collection %s: %s",
+                        namespace.getCollectionName(), message);
+            }
+        } catch (Exception ex) {
+            // Progress is informational, currentOp may not be permitted
+            this._logger.debug(correlationId, "Failed to get index build progress: %s", ex.getMessage());
+        }
+    }
+
+    private static IndexOptions copyOptions(IndexOptions options) {
+        if (options == null)
+            return new IndexOptions();
+
+        return new IndexOptions()
+                .background(options.isBackground())
+                .unique(options.isUnique())
+                .name(options.getName())
+                .sparse(options.isSparse())
+                .expireAfter(options.getExpireAfter(TimeUnit.SECONDS), TimeUnit.SECONDS)
+                .version(options.getVersion())
+                .weights(options.getWeights())
+                .defaultLanguage(options.getDefaultLanguage())
+                .languageOverride(options.getLanguageOverride())
+                .textVersion(options.getTextVersion())
+                .sphereVersion(options.getSphereVersion())
+                .bits(options.getBits())
+                .min(options.getMin())
+                .max(options.getMax())
+                .bucketSize(options.getBucketSize())
+                .storageEngine(options.getStorageEngine())
+                .partialFilterExpression(options.getPartialFilterExpression())
+                .collation(options.getCollation())
+                .wildcardProjection(options.getWildcardProjection());
+    }
+
+    private List<IndexModel> prepareIndexes(String correlationId, List<MongoDbIndex> indexes, boolean background) {
+        List<BsonDocument> existing = new ArrayList<>(_target.listIndexes());
+
+        List<IndexModel> result = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+
+        for (var index : indexes) {
+            var keys = index.keys.toBsonDocument(BsonDocument.class, _registry);
+            // Declared options are shared with the component and reused on every opening
+            var options = copyOptions(index.options);
+            var name = options.getName() != null ? options.getName() : getIndexName(keys);
+
+            // Schema may be defined more than once
+            if (!names.add(name))
+                continue;
+            var definition = getDefinition(keys, options, _registry);
+
+            var found = false;
+            BsonDocument conflict = null;
+            for (var current : existing) {
+                if (isSameIndex(current, definition)) {
+                    found = true;
+                    break;
+                }
+
+                // The same name or keys with different options cannot be created over the existing index
+                if (name.equals(current.getString("name", new BsonString("")).getValue())
+                        || equalKeys(current.getDocument("key", new BsonDocument()), definition.getDocument("key")))
+                    conflict = current;
+            }
+
+            if (!found && conflict != null) {
+                var currentName = conflict.getString("name", new BsonString("")).getValue();
+                var collectionName = _target.getNamespace().getCollectionName();
+
+                if (!_recreate) {
+                    this._logger.warn(correlationId, "Index %s for collection %s differs from existing index %s "
+                            + "and will not be created, enable options.recreate_indexes to recreate it",
+                            name, collectionName, currentName);
+                    continue;
+                }
+
+                this._logger.warn(correlationId, "Index %s for collection %s differs from existing index %s "
+                        + "and will be recreated", name, collectionName, currentName);
+                _target.dropIndex(currentName);
+                existing.remove(conflict);
+            }
+
+            if (!found) {
+                // Older servers lock the database during foreground builds
+                if (background)
+                    options.background(true);
+                result.add(new IndexModel(keys, options.name(name)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Composes the default index name the server gives to an index with the keys.
+     *
+     * @param keys the index keys.
+     * @return the index name.
+     */
+    static String getIndexName(BsonDocument keys) {
+        var name = new StringBuilder();
+        for (var entry : keys.entrySet()) {
+            if (name.length() > 0)
+                name.append('_');
+
+            var value = entry.getValue();
+            name.append(entry.getKey()).append('_');
+            name.append(value.isNumber()
+                    ? String.valueOf(value.asNumber().intValue())
+                    : value.asString().getValue().replace(' ', '_'));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Composes an index definition comparable with the output of <code>listIndexes</code>.
+     *
+     * @param keys     the index keys.
+     * @param options  the index options.
+     * @param registry the codec registry to convert the partial filter.
+     * @return the index definition.
+     */
+    static BsonDocument getDefinition(BsonDocument keys, IndexOptions options, CodecRegistry registry) {
+        var result = new BsonDocument("key", normalizeKeys(keys));
+
+        var weights = getTextWeights(keys, options, registry);
+        if (!weights.isEmpty())
+            result.append("weights", weights);
+        if (options.getDefaultLanguage() != null)
+            result.append("default_language", new BsonString(options.getDefaultLanguage()));
+        if (options.getLanguageOverride() != null)
+            result.append("language_override", new BsonString(options.getLanguageOverride()));
+
+        if (options.isUnique())
+            result.append("unique", BsonBoolean.TRUE);
+        if (options.isSparse())
+            result.append("sparse", BsonBoolean.TRUE);
+
+        var expireAfter = options.getExpireAfter(TimeUnit.SECONDS);
+        if (expireAfter != null)
+            result.append("expireAfterSeconds", new BsonInt64(expireAfter));
+
+        if (options.getPartialFilterExpression() != null) {
+            result.append("partialFilterExpression",
+                    options.getPartialFilterExpression().toBsonDocument(BsonDocument.class, registry));
+        }
+
+        if (options.getCollation() != null)
+            result.append("collation", options.getCollation().asDocument());
+
+        return result;
+    }
+
+    /**
+     * Converts declared keys into the form returned by <code>listIndexes</code>.
+     * Text fields are replaced in place by a pair of <code>_fts: 'text'</code> and <code>_ftsx: 1</code> keys,
+     * wildcard keys are always ascending.
+     *
+     * @param keys the declared index keys.
+     * @return the normalized keys.
+     */
+    static BsonDocument normalizeKeys(BsonDocument keys) {
+        var result = new BsonDocument();
+        for (var entry : keys.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+
+            if (TEXT.equals(value)) {
+                if (!result.containsKey("_fts")) {
+                    result.put("_fts", TEXT);
+                    result.put("_ftsx", new BsonInt32(1));
+                }
+            } else if (key.equals("$**") || key.endsWith(".$**")) {
+                result.put(key, new BsonInt32(1));
+            } else {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private static BsonDocument getTextWeights(BsonDocument keys, IndexOptions options, CodecRegistry registry) {
+        var result = new BsonDocument();
+        for (var entry : keys.entrySet()) {
+            if (TEXT.equals(entry.getValue()))
+                result.put(entry.getKey(), new BsonInt32(1));
+        }
+
+        // Explicit weights may also add fields that are not in the keys
+        if (!result.isEmpty() && options.getWeights() != null)
+            result.putAll(options.getWeights().toBsonDocument(BsonDocument.class, registry));
+
+        return result;
+    }
+
+    /**
+     * Checks if an existing index matches a definition.
+     * Collation is compared by the fields set in the definition because the server fills in the defaults.
+     *
+     * @param current    the index from <code>listIndexes</code>.
+     * @param definition the index definition.
+     * @return true if the index matches and false otherwise.
+     */
+    static boolean isSameIndex(BsonDocument current, BsonDocument definition) {
+        if (!equalKeys(current.getDocument("key", new BsonDocument()), definition.getDocument("key")))
+            return false;
+
+        if (current.getBoolean("unique", BsonBoolean.FALSE).getValue()
+                != definition.getBoolean("unique", BsonBoolean.FALSE).getValue())
+            return false;
+        if (current.getBoolean("sparse", BsonBoolean.FALSE).getValue()
+                != definition.getBoolean("sparse", BsonBoolean.FALSE).getValue())
+            return false;
+
+        if (!equalNumbers(current.get("expireAfterSeconds"), definition.get("expireAfterSeconds")))
+            return false;
+
+        if (!equalValues(current.get("partialFilterExpression"), definition.get("partialFilterExpression")))
+            return false;
+
+        // Text options are compared when declared, the server fills in the defaults
+        if (definition.containsKey("weights")
+                && !equalWeights(current.getDocument("weights", new BsonDocument()), definition.getDocument("weights")))
+            return false;
+        if (definition.containsKey("default_language")
+                && !equalValues(current.get("default_language"), definition.get("default_language")))
+            return false;
+        if (definition.containsKey("language_override")
+                && !equalValues(current.get("language_override"), definition.get("language_override")))
+            return false;
+
+        return equalCollations(current.getDocument("collation", null), definition.getDocument("collation", null));
+    }
+
+    private static boolean equalCollations(BsonDocument current, BsonDocument collation) {
+        if (collation == null || current == null)
+            return collation == current;
+
+        for (var entry : collation.entrySet()) {
+            var value = entry.getValue();
+            var currentValue = current.get(entry.getKey());
+            var same = value.isNumber() ? equalNumbers(currentValue, value) : equalValues(currentValue, value);
+            if (!same)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if index keys are the same, comparing them in order.
+     *
+     * @param current the keys of an existing or normalized index.
+     * @param keys    the normalized keys to compare with.
+     * @return true if the keys are the same and false otherwise.
+     */
+    static boolean equalKeys(BsonDocument current, BsonDocument keys) {
+        if (current.size() != keys.size())
+            return false;
+
+        // Key order matters for compound indexes, numeric types may differ
+        var currentEntries = new ArrayList<>(current.entrySet());
+        var entries = new ArrayList<>(keys.entrySet());
+        for (var index = 0; index < entries.size(); index++) {
+            if (!currentEntries.get(index).getKey().equals(entries.get(index).getKey()))
+                return false;
+
+            var currentValue = currentEntries.get(index).getValue();
+            var value = entries.get(index).getValue();
+            var same = currentValue.isNumber() && value.isNumber()
+                    ? equalNumbers(currentValue, value)
+                    : currentValue.equals(value);
+            if (!same)
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean equalWeights(BsonDocument current, BsonDocument weights) {
+        if (!current.keySet().equals(weights.keySet()))
+            return false;
+
+        for (var entry : weights.entrySet()) {
+            if (!equalNumbers(current.get(entry.getKey()), entry.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean equalNumbers(BsonValue current, BsonValue value) {
+        if (current == null || value == null)
+            return current == value;
+        if (!current.isNumber() || !value.isNumber())
+            return current.equals(value);
+        return current.asNumber().doubleValue() == value.asNumber().doubleValue();
+    }
+
+    private static boolean equalValues(BsonValue current, BsonValue value) {
+        if (current == null || value == null)
+            return current == value;
+        return current.equals(value);
+    }
+}
@@ -0,0 +1,182 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Helper to compose sort orders, range filters and continuation tokens for keyset paging.
+ * <p>
+ * Sort keys are always completed with <code>_id</code> to make the order unique.
+ * Values of each sort key must have one BSON type, because range comparisons only match values
+ * of the same type. Null and missing values are supported and sorted before all other values.
+ * Sort keys must be included in the projection.
+ * <p>
+ * Continuation tokens come from clients, so they are validated: a token must hold the names of the sort keys
+ * and one scalar value per key. Token values are only used as operands of comparison operators.
+ */
+class MongoDbKeyset {
+    private final List<String> _keys = new ArrayList<>();
+    private final List<Integer> _directions = new ArrayList<>();
+
+    /**
+     * Creates keyset for a sort order.
+     *
+     * @param sort     (optional) sorting JSON object with ascending (1) and descending (-1) keys.
+     * @param registry the codec registry to convert the sorting object.
+     */
+    public MongoDbKeyset(Bson sort, CodecRegistry registry) {
+        var direction = 1;
+
+        if (sort != null) {
+            for (var entry : sort.toBsonDocument(BsonDocument.class, registry).entrySet()) {
+                if (!entry.getValue().isNumber())
+                    throw new IllegalArgumentException("Keyset paging does not support sort by " + entry.getKey());
+
+                direction = entry.getValue().asNumber().intValue() < 0 ? -1 : 1;
+                _keys.add(entry.getKey());
+                _directions.add(direction);
+            }
+        }
+
+        if (!_keys.contains("_id")) {
+            _keys.add("_id");
+            _directions.add(direction);
+        }
+    }
+
+    /**
+     * Gets the sort order including <code>_id</code>.
+     *
+     * @return the sorting JSON object.
+     */
+    public Bson getSort() {
+        var sort = new BsonDocument();
+        for (var index = 0; index < _keys.size(); index++)
+            sort.append(_keys.get(index), new BsonInt32(_directions.get(index)));
+        return sort;
+    }
+
+    /**
+     * Composes a filter that selects items placed after the item the token was taken from.
+     *
+     * @param token the continuation token.
+     * @return the range filter.
+     */
+    public Bson getFilter(String token) {
+        var values = decodeToken(token);
+
+        // (k1 after v1) or (k1 = v1 and k2 after v2) or ...
+        List<Document> clauses = new ArrayList<>();
+        for (var index = 0; index < _keys.size(); index++) {
+            var after = getAfterCondition(_keys.get(index), _directions.get(index), values.get(index));
+            if (after == null)
+                continue;
+
+            var clause = new Document();
+            for (var prev = 0; prev < index; prev++)
+                clause.append(_keys.get(prev), new Document("$eq", values.get(prev)));
+            clause.putAll(after);
+            clauses.add(clause);
+        }
+
+        return new Document("$or", clauses);
+    }
+
+    private static Document getAfterCondition(String key, int direction, BsonValue value) {
+        // Null and missing values are sorted before all other values in ascending order
+        if (value.isNull())
+            return direction > 0 ? new Document(key, new Document("$ne", null)) : null;
+
+        // Ids are never null
+        if (direction > 0 || key.equals("_id"))
+            return new Document(key, new Document(direction > 0 ? "$gt" : "$lt", value));
+
+        return new Document("$or", List.of(
+                new Document(key, new Document("$lt", value)),
+                new Document(key, new Document("$eq", null))
+        ));
+    }
+
+    /**
+     * Composes a continuation token from sort key values of a document.
+     *
+     * @param document the last document on a page.
+     * @return the continuation token.
+     */
+    public String getToken(BsonDocument document) {
+        var keys = new BsonArray();
+        var values = new BsonArray();
+        for (var key : _keys) {
+            keys.add(new BsonString(key));
+            values.add(getValue(document, key));
+        }
+
+        var buffer = new BasicOutputBuffer();
+        new BsonDocumentCodec().encode(new BsonBinaryWriter(buffer),
+                new BsonDocument("s", keys).append("k", values), EncoderContext.builder().build());
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+    }
+
+    private List<BsonValue> decodeToken(String token) {
+        List<BsonValue> keys;
+        List<BsonValue> values;
+
+        try {
+            var document = new RawBsonDocument(Base64.getUrlDecoder().decode(token));
+            keys = document.getArray("s").getValues();
+            values = document.getArray("k").getValues();
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid continuation token", ex);
+        }
+
+        if (keys.size() != _keys.size() || values.size() != _keys.size())
+            throw new IllegalArgumentException("Continuation token does not match the sort order");
+
+        for (var index = 0; index < _keys.size(); index++) {
+            var key = keys.get(index);
+            if (!key.isString() || !key.asString().getValue().equals(_keys.get(index)))
+                throw new IllegalArgumentException("Continuation token does not match the sort order");
+
+            var value = values.get(index);
+            if (!isKeyValue(value) || (value.isNull() && _keys.get(index).equals("_id")))
+                throw new IllegalArgumentException("Continuation token has invalid value of " + _keys.get(index));
+        }
+
+        return values;
+    }
+
+    private static boolean isKeyValue(BsonValue value) {
+        // Sort keys hold scalar values, documents and arrays are rejected
+        return switch (value.getBsonType()) {
+            case NULL, INT32, INT64, DOUBLE, DECIMAL128, STRING, BOOLEAN, OBJECT_ID, DATE_TIME, TIMESTAMP -> true;
+            default -> false;
+        };
+    }
+
+    private static BsonValue getValue(BsonDocument document, String key) {
+        BsonValue value = document;
+        for (var part : key.split("\\.")) {
+            if (value == null || !value.isDocument())
+                return BsonNull.VALUE;
+            value = value.asDocument().get(part);
+        }
+        return value != null ? value : BsonNull.VALUE;
+    }
+}
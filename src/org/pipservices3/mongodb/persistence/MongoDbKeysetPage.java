@@ -0,0 +1,35 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.pipservices3.commons.data.DataPage;
+
+import java.util.List;
+
+/**
+ * Data page retrieved with keyset (seek) paging.
+ * <p>
+ * The continuation token holds the sort key values of the last item on the page.
+ * It shall be passed back to retrieve the next page, and it is null on the last page.
+ *
+ * @param <T> the class type of data items
+ */
+public class MongoDbKeysetPage<T> extends DataPage<T> {
+    private String _continuationToken;
+
+    public MongoDbKeysetPage() {
+    }
+
+    public MongoDbKeysetPage(List<T> data, Long total, String continuationToken) {
+        super(data, total);
+        _continuationToken = continuationToken;
+    }
+
+    @JsonProperty("continuation_token")
+    public String getContinuationToken() {
+        return _continuationToken;
+    }
+
+    public void setContinuationToken(String value) {
+        _continuationToken = value;
+    }
+}
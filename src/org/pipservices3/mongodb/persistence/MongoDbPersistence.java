@@ -1,17 +1,37 @@
 package org.pipservices3.mongodb.persistence;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Facet;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import org.pipservices3.commons.config.ConfigParams;
 import org.pipservices3.commons.config.IConfigurable;
-import org.pipservices3.commons.convert.JsonConverter;
 import org.pipservices3.commons.data.DataPage;
+import org.pipservices3.commons.data.IIdentifiable;
 import org.pipservices3.commons.data.PagingParams;
 import org.pipservices3.commons.errors.ApplicationException;
 import org.pipservices3.commons.errors.ConfigException;
@@ -21,11 +41,34 @@ import org.pipservices3.commons.refer.*;
 import org.pipservices3.commons.run.ICleanable;
 import org.pipservices3.commons.run.IOpenable;
 import org.pipservices3.components.log.CompositeLogger;
+import org.pipservices3.mongodb.codecs.JacksonEntityCodec;
+import org.pipservices3.mongodb.connect.MongoDbConcerns;
 import org.pipservices3.mongodb.connect.MongoDbConnection;
 
-import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Abstract persistence component that stores data in MongoDB.
@@ -35,6 +78,13 @@ import java.util.List;
  * over the data items must be implemented in child classes by
  * accessing <code>this._collection</code> or <code>this._model</code> properties.
  * <p>
+ * Built-in operations read and write data items through <code>this._entityCollection</code>
+ * that streams them between BSON and Jackson mapping without intermediate
+ * JSON strings or documents. The <code>id</code> property is stored as <code>_id</code>.
+ * When <code>options.pojo_codec</code> is set, data items are encoded and decoded by the driver POJO codecs
+ * registered in {@link MongoDbConnection} instead. The selected codec also converts values
+ * in {@link #convertFromPublic} and copies data items, so reads and writes use the same mapping.
+ * <p>
  * ### Configuration parameters ###
  * <ul>
  * <li>collection:                  (optional) MongoDB collection name
@@ -51,22 +101,78 @@ import java.util.List;
  *   <li>username:                  (optional) user name
  *   <li>password:                  (optional) user password
  *   </ul>
+ * <li>indexes:
+ *   <ul>
+ *   <li>&lt;name&gt;.keys:                 index keys as JSON object or a comma-separated list like "key:1,created:-1"
+ *   <li>&lt;name&gt;.unique:               (optional) true to create a unique index (default: false)
+ *   <li>&lt;name&gt;.sparse:               (optional) true to skip documents without the indexed fields (default: false)
+ *   <li>&lt;name&gt;.partial_filter:       (optional) JSON filter of documents to index
+ *   <li>&lt;name&gt;.expire_after_seconds: (optional) time to live of documents in seconds
+ *   <li>&lt;name&gt;.collation.locale:     (optional) collation locale
+ *   <li>&lt;name&gt;.collation.strength:   (optional) collation strength from 1 to 5
+ *   </ul>
+ *   Configured indexes are created together with the ones defined by <code>ensureIndex</code>
+ *   and replace them when names match. Indexes with the same keys under different names
+ *   cannot coexist and are reported as configuration errors.
  * <li>options:
  *   <ul>
- *   <li>max_pool_size:             (optional) maximum connection pool size (default: 2)
+ *   <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ *   <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ *   <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ *   <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ *   <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ *   <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
  *   <li>keep_alive:                (optional) enable connection keep alive (default: true)
  *   <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5 sec)
  *   <li>auto_reconnect:            (optional) enable auto reconnection (default: true)
  *   <li>max_page_size:             (optional) maximum page size (default: 100)
+ *   <li>pojo_codec:                (optional) decode data items with driver POJO codecs instead of Jackson mapping (default: false)
+ *   <li>write_behind:              (optional) buffer writes in memory and send them in bulk from a background thread (default: false),
+ *                                  writes are attempted at most once and failures are reported by flush and close
+ *   <li>write_buffer_size:         (optional) maximum number of buffered writes, callers block when it is reached (default: 10000)
+ *   <li>write_batch_size:          (optional) number of buffered writes that triggers a flush (default: 1000)
+ *   <li>write_interval:            (optional) interval in milliseconds to flush buffered writes (default: 1000)
+ *   <li>total_mode:                (optional) how page totals are calculated (default: count):
+ *     <ul>
+ *     <li>count - exact count executed concurrently with the page query
+ *     <li>facet - page and exact count retrieved in one $facet aggregation, falls back to count when not supported.
+ *         Items are sorted before $facet, so the sort can use an index
+ *     <li>estimate - fast estimate of the whole collection size from its metadata that ignores the filter
+ *     </ul>
+ *   <li>total_cache_timeout:       (optional) time in milliseconds to reuse totals for the same filter, 0 to disable (default: 0)
+ *   <li>count_max_concurrency:     (optional) maximum number of totals counted concurrently with page queries, further totals
+ *                                  and all totals when set to 0 are counted in the calling thread (default: 4)
+ *   <li>async_max_concurrency:     (optional) maximum number of concurrently executed async calls (default: max_pool_size)
+ *   <li>read_preference:           (optional) default read preference of the collection: primary, primary_preferred, secondary, secondary_preferred or nearest
+ *   <li>read_concern:              (optional) default read concern of the collection: local, available, majority, linearizable or snapshot
+ *   <li>write_concern:             (optional) default write concern of the collection: number of members, acknowledged, unacknowledged, journaled or majority
+ *   <li>write_concern.w:           (optional) number of members or majority to acknowledge writes, 0 for unacknowledged writes
+ *   <li>write_concern.j:           (optional) wait until writes are journaled
+ *   <li>write_concern.wtimeout:    (optional) time limit in milliseconds to wait for acknowledgement
+ *   <li>background_indexes:        (optional) create missing indexes in background after the component is opened (default: false)
+ *   <li>recreate_indexes:          (optional) drop and recreate existing indexes that differ from declared ones with the same name or keys,
+ *                                  otherwise they are kept and a warning is logged (default: false)
+ *   <li>slow_query_threshold:      (optional) duration in milliseconds to log find, count and findOneAnd* operations as slow, 0 to disable (default: 0)
+ *   <li>slow_query_explain:        (optional) explain slow queries once per filter shape and report collection scans (default: false)
  *   <li>debug:                     (optional) enable debug output (default: false).
+ *   <li>monitoring:                (optional) report pool, command and network metrics to counters (default: true)
+ *   <li>share_client:              (optional) share one client between local connections with the same URI and options (default: true)
+ *   <li>compressors:               (optional) comma-separated wire compressors in the order of preference: zlib, snappy or zstd
+ *   <li>compression_level:         (optional) compression level for zlib (-1 to 9) and zstd (1 to 22)
  *   </ul>
  * </ul>
  * <p>
+ * With unacknowledged writes (w:0) the server returns no results, so bulk writes report
+ * items as inserted or applied without confirmation.
+ * <p>
  * ### References ###
  * <ul>
  * <li>*:logger:*:*:1.0           (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/log/ILogger.html">ILogger</a> components to pass log messages
  * <li>*:discovery:*:*:1.0        (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a> services
  * <li>*:credential-store:*:*:1.0 (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0         (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/count/ICounters.html">ICounters</a> components to pass collected measurements
  * </ul>
  * <p>
  * ### Example ###
@@ -120,19 +226,61 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
             // connections.*
             // credential.*
 
-            "options.max_pool_size", 2,
+            "options.max_pool_size", 100,
             "options.keep_alive", 1,
             "options.connect_timeout", 5000,
             "options.auto_reconnect", true,
             "options.max_page_size", 100,
-            "options.debug", true
+            "options.pojo_codec", false,
+            "options.write_behind", false,
+            "options.write_buffer_size", 10000,
+            "options.write_batch_size", 1000,
+            "options.write_interval", 1000,
+            "options.total_mode", "count",
+            "options.total_cache_timeout", 0,
+            "options.count_max_concurrency", 4,
+            "options.async_max_concurrency", null,
+            "options.read_preference", null,
+            "options.read_concern", null,
+            "options.write_concern", null,
+            "options.slow_query_threshold", 0,
+            "options.background_indexes", false,
+            "options.recreate_indexes", false,
+            "options.slow_query_explain", false,
+            "options.debug", false
     );
 
     private ConfigParams _config;
     private IReferences _references;
     private boolean _opened;
     private boolean _localConnection;
-    private List<MongoDbIndex> _indexes = new ArrayList<>();
+    private final MongoDbPersistenceSupport<T> _support;
+    private int _maxWriteBatchSize;
+
+    private static final int DEFAULT_MAX_WRITE_BATCH_SIZE = 100000;
+    private static final int MAX_CACHED_TOTALS = 1000;
+
+    private final Map<String, CachedTotal> _cachedTotals = new ConcurrentHashMap<>();
+
+    private static final long ASYNC_SHUTDOWN_TIMEOUT = 30000;
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = getVirtualThreadExecutorFactory();
+
+    private ExecutorService _asyncExecutor;
+    private Semaphore _asyncLimit;
+    private static final long COUNT_IDLE_TIMEOUT = 60000;
+    private static final int UNRECOGNIZED_STAGE_ERROR = 40324;
+
+    private ExecutorService _countExecutor;
+    private volatile boolean _facetSupported = true;
+    private MongoDbSlowQueryDetector _slowQueryDetector;
+    private static final int MAX_COLLECTION_VIEWS = 16;
+    private final Map<ReadPreference, MongoCollection<Document>> _collectionViews = new ConcurrentHashMap<>();
+    private final Map<ReadPreference, MongoCollection<T>> _entityCollectionViews = new ConcurrentHashMap<>();
+
+    private static class CachedTotal {
+        long total;
+        long expireTime;
+    }
 
     /**
      * The dependency resolver.
@@ -174,8 +322,103 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      */
     protected MongoCollection<Document> _collection;
 
+    /**
+     * The MongoDB collection object that decodes documents directly into data items.
+     */
+    protected MongoCollection<T> _entityCollection;
+
+    /**
+     * The codec to convert data items to and from BSON.
+     */
+    protected Codec<T> _codec;
+
     protected long _maxPageSize = 100;
 
+    /**
+     * Flag to decode data items with the driver POJO codecs instead of Jackson mapping
+     */
+    protected boolean _pojoCodec = false;
+
+    /**
+     * Flag to buffer writes and send them in bulk from a background thread
+     */
+    protected boolean _writeBehind = false;
+
+    /**
+     * Maximum number of buffered writes, callers block when it is reached
+     */
+    protected int _writeBufferSize = 10000;
+
+    /**
+     * Number of buffered writes that triggers a flush
+     */
+    protected int _writeBatchSize = 1000;
+
+    /**
+     * Interval in milliseconds to flush buffered writes
+     */
+    protected long _writeInterval = 1000;
+
+    /**
+     * Mode to calculate page totals: count, facet or estimate
+     */
+    protected String _totalMode = "count";
+
+    /**
+     * Time in milliseconds to reuse totals for the same filter
+     */
+    protected long _totalCacheTimeout = 0;
+
+    /**
+     * Maximum number of totals counted concurrently with page queries, 0 to count in the calling thread
+     */
+    protected int _countMaxConcurrency = 4;
+
+    /**
+     * Maximum number of concurrently executed async calls
+     */
+    protected int _asyncMaxConcurrency = 2;
+
+    /**
+     * The duration in milliseconds to consider operations slow, 0 to disable detection.
+     */
+    protected long _slowQueryThreshold = 0;
+
+    /**
+     * The flag to explain slow queries and report collection scans.
+     */
+    protected boolean _slowQueryExplain = false;
+
+    /**
+     * The flag to create indexes in background after the component is opened.
+     */
+    protected boolean _backgroundIndexes = false;
+
+    /**
+     * The flag to drop and recreate existing indexes that differ from declared ones.
+     */
+    protected boolean _recreateIndexes = false;
+
+    /**
+     * The default read preference of the collection or null to use the connection default.
+     */
+    protected ReadPreference _readPreference;
+
+    /**
+     * The default read concern of the collection or null to use the connection default.
+     */
+    protected ReadConcern _readConcern;
+
+    /**
+     * The default write concern of the collection or null to use the connection default.
+     */
+    protected WriteConcern _writeConcern;
+
+    /**
+     * The buffer of pending writes when write-behind is enabled.
+     */
+    protected MongoDbWriteBuffer<T> _writeBuffer;
+
     /**
      * The default class to cast any documents returned from the database into
      */
@@ -195,6 +438,9 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
 
         _collectionName = collectionName;
         _documentClass = documentClass;
+        _support = new MongoDbPersistenceSupport<>(documentClass, () -> this._codec, () -> this._pojoCodec,
+                this::getCodecRegistry);
+        _codec = createCodec();
     }
 
     /**
@@ -211,6 +457,29 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
 
         this._collectionName = config.getAsStringWithDefault("collection", this._collectionName);
         this._maxPageSize = config.getAsLongWithDefault("options.max_page_size", this._maxPageSize);
+        this._pojoCodec = config.getAsBooleanWithDefault("options.pojo_codec", this._pojoCodec);
+        this._writeBehind = config.getAsBooleanWithDefault("options.write_behind", this._writeBehind);
+        this._writeBufferSize = config.getAsIntegerWithDefault("options.write_buffer_size", this._writeBufferSize);
+        this._writeBatchSize = config.getAsIntegerWithDefault("options.write_batch_size", this._writeBatchSize);
+        this._writeInterval = config.getAsLongWithDefault("options.write_interval", this._writeInterval);
+        this._totalMode = config.getAsStringWithDefault("options.total_mode", this._totalMode);
+        this._totalCacheTimeout = config.getAsLongWithDefault("options.total_cache_timeout", this._totalCacheTimeout);
+        this._countMaxConcurrency = config.getAsIntegerWithDefault("options.count_max_concurrency", this._countMaxConcurrency);
+        this._asyncMaxConcurrency = config.getAsIntegerWithDefault("options.async_max_concurrency",
+                config.getAsIntegerWithDefault("options.max_pool_size", this._asyncMaxConcurrency));
+        this._slowQueryThreshold = config.getAsLongWithDefault("options.slow_query_threshold", this._slowQueryThreshold);
+        this._slowQueryExplain = config.getAsBooleanWithDefault("options.slow_query_explain", this._slowQueryExplain);
+        this._backgroundIndexes = config.getAsBooleanWithDefault("options.background_indexes", this._backgroundIndexes);
+        this._recreateIndexes = config.getAsBooleanWithDefault("options.recreate_indexes", this._recreateIndexes);
+        this._readPreference = MongoDbConcerns.parseReadPreference(null, config.getAsNullableString("options.read_preference"));
+        this._readConcern = MongoDbConcerns.parseReadConcern(null, config.getAsNullableString("options.read_concern"));
+        this._writeConcern = MongoDbConcerns.parseWriteConcern(null, config.getAsNullableString("options.write_concern"),
+                config.getSection("options.write_concern"));
+
+        if (!List.of("count", "facet", "estimate").contains(this._totalMode))
+            throw new ConfigException(null, "BAD_TOTAL_MODE", "Total mode " + this._totalMode + " is not supported");
+
+        this._support.configure(config, this._collectionName);
     }
 
     /**
@@ -279,6 +548,68 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         }
     }
 
+    /**
+     * Checks if the server acknowledges writes to the collection.
+     * Writes that are not acknowledged return no results.
+     *
+     * @return true if writes are acknowledged and false otherwise.
+     */
+    protected boolean isWriteAcknowledged() {
+        return this._collection == null || this._collection.getWriteConcern().isAcknowledged();
+    }
+
+    /**
+     * Gets the collection with the read preference from query options.
+     * Collection views are cached per read preference.
+     *
+     * @param options (optional) query options
+     * @return the collection to read documents from.
+     */
+    protected MongoCollection<Document> getCollectionView(MongoDbQueryOptions options) {
+        return getView(this._collection, this._collectionViews, options);
+    }
+
+    /**
+     * Gets the entity collection with the read preference from query options.
+     * Collection views are cached per read preference.
+     *
+     * @param options (optional) query options
+     * @return the collection to read data items from.
+     */
+    protected MongoCollection<T> getEntityCollectionView(MongoDbQueryOptions options) {
+        return getView(this._entityCollection, this._entityCollectionViews, options);
+    }
+
+    private static <R> MongoCollection<R> getView(MongoCollection<R> collection,
+                                                  Map<ReadPreference, MongoCollection<R>> views,
+                                                  MongoDbQueryOptions options) {
+        var readPreference = options != null ? options.getReadPreference() : null;
+        if (readPreference == null || collection == null || readPreference.equals(collection.getReadPreference()))
+            return collection;
+
+        // Tagged read preferences may vary, so keep the number of views bounded
+        if (views.size() >= MAX_COLLECTION_VIEWS)
+            views.clear();
+
+        return views.computeIfAbsent(readPreference, collection::withReadPreference);
+    }
+
+    /**
+     * Logs the operation when it has been running longer than the slow query threshold.
+     * Child classes can call this method after their own queries.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param operation     the name of the operation, like find or countDocuments.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param startTime     the operation start time taken from {@link System#nanoTime()}.
+     */
+    protected void checkSlowOperation(String correlationId, String operation, Bson filter, Bson sort, long startTime) {
+        var detector = this._slowQueryDetector;
+        if (detector != null)
+            detector.check(correlationId, operation, filter, sort, startTime);
+    }
+
     /**
      * Adds index definition to create it on opening
      *
@@ -286,15 +617,14 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      * @param options index options
      */
     protected void ensureIndex(Bson keys, IndexOptions options) {
-        if (keys == null) return;
-        this._indexes.add(new MongoDbIndex(keys, options));
+        this._support.ensureIndex(keys, options);
     }
 
     /**
      * Clears all auto-created objects
      */
     protected void clearSchema() {
-        this._indexes = new ArrayList<>();
+        this._support.clearSchema();
     }
 
     /**
@@ -304,53 +634,54 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         // Todo: override in child classes
     }
 
+    /**
+     * Creates a codec that converts data items to and from BSON.
+     * Override this method to customize mapping of data items.
+     *
+     * @return the data item codec.
+     */
+    protected Codec<T> createCodec() {
+        return new JacksonEntityCodec<>(_documentClass);
+    }
+
+    private CodecRegistry getCodecRegistry() {
+        return this._collection != null ? this._collection.getCodecRegistry() : MongoClient.getDefaultCodecRegistry();
+    }
+
     /**
      * Converts object value from internal to public format.
+     * <p>
+     * Built-in operations decode data items with the codec directly.
+     * This method is used to convert documents retrieved by custom queries.
      *
      * @param value an object in internal format to convert.
      * @return converted object in public format.
      */
     protected T convertToPublic(Document value) {
-        try {
-            if (value == null || value.isEmpty()) return null;
-            if (value.containsKey("_id")) {
-                value.put("id", value.get("_id"));
-                value.remove("_id");
-            }
-
-            return JsonConverter.fromJson(_documentClass, value.toJson());
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
-        }
+        return this._support.convertToPublic(value);
     }
 
     /**
      * Convert object value from public to internal format.
+     * <p>
+     * Built-in operations encode data items with the codec directly.
+     * This method is used to compose documents for custom and partial updates.
      *
      * @param value an object in public format to convert.
      * @return converted object in internal format.
      */
     protected Document convertFromPublic(Object value) {
-        var mongoDoc = new Document();
-
-        if (value != null) {
-            String json;
-
-            try {
-                json = JsonConverter.toJson(value);
-            } catch (JsonProcessingException ex) {
-                throw new RuntimeException(ex);
-            }
-
-            mongoDoc = Document.parse(json);
-
-            if (mongoDoc.containsKey("id") && mongoDoc.get("id") != null) {
-                mongoDoc.put("_id", mongoDoc.get("id"));
-                mongoDoc.remove("id");
-            }
-        }
+        return this._support.convertFromPublic(value);
+    }
 
-        return mongoDoc;
+    /**
+     * Creates a deep copy of a data item with the data item codec.
+     *
+     * @param item an item to be copied.
+     * @return the copied item.
+     */
+    protected T copyItem(T item) {
+        return this._support.copyItem(item);
     }
 
     /**
@@ -387,21 +718,46 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         try {
             var collection = this._db.getCollection(_collectionName);
 
+            if (this._readPreference != null)
+                collection = collection.withReadPreference(this._readPreference);
+            if (this._readConcern != null)
+                collection = collection.withReadConcern(this._readConcern);
+            if (this._writeConcern != null)
+                collection = collection.withWriteConcern(this._writeConcern);
+
             // Define database schema
             this.defineSchema();
 
-            // Recreate indexes
-            for (var index : _indexes) {
-                var indexName = collection.createIndex(index.keys, index.options);
+            // Create missing and changed indexes
+            var indexes = this._support.openIndexes(correlationId,
+                    MongoDbIndexManager.forCollection(collection, this._client.getDatabase("admin")),
+                    this._collectionName, this._logger, this._backgroundIndexes, this._recreateIndexes);
 
-                var options = index.options != null ? index.options : new IndexOptions();
-                indexName = !indexName.isEmpty() ? indexName : options.getName();
-                this._logger.debug(correlationId, "Created index %s for collection %s", indexName, this._collectionName);
-            }
+            this._codec = this._support.openCodec(collection.getCodecRegistry());
 
             this._opened = true;
             this._collection = collection;
+            this._entityCollection = collection.withDocumentClass(_documentClass)
+                    .withCodecRegistry(this._support.getEntityRegistry(collection.getCodecRegistry()));
+
+            if (this._writeBehind) {
+                this._writeBuffer = new MongoDbWriteBuffer<>(this::writeBuffered, this._logger,
+                        this._writeBufferSize, this._writeBatchSize, this._writeInterval);
+                this._writeBuffer.start("mongodb-write-buffer-" + this._collectionName);
+            }
+
+            if (this._slowQueryThreshold > 0) {
+                this._slowQueryDetector = new MongoDbSlowQueryDetector(this._logger, this._db, this._collectionName,
+                        getCodecRegistry(), indexes, this._slowQueryThreshold, this._slowQueryExplain);
+            }
+
+            this.startAsyncExecutor();
+            this.startCountExecutor();
             this._logger.debug(correlationId, "Connected to mongodb database %s, collection %s", this._databaseName, this._collectionName);
+        } catch (ConfigException ex) {
+            this._db = null;
+            this._client = null;
+            throw ex;
         } catch (Exception ex) {
             this._db = null;
             this._client = null;
@@ -423,6 +779,22 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         if (this._connection == null)
             throw new InvalidStateException(correlationId, "NO_CONNECTION", "MongoDb connection is missing");
 
+        this.stopAsyncExecutor();
+        this.stopCountExecutor();
+
+        this._support.closeIndexes();
+
+        // Drain buffered writes before the collection is released
+        ApplicationException writeError = null;
+        if (this._writeBuffer != null) {
+            try {
+                this._writeBuffer.close(correlationId);
+            } catch (ApplicationException ex) {
+                writeError = ex;
+            }
+            this._writeBuffer = null;
+        }
+
         if (this._localConnection)
             this._connection.close(correlationId);
 
@@ -430,6 +802,180 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         this._client = null;
         this._db = null;
         this._collection = null;
+        this._entityCollection = null;
+        this._maxWriteBatchSize = 0;
+        if (this._slowQueryDetector != null) {
+            this._slowQueryDetector.close();
+            this._slowQueryDetector = null;
+        }
+        this._collectionViews.clear();
+        this._entityCollectionViews.clear();
+
+        // Report failed buffered writes after resources are released
+        if (writeError != null)
+            throw writeError;
+    }
+
+    private static Method getVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private void startAsyncExecutor() {
+        var limit = Math.max(this._asyncMaxConcurrency, 1);
+
+        // Virtual threads are cheap to block, so a semaphore bounds calls that reach the connection pool
+        if (NEW_VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                this._asyncExecutor = (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+                this._asyncLimit = new Semaphore(limit);
+                return;
+            } catch (ReflectiveOperationException ex) {
+                this._logger.warn(null, "Virtual threads are not available: %s", ex.getMessage());
+            }
+        }
+
+        // Platform threads are bounded by the pool size itself
+        var collectionName = this._collectionName;
+        this._asyncExecutor = Executors.newFixedThreadPool(limit, runnable -> {
+            var thread = new Thread(runnable, "mongodb-async-" + collectionName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this._asyncLimit = null;
+    }
+
+    private void stopAsyncExecutor() {
+        var executor = this._asyncExecutor;
+        if (executor == null)
+            return;
+
+        this._asyncExecutor = null;
+        this._asyncLimit = null;
+
+        awaitShutdown(executor);
+    }
+
+    private void startCountExecutor() {
+        if (this._countMaxConcurrency <= 0)
+            return;
+
+        // Counts over the limit run in the calling thread, so threads and pooled connections stay bounded
+        var collectionName = this._collectionName;
+        var executor = new ThreadPoolExecutor(this._countMaxConcurrency, this._countMaxConcurrency,
+                COUNT_IDLE_TIMEOUT, TimeUnit.MILLISECONDS, new SynchronousQueue<>(), runnable -> {
+            var thread = new Thread(runnable, "mongodb-count-" + collectionName);
+            thread.setDaemon(true);
+            return thread;
+        }, (runnable, pool) -> runnable.run());
+        executor.allowCoreThreadTimeOut(true);
+
+        this._countExecutor = executor;
+    }
+
+    private void stopCountExecutor() {
+        var executor = this._countExecutor;
+        if (executor == null)
+            return;
+
+        this._countExecutor = null;
+        awaitShutdown(executor);
+    }
+
+    private static void awaitShutdown(ExecutorService executor) {
+        // Let calls in progress complete before the connection is closed
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(ASYNC_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS))
+                executor.shutdownNow();
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs a blocking operation asynchronously on the executor of this component.
+     * <p>
+     * Calls run on virtual threads when the runtime supports them (Java 21 and above)
+     * or on a bounded pool of platform threads otherwise. In both cases no more than
+     * <code>async_max_concurrency</code> calls run at the same time.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param action        the blocking operation.
+     * @param <R>           the class type of the result
+     * @return a future with the operation result.
+     */
+    protected <R> CompletableFuture<R> runAsync(String correlationId, Supplier<R> action) {
+        var executor = this._asyncExecutor;
+        var limit = this._asyncLimit;
+
+        if (executor == null) {
+            return CompletableFuture.failedFuture(new InvalidStateException(correlationId, "NOT_OPENED",
+                    "Operation cannot be performed because the component is closed"));
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (limit == null)
+                    return action.get();
+
+                limit.acquireUninterruptibly();
+                try {
+                    return action.get();
+                } finally {
+                    limit.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.failedFuture(new InvalidStateException(correlationId, "NOT_OPENED",
+                    "Operation cannot be performed because the component is closed").withCause(ex));
+        }
+    }
+
+    /**
+     * Gets a page of data items asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param paging        (optional) paging parameters
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @return a future with the data page.
+     * @see #getPageByFilter(String, Bson, PagingParams, Bson, Bson)
+     */
+    protected CompletableFuture<DataPage<T>> getPageByFilterAsync(String correlationId, Bson filter, PagingParams paging,
+                                                                  Bson sort, Bson select) {
+        return runAsync(correlationId, () -> getPageByFilter(correlationId, filter, paging, sort, select));
+    }
+
+    /**
+     * Gets a list of data items asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @return a future with the filtered data list.
+     * @see #getListByFilter(String, Bson, Bson, Bson)
+     */
+    protected CompletableFuture<List<T>> getListByFilterAsync(String correlationId, Bson filter, Bson sort, Bson select) {
+        return runAsync(correlationId, () -> getListByFilter(correlationId, filter, sort, select));
+    }
+
+    /**
+     * Gets a number of data items asynchronously.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @return a future with the number of filtered items.
+     * @see #getCountByFilter(String, Bson)
+     */
+    protected CompletableFuture<Long> getCountByFilterAsync(String correlationId, Bson filter) {
+        return runAsync(correlationId, () -> getCountByFilter(correlationId, filter));
     }
 
     /**
@@ -469,6 +1015,26 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      */
     protected DataPage<T> getPageByFilter(String correlationId, Bson filter, PagingParams paging,
                                           Bson sort, Bson select) {
+        return getPageByFilter(correlationId, filter, paging, sort, select, null);
+    }
+
+    /**
+     * Gets a page of data items retrieved by a given filter and sorted according to sort parameters
+     * with options that control the query execution.
+     * <p>
+     * This method shall be called by a public getPageByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param paging        (optional) paging parameters
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @param options       (optional) query options
+     * @return a data page.
+     */
+    protected DataPage<T> getPageByFilter(String correlationId, Bson filter, PagingParams paging,
+                                          Bson sort, Bson select, MongoDbQueryOptions options) {
 
         // Adjust max item count based on configuration
         paging = paging != null ? paging : new PagingParams();
@@ -477,30 +1043,242 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         var pagingEnabled = paging.hasTotal();
 
         // Configure options
-        filter = filter != null ? filter : new Document();
+        var query = filter != null ? filter : new Document();
+
+        Long count = pagingEnabled ? getCachedTotal(query) : null;
+
+        // Retrieve items and total in a single round trip
+        if (pagingEnabled && count == null && "facet".equals(this._totalMode) && this._facetSupported) {
+            try {
+                return getPageWithFacet(correlationId, query, skip, take, sort, select, options);
+            } catch (MongoCommandException ex) {
+                // Other errors, like the 16MB result limit or timeouts, are not related to $facet support
+                if (ex.getErrorCode() != UNRECOGNIZED_STAGE_ERROR)
+                    throw ex;
+
+                this._facetSupported = false;
+                this._logger.warn(correlationId, "$facet is not supported by server, falling back to concurrent count");
+            }
+        }
+
+        // Count concurrently with the page query
+        var countExecutor = this._countExecutor;
+        CompletableFuture<Long> countFuture = pagingEnabled && count == null && countExecutor != null
+                ? CompletableFuture.supplyAsync(() -> countTotal(correlationId, query, options), countExecutor)
+                : null;
 
         List<T> items = new ArrayList<>();
 
-        var res = _collection.find(filter)
+        var startTime = System.nanoTime();
+        var res = MongoDbQueryOptions.applyTo(getEntityCollectionView(options).find(query), options)
                 .limit((int) take)
                 .skip((int) skip)
                 .sort(sort)
                 .projection(select);
 
         for (var item : res)
-            items.add(convertToPublic(item));
+            items.add(item);
+
+        checkSlowOperation(correlationId, "find", query, sort, startTime);
 
         if (!items.isEmpty())
             this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
 
-        Long count = null;
+        if (countFuture != null) {
+            try {
+                count = countFuture.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause)
+                    throw cause;
+                throw ex;
+            }
+        } else if (pagingEnabled && count == null) {
+            count = countTotal(correlationId, query, options);
+        }
+
+        return new DataPage<T>(items, count);
+    }
 
-        if (pagingEnabled)
-            count = _collection.countDocuments(filter);
+    private DataPage<T> getPageWithFacet(String correlationId, Bson filter, long skip, long take, Bson sort, Bson select,
+                                         MongoDbQueryOptions options) {
+        // Stages inside $facet cannot use indexes, so the sort is applied before it
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(filter));
+        if (sort != null)
+            pipeline.add(Aggregates.sort(sort));
+
+        List<Bson> stages = new ArrayList<>();
+        if (skip > 0)
+            stages.add(Aggregates.skip((int) skip));
+        stages.add(Aggregates.limit((int) take));
+        if (select != null)
+            stages.add(Aggregates.project(select));
+
+        pipeline.add(Aggregates.facet(
+                new Facet("items", stages),
+                new Facet("total", Aggregates.count("count"))
+        ));
+
+        var startTime = System.nanoTime();
+        var result = MongoDbQueryOptions.applyTo(
+                getCollectionView(options).aggregate(pipeline, RawBsonDocument.class), options
+        ).first();
+        checkSlowOperation(correlationId, "aggregate", filter, sort, startTime);
+
+        List<T> items = new ArrayList<>();
+        long count = 0;
+
+        if (result != null) {
+            var context = DecoderContext.builder().build();
+            for (var item : result.getArray("items"))
+                items.add(_codec.decode(new BsonDocumentReader(item.asDocument()), context));
+
+            var total = result.getArray("total");
+            if (!total.isEmpty())
+                count = total.get(0).asDocument().getNumber("count").longValue();
+        }
+
+        if (!items.isEmpty())
+            this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
+
+        putCachedTotal(filter, count);
 
         return new DataPage<T>(items, count);
     }
 
+    private long countTotal(String correlationId, Bson filter, MongoDbQueryOptions options) {
+        var collection = getCollectionView(options);
+
+        if ("estimate".equals(this._totalMode))
+            return collection.estimatedDocumentCount(MongoDbQueryOptions.toEstimatedCountOptions(options));
+
+        var startTime = System.nanoTime();
+        var count = collection.countDocuments(filter, MongoDbQueryOptions.toCountOptions(options));
+        checkSlowOperation(correlationId, "countDocuments", filter, null, startTime);
+        putCachedTotal(filter, count);
+        return count;
+    }
+
+    private String getTotalCacheKey(Bson filter) {
+        return filter.toBsonDocument(BsonDocument.class, getCodecRegistry()).toJson();
+    }
+
+    private Long getCachedTotal(Bson filter) {
+        if (this._totalCacheTimeout <= 0)
+            return null;
+
+        var cached = this._cachedTotals.get(getTotalCacheKey(filter));
+        return cached != null && cached.expireTime > System.currentTimeMillis() ? cached.total : null;
+    }
+
+    private void putCachedTotal(Bson filter, long total) {
+        if (this._totalCacheTimeout <= 0)
+            return;
+
+        // Keep the cache bounded for services with many distinct filters
+        if (this._cachedTotals.size() >= MAX_CACHED_TOTALS)
+            this._cachedTotals.clear();
+
+        var cached = new CachedTotal();
+        cached.total = total;
+        cached.expireTime = System.currentTimeMillis() + this._totalCacheTimeout;
+        this._cachedTotals.put(getTotalCacheKey(filter), cached);
+    }
+
+    /**
+     * Gets a page of data items retrieved by a given filter using keyset (seek) paging.
+     * <p>
+     * Instead of skipping items the next page is selected by a range filter on the sort keys
+     * taken from the last item of the previous page, so response time does not depend on page depth.
+     * Sort keys are completed with <code>_id</code> and shall be covered by an index.
+     * Projection shall not exclude sort keys. Skip in paging parameters is ignored.
+     * Values of each sort key shall have one type, null and missing values are placed before other values.
+     * Continuation tokens are validated against the sort order, invalid tokens cause IllegalArgumentException.
+     * <p>
+     * This method shall be called by a public getPageByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId     (optional) transaction id to trace execution through call chain.
+     * @param filter            (optional) a filter JSON object
+     * @param paging            (optional) paging parameters
+     * @param sort              (optional) sorting JSON object with ascending and descending keys
+     * @param select            (optional) projection JSON object
+     * @param continuationToken (optional) continuation token from the previous page or null for the first page
+     * @return a data page with continuation token for the next page.
+     */
+    protected MongoDbKeysetPage<T> getKeysetPageByFilter(String correlationId, Bson filter, PagingParams paging,
+                                                         Bson sort, Bson select, String continuationToken) {
+        return getKeysetPageByFilter(correlationId, filter, paging, sort, select, continuationToken, null);
+    }
+
+    /**
+     * Gets a page of data items retrieved by a given filter using keyset (seek) paging
+     * with options that control the query execution.
+     *
+     * @param correlationId     (optional) transaction id to trace execution through call chain.
+     * @param filter            (optional) a filter JSON object
+     * @param paging            (optional) paging parameters
+     * @param sort              (optional) sorting JSON object with ascending and descending keys
+     * @param select            (optional) projection JSON object
+     * @param continuationToken (optional) continuation token from the previous page or null for the first page
+     * @param options           (optional) query options
+     * @return a data page with continuation token for the next page.
+     * @see #getKeysetPageByFilter(String, Bson, PagingParams, Bson, Bson, String)
+     */
+    protected MongoDbKeysetPage<T> getKeysetPageByFilter(String correlationId, Bson filter, PagingParams paging,
+                                                         Bson sort, Bson select, String continuationToken,
+                                                         MongoDbQueryOptions options) {
+        paging = paging != null ? paging : new PagingParams();
+        var take = paging.getTake(this._maxPageSize);
+
+        filter = filter != null ? filter : new Document();
+
+        var keyset = new MongoDbKeyset(sort, getCodecRegistry());
+        var query = continuationToken != null ? Filters.and(filter, keyset.getFilter(continuationToken)) : filter;
+
+        // Take an extra item to know if there is a next page
+        var collection = getCollectionView(options);
+        var startTime = System.nanoTime();
+        var res = MongoDbQueryOptions.applyTo(collection.find(query, RawBsonDocument.class), options)
+                .sort(keyset.getSort())
+                .limit((int) take + 1)
+                .projection(select);
+
+        List<T> items = new ArrayList<>();
+        RawBsonDocument last = null;
+        var hasMore = false;
+
+        try (var cursor = res.iterator()) {
+            while (cursor.hasNext()) {
+                var document = cursor.next();
+
+                if (items.size() >= take) {
+                    hasMore = true;
+                    break;
+                }
+
+                items.add(document.decode(_codec));
+                last = document;
+            }
+        }
+
+        checkSlowOperation(correlationId, "find", query, keyset.getSort(), startTime);
+
+        if (!items.isEmpty())
+            this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
+
+        Long count = null;
+
+        if (paging.hasTotal()) {
+            startTime = System.nanoTime();
+            count = collection.countDocuments(filter, MongoDbQueryOptions.toCountOptions(options));
+            checkSlowOperation(correlationId, "countDocuments", filter, null, startTime);
+        }
+
+        var token = hasMore && last != null ? keyset.getToken(last) : null;
+        return new MongoDbKeysetPage<>(items, count, token);
+    }
+
     /**
      * Gets a number of data items retrieved by a given filter.
      * <p>
@@ -512,7 +1290,28 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      * @return a number of filtered items.
      */
     protected Long getCountByFilter(String correlationId, Bson filter) {
-        Long count = _collection.countDocuments(filter);
+        return getCountByFilter(correlationId, filter, null);
+    }
+
+    /**
+     * Gets a number of data items retrieved by a given filter
+     * with options that control the query execution.
+     * <p>
+     * This method shall be called by a public getCountByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param options       (optional) query options
+     * @return a number of filtered items.
+     */
+    protected Long getCountByFilter(String correlationId, Bson filter, MongoDbQueryOptions options) {
+        filter = filter != null ? filter : new Document();
+
+        var startTime = System.nanoTime();
+        Long count = getCollectionView(options)
+                .countDocuments(filter, MongoDbQueryOptions.toCountOptions(options));
+        checkSlowOperation(correlationId, "countDocuments", filter, null, startTime);
 
         this._logger.trace(correlationId, "Counted %d items in %s", count, this._collectionName);
 
@@ -532,17 +1331,38 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      * @return a filtered data list.
      */
     protected List<T> getListByFilter(String correlationId, Bson filter, Bson sort, Bson select) {
-        // Configure options
-        var options = new BasicDBObject();
+        return getListByFilter(correlationId, filter, sort, select, null);
+    }
 
-        if (sort != null) options.put("sort", sort);
+    /**
+     * Gets a list of data items retrieved by a given filter and sorted according to sort parameters
+     * with options that control the query execution.
+     * <p>
+     * This method shall be called by a public getListByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @param options       (optional) query options
+     * @return a filtered data list.
+     */
+    protected List<T> getListByFilter(String correlationId, Bson filter, Bson sort, Bson select,
+                                      MongoDbQueryOptions options) {
+        filter = filter != null ? filter : new Document();
 
         List<T> items = new ArrayList<>();
 
-        var res = _collection.find(filter).filter(options).projection(select);
+        var startTime = System.nanoTime();
+        var res = MongoDbQueryOptions.applyTo(getEntityCollectionView(options).find(filter), options)
+                .sort(sort)
+                .projection(select);
 
         for (var item : res)
-            items.add(convertToPublic(item));
+            items.add(item);
+
+        checkSlowOperation(correlationId, "find", filter, sort, startTime);
 
         if (!items.isEmpty())
             this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
@@ -550,6 +1370,115 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         return items;
     }
 
+    /**
+     * Gets a stream of data items retrieved by a given filter and sorted according to sort parameters.
+     * <p>
+     * Data items are fetched from a database cursor in batches and decoded lazily as the stream is consumed,
+     * so memory use does not depend on the number of matched items. The cursor is closed when
+     * the stream is exhausted, when it is closed or when reading fails. Callers shall close the stream
+     * when they stop consuming it early, for instance with try-with-resources.
+     * <p>
+     * This method shall be called by a public getStreamByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @param batchSize     number of items fetched from the server per round trip or 0 to use the server default.
+     * @return a stream of filtered data items.
+     */
+    protected Stream<T> getStreamByFilter(String correlationId, Bson filter, Bson sort, Bson select, int batchSize) {
+        return getStreamByFilter(correlationId, filter, sort, select, new MongoDbQueryOptions().batchSize(batchSize));
+    }
+
+    /**
+     * Gets a stream of data items retrieved by a given filter and sorted according to sort parameters
+     * with options that control the query execution.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @param options       (optional) query options, the batch size sets the number of items
+     *                      fetched from the server per round trip
+     * @return a stream of filtered data items.
+     * @see #getStreamByFilter(String, Bson, Bson, Bson, int)
+     */
+    protected Stream<T> getStreamByFilter(String correlationId, Bson filter, Bson sort, Bson select,
+                                          MongoDbQueryOptions options) {
+        filter = filter != null ? filter : new Document();
+
+        var res = MongoDbQueryOptions.applyTo(getEntityCollectionView(options).find(filter), options)
+                .sort(sort)
+                .projection(select);
+
+        var stream = toStream(res.iterator());
+
+        this._logger.trace(correlationId, "Opened stream from %s", this._collectionName);
+
+        return stream;
+    }
+
+    private static <R> Stream<R> toStream(MongoCursor<R> cursor) {
+        var iterator = new Iterator<R>() {
+            // Closed cursors cannot be queried again
+            private boolean _closed = false;
+
+            @Override
+            public boolean hasNext() {
+                if (_closed)
+                    return false;
+
+                try {
+                    var hasNext = cursor.hasNext();
+                    if (!hasNext)
+                        close();
+                    return hasNext;
+                } catch (RuntimeException ex) {
+                    close();
+                    throw ex;
+                }
+            }
+
+            @Override
+            public R next() {
+                if (_closed)
+                    throw new NoSuchElementException();
+
+                try {
+                    return cursor.next();
+                } catch (RuntimeException ex) {
+                    close();
+                    throw ex;
+                }
+            }
+
+            private void close() {
+                _closed = true;
+                cursor.close();
+            }
+        };
+
+        var spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(cursor::close);
+    }
+
+    /**
+     * Gets a stream of data items retrieved by a given filter and sorted according to sort parameters
+     * using the server default batch size.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @return a stream of filtered data items.
+     * @see #getStreamByFilter(String, Bson, Bson, Bson, int)
+     */
+    protected Stream<T> getStreamByFilter(String correlationId, Bson filter, Bson sort, Bson select) {
+        return getStreamByFilter(correlationId, filter, sort, select, (MongoDbQueryOptions) null);
+    }
+
     /**
      * Gets a random item from items that match to a given filter.
      * <p>
@@ -561,17 +1490,20 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      * @return a random item.
      */
     protected T getOneRandom(String correlationId, Bson filter) {
-        var count = _collection.countDocuments(filter);
-
-        var pos = (int) (Math.random() * count);
-        var options = new BasicDBObject();
-
-        List<T> items = new ArrayList<>();
-
-        var res = _collection.find(filter).filter(options).skip(Math.max(pos, 0)).limit(1);
+        return getOneRandom(correlationId, filter, null);
+    }
 
-        for (var item : res)
-            items.add(convertToPublic(item));
+    /**
+     * Gets a random item from items that match to a given filter
+     * with options that control the query execution.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param options       (optional) query options
+     * @return a random item.
+     */
+    protected T getOneRandom(String correlationId, Bson filter, MongoDbQueryOptions options) {
+        var items = sampleItems(correlationId, filter, 1, options);
 
         var item = (items.size() > 0) ? items.get(0) : null;
 
@@ -583,6 +1515,181 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         return item;
     }
 
+    /**
+     * Gets a number of random items from items that match to a given filter.
+     * The items are selected on the server in a single round trip and
+     * the result contains fewer items when not enough items match the filter.
+     * <p>
+     * This method shall be called by a public getRandomN method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param count         a number of items to retrieve, 0 to retrieve none.
+     * @return a list of random items.
+     * @throws IllegalArgumentException when count is negative.
+     */
+    protected List<T> getRandomN(String correlationId, Bson filter, int count) {
+        return getRandomN(correlationId, filter, count, null);
+    }
+
+    /**
+     * Gets a number of random items from items that match to a given filter
+     * with options that control the query execution.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param count         a number of items to retrieve, 0 to retrieve none.
+     * @param options       (optional) query options
+     * @return a list of random items.
+     * @throws IllegalArgumentException when count is negative.
+     */
+    protected List<T> getRandomN(String correlationId, Bson filter, int count, MongoDbQueryOptions options) {
+        if (count < 0)
+            throw new IllegalArgumentException("Count of random items cannot be negative: " + count);
+        if (count == 0)
+            return new ArrayList<>();
+
+        var items = sampleItems(correlationId, filter, count, options);
+
+        this._logger.trace(correlationId, "Retrieved %d random items from %s", items.size(), this._collectionName);
+
+        return items;
+    }
+
+    private List<T> sampleItems(String correlationId, Bson filter, int count, MongoDbQueryOptions options) {
+        List<Bson> pipeline = new ArrayList<>();
+        if (filter != null)
+            pipeline.add(Aggregates.match(filter));
+        pipeline.add(Aggregates.sample(count));
+
+        // Count is an upper bound, fewer items may match the filter
+        List<T> items = new ArrayList<>();
+        var startTime = System.nanoTime();
+        MongoDbQueryOptions.applyTo(getEntityCollectionView(options).aggregate(pipeline), options)
+                .into(items);
+        checkSlowOperation(correlationId, "aggregate", filter, null, startTime);
+        return items;
+    }
+
+    /**
+     * Runs an aggregation pipeline and gets its results.
+     * <p>
+     * Results are decoded into the result class: the data item class uses the persistence codec,
+     * documents use driver codecs and other classes are mapped the same way as data items.
+     * <p>
+     * This method shall be called by a public method from child class that composes the pipeline.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param pipeline      aggregation stages.
+     * @param resultClass   the class to decode results into.
+     * @param options       (optional) query options, such as allowDiskUse and batchSize
+     * @param <R>           the class type of results
+     * @return a list of results.
+     */
+    protected <R> List<R> aggregate(String correlationId, List<? extends Bson> pipeline, Class<R> resultClass,
+                                    MongoDbQueryOptions options) {
+        var codec = this._support.getResultCodec(resultClass);
+        List<R> items = new ArrayList<>();
+
+        try (var cursor = aggregateRaw(pipeline, options).iterator()) {
+            while (cursor.hasNext())
+                items.add(cursor.next().decode(codec));
+        }
+
+        this._logger.trace(correlationId, "Aggregated %d from %s", items.size(), this._collectionName);
+
+        return items;
+    }
+
+    /**
+     * Runs an aggregation pipeline and gets a page of its results.
+     * <p>
+     * Paging stages are appended to the pipeline. When total is requested, items and total
+     * are retrieved in one round trip with a $facet stage.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param pipeline      aggregation stages.
+     * @param paging        (optional) paging parameters
+     * @param resultClass   the class to decode results into.
+     * @param options       (optional) query options, such as allowDiskUse and batchSize
+     * @param <R>           the class type of results
+     * @return a data page of results.
+     * @see #aggregate(String, List, Class, MongoDbQueryOptions)
+     */
+    protected <R> DataPage<R> aggregatePage(String correlationId, List<? extends Bson> pipeline, PagingParams paging,
+                                            Class<R> resultClass, MongoDbQueryOptions options) {
+        paging = paging != null ? paging : new PagingParams();
+        var skip = paging.getSkip(-1);
+        var take = paging.getTake(this._maxPageSize);
+
+        List<Bson> pageStages = new ArrayList<>();
+        if (skip > 0)
+            pageStages.add(Aggregates.skip((int) skip));
+        pageStages.add(Aggregates.limit((int) take));
+
+        List<Bson> stages = new ArrayList<>(pipeline);
+
+        if (!paging.hasTotal()) {
+            stages.addAll(pageStages);
+            return new DataPage<R>(aggregate(correlationId, stages, resultClass, options), null);
+        }
+
+        stages.add(Aggregates.facet(
+                new Facet("items", pageStages),
+                new Facet("total", Aggregates.count("count"))
+        ));
+
+        var codec = this._support.getResultCodec(resultClass);
+        var result = aggregateRaw(stages, options).first();
+
+        List<R> items = new ArrayList<>();
+        long count = 0;
+
+        if (result != null) {
+            var context = DecoderContext.builder().build();
+            for (var item : result.getArray("items"))
+                items.add(codec.decode(new BsonDocumentReader(item.asDocument()), context));
+
+            var total = result.getArray("total");
+            if (!total.isEmpty())
+                count = total.get(0).asDocument().getNumber("count").longValue();
+        }
+
+        this._logger.trace(correlationId, "Aggregated %d from %s", items.size(), this._collectionName);
+
+        return new DataPage<R>(items, count);
+    }
+
+    /**
+     * Runs an aggregation pipeline and gets a stream of its results.
+     * <p>
+     * Results are fetched from a database cursor in batches and decoded lazily as the stream is consumed.
+     * Callers shall close the stream when they stop consuming it early.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param pipeline      aggregation stages.
+     * @param resultClass   the class to decode results into.
+     * @param options       (optional) query options, such as allowDiskUse and batchSize
+     * @param <R>           the class type of results
+     * @return a stream of results.
+     * @see #aggregate(String, List, Class, MongoDbQueryOptions)
+     */
+    protected <R> Stream<R> aggregateStream(String correlationId, List<? extends Bson> pipeline, Class<R> resultClass,
+                                            MongoDbQueryOptions options) {
+        var codec = this._support.getResultCodec(resultClass);
+        var stream = toStream(aggregateRaw(pipeline, options).iterator()).map(document -> document.decode(codec));
+
+        this._logger.trace(correlationId, "Opened aggregation stream from %s", this._collectionName);
+
+        return stream;
+    }
+
+    private AggregateIterable<RawBsonDocument> aggregateRaw(List<? extends Bson> pipeline, MongoDbQueryOptions options) {
+        var collection = getCollectionView(options);
+        return MongoDbQueryOptions.applyTo(collection.aggregate(pipeline, RawBsonDocument.class), options);
+    }
+
     /**
      * Creates a data item.
      *
@@ -594,11 +1701,16 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
         if (item == null)
             return null;
 
-        var newItem = this.convertFromPublic(item);
+        var id = item instanceof IIdentifiable<?> identifiable ? identifiable.getId() : null;
+
+        if (this._writeBuffer != null) {
+            this._writeBuffer.add(correlationId, id, item, false);
+            return item;
+        }
 
-        _collection.insertOne(newItem);
+        _entityCollection.insertOne(item);
 
-        this._logger.trace(correlationId, "Created in %s with id = %s", this._collectionName, newItem.get("_id"));
+        this._logger.trace(correlationId, "Created in %s with id = %s", this._collectionName, id);
 
         return item;
     }
@@ -614,10 +1726,178 @@ public class MongoDbPersistence<T> implements IReferenceable, IUnreferenceable,
      * @param filter        (optional) a filter JSON object.
      */
     public void deleteByFilter(String correlationId, Bson filter) {
+        // Buffered writes sent later would restore deleted items
+        if (this._writeBuffer != null)
+            this._writeBuffer.flushIds(correlationId, null);
+
         var result = _collection.deleteMany(filter);
 
-        var count = result.getDeletedCount();
-        this._logger.trace(correlationId, "Deleted %d items from %s", count, this._collectionName);
+        if (result.wasAcknowledged())
+            this._logger.trace(correlationId, "Deleted %d items from %s", result.getDeletedCount(), this._collectionName);
+    }
+
+    /**
+     * Gets the maximum number of write operations the server accepts in a single batch.
+     * The value is requested from the server once and cached until the component is closed.
+     *
+     * @return the maximum write batch size.
+     */
+    protected int getMaxWriteBatchSize() {
+        if (this._maxWriteBatchSize <= 0) {
+            try {
+                var result = this._db.runCommand(new Document("isMaster", 1));
+                this._maxWriteBatchSize = result.getInteger("maxWriteBatchSize", DEFAULT_MAX_WRITE_BATCH_SIZE);
+            } catch (Exception ex) {
+                this._maxWriteBatchSize = DEFAULT_MAX_WRITE_BATCH_SIZE;
+            }
+        }
+
+        return this._maxWriteBatchSize;
+    }
+
+    /**
+     * Executes write operations in bulk, split into batches of the maximum size accepted by the server.
+     * <p>
+     * In ordered mode writes stop on the first error and remaining items are reported as skipped.
+     * In unordered mode all items are attempted and only failed items are reported as failed.
+     * When the write concern fails, written items carry the write concern error.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param models        write operations to execute.
+     * @param ids           ids of the written items in the same order as operations.
+     * @param ordered       true to stop on the first error.
+     * @param <K>           the class type of item ids
+     * @return results for every operation in the same order.
+     */
+    protected <K> List<MongoDbBulkItemResult<K>> bulkWrite(String correlationId, List<WriteModel<T>> models,
+                                                          List<K> ids, boolean ordered) {
+        List<MongoDbBulkItemResult<K>> results = new ArrayList<>(models.size());
+        var options = new BulkWriteOptions().ordered(ordered);
+        var batchSize = getMaxWriteBatchSize();
+        var stopped = false;
+        var failedCount = 0;
+
+        for (var start = 0; start < models.size(); start += batchSize) {
+            var end = Math.min(start + batchSize, models.size());
+            var batch = models.subList(start, end);
+
+            // Ordered writes do not continue after an error
+            if (stopped) {
+                for (var index = start; index < end; index++)
+                    results.add(new MongoDbBulkItemResult<>(index, ids.get(index), MongoDbBulkItemResult.Status.SKIPPED));
+                continue;
+            }
+
+            BulkWriteResult result;
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            WriteConcernError concernError = null;
+
+            try {
+                result = this._entityCollection.bulkWrite(batch, options);
+            } catch (MongoBulkWriteException ex) {
+                result = ex.getWriteResult();
+                for (var error : ex.getWriteErrors())
+                    errors.put(error.getIndex(), error);
+                concernError = ex.getWriteConcernError();
+            }
+
+            if (concernError != null) {
+                this._logger.warn(correlationId, "Bulk write to %s was not acknowledged as requested: %s",
+                        this._collectionName, concernError.getMessage());
+            }
+
+            var upserts = new HashSet<Integer>();
+            if (result.wasAcknowledged()) {
+                for (var upsert : result.getUpserts())
+                    upserts.add(upsert.getIndex());
+            }
+
+            var firstError = errors.isEmpty() ? batch.size() : Collections.min(errors.keySet());
+            stopped = ordered && !errors.isEmpty();
+
+            for (var position = 0; position < batch.size(); position++) {
+                var index = start + position;
+                var item = new MongoDbBulkItemResult<K>(index, ids.get(index), null);
+
+                var error = errors.get(position);
+                if (error != null) {
+                    item.status = MongoDbBulkItemResult.Status.FAILED;
+                    item.errorCode = error.getCode();
+                    item.errorMessage = error.getMessage();
+                    failedCount++;
+                } else if (ordered && position > firstError) {
+                    item.status = MongoDbBulkItemResult.Status.SKIPPED;
+                } else if (upserts.contains(position)) {
+                    item.status = MongoDbBulkItemResult.Status.UPSERTED;
+                } else if (batch.get(position) instanceof InsertOneModel) {
+                    item.status = MongoDbBulkItemResult.Status.INSERTED;
+                } else {
+                    item.status = MongoDbBulkItemResult.Status.APPLIED;
+                }
+
+                // Written items may be rolled back when replication was not acknowledged
+                if (concernError != null && (item.status == MongoDbBulkItemResult.Status.INSERTED
+                        || item.status == MongoDbBulkItemResult.Status.UPSERTED
+                        || item.status == MongoDbBulkItemResult.Status.APPLIED)) {
+                    item.writeConcernErrorCode = concernError.getCode();
+                    item.writeConcernErrorMessage = concernError.getMessage();
+                }
+
+                results.add(item);
+            }
+        }
+
+        this._logger.trace(correlationId, "Bulk wrote %d items to %s with %d failures",
+                models.size(), this._collectionName, failedCount);
+
+        return results;
+    }
+
+    /**
+     * Writes all buffered data items to the database.
+     * It does nothing when write-behind is not enabled.
+     * <p>
+     * Buffered writes are attempted at most once. Writes that failed since the previous flush,
+     * including the ones sent by the background flusher, are reported by an error.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @throws ApplicationException when buffered writes failed.
+     */
+    public void flush(String correlationId) throws ApplicationException {
+        if (this._writeBuffer != null)
+            this._writeBuffer.flush(correlationId);
+    }
+
+    /**
+     * Called when a buffered write fails, so state kept for the written item can be discarded.
+     * The item is missing or outdated in the database.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            id of the item or null for items without ids.
+     */
+    protected void onBufferedWriteFailed(String correlationId, Object id) {
+        // Override in child classes
+    }
+
+    private List<MongoDbBulkItemResult<Object>> writeBuffered(String correlationId, List<WriteModel<T>> models,
+                                                              List<Object> ids) {
+        List<MongoDbBulkItemResult<Object>> results;
+        try {
+            results = this.bulkWrite(correlationId, models, ids, false);
+        } catch (RuntimeException ex) {
+            for (var id : ids)
+                this.onBufferedWriteFailed(correlationId, id);
+            throw ex;
+        }
+
+        for (var result : results) {
+            if (result.status == MongoDbBulkItemResult.Status.FAILED)
+                this._logger.warn(correlationId, "Buffered write to %s with id = %s failed: %s",
+                        this._collectionName, result.id, result.errorMessage);
+            if (!result.isSuccessful())
+                this.onBufferedWriteFailed(correlationId, result.id);
+        }
 
+        return results;
     }
 }
@@ -0,0 +1,277 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+import org.pipservices3.components.log.CompositeLogger;
+import org.pipservices3.mongodb.codecs.JacksonEntityCodec;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Configuration, data item mapping and indexes shared by {@link MongoDbPersistence}
+ * and {@link ReactiveMongoDbPersistence}.
+ * <p>
+ * The components keep the codec and its settings in protected fields that child classes may change,
+ * so they are read through suppliers on every call.
+ *
+ * @param <T> the data item class type
+ */
+class MongoDbPersistenceSupport<T> {
+    private final Class<T> _documentClass;
+    private final Supplier<Codec<T>> _codec;
+    private final BooleanSupplier _pojoCodec;
+    private final Supplier<CodecRegistry> _registry;
+    private final Map<Class<?>, Codec<?>> _resultCodecs = new ConcurrentHashMap<>();
+    private List<MongoDbIndex> _indexes = new ArrayList<>();
+    private List<MongoDbIndex> _configuredIndexes = new ArrayList<>();
+    private MongoDbIndexManager _indexManager;
+
+    /**
+     * Creates a new instance of the helper.
+     *
+     * @param documentClass the data item class.
+     * @param codec         the supplier of the data item codec.
+     * @param pojoCodec     the supplier of the flag to map values with the driver POJO codecs.
+     * @param registry      the supplier of the codec registry of the collection.
+     */
+    MongoDbPersistenceSupport(Class<T> documentClass, Supplier<Codec<T>> codec, BooleanSupplier pojoCodec,
+                              Supplier<CodecRegistry> registry) {
+        _documentClass = documentClass;
+        _codec = codec;
+        _pojoCodec = pojoCodec;
+        _registry = registry;
+    }
+
+    /**
+     * Reads configured indexes and checks them against the ones defined in code.
+     *
+     * @param config         configuration parameters with the <code>indexes</code> section.
+     * @param collectionName the collection name.
+     * @throws ConfigException when indexes are not valid or conflict.
+     */
+    void configure(ConfigParams config, String collectionName) throws ConfigException {
+        this._configuredIndexes = MongoDbIndex.manyFromConfig(config);
+
+        // Indexes defined in defineSchema are checked again when the component is opened
+        getDeclaredIndexes(null, collectionName);
+    }
+
+    /**
+     * Adds index definition to create it on opening
+     *
+     * @param keys    index keys (fields)
+     * @param options index options
+     */
+    void ensureIndex(Bson keys, IndexOptions options) {
+        if (keys == null) return;
+        this._indexes.add(new MongoDbIndex(keys, options));
+    }
+
+    /**
+     * Clears all auto-created objects
+     */
+    void clearSchema() {
+        this._indexes = new ArrayList<>();
+    }
+
+    /**
+     * Gets indexes defined in code and configuration. Configured indexes replace the ones with the same name.
+     *
+     * @param correlationId  (optional) transaction id to trace execution through call chain.
+     * @param collectionName the collection name.
+     * @return the declared indexes.
+     * @throws ConfigException when indexes have the same keys under different names.
+     */
+    List<MongoDbIndex> getDeclaredIndexes(String correlationId, String collectionName) throws ConfigException {
+        var configuredNames = this._configuredIndexes.stream().map(index -> index.options.getName()).toList();
+        List<MongoDbIndex> result = new ArrayList<>();
+
+        for (var index : this._indexes) {
+            if (!configuredNames.contains(getIndexName(index)))
+                result.add(index);
+        }
+
+        result.addAll(this._configuredIndexes);
+
+        // The server rejects a second index with the same keys under another name
+        Map<String, BsonDocument> keysByName = new LinkedHashMap<>();
+        for (var index : result) {
+            var name = getIndexName(index);
+            var keys = MongoDbIndexManager.normalizeKeys(index.keys.toBsonDocument(BsonDocument.class, _registry.get()));
+
+            for (var entry : keysByName.entrySet()) {
+                if (!entry.getKey().equals(name) && MongoDbIndexManager.equalKeys(entry.getValue(), keys)) {
+                    throw new ConfigException(correlationId, "INDEX_CONFLICT",
+                            "Indexes " + entry.getKey() + " and " + name + " of collection " + collectionName
+                                    + " have the same keys, give the configured index the name of the other one to replace it");
+                }
+            }
+            keysByName.put(name, keys);
+        }
+
+        return result;
+    }
+
+    private String getIndexName(MongoDbIndex index) {
+        return index.options != null && index.options.getName() != null
+                ? index.options.getName()
+                : MongoDbIndexManager.getIndexName(index.keys.toBsonDocument(BsonDocument.class, _registry.get()));
+    }
+
+    /**
+     * Creates missing and changed indexes when the component is opened.
+     *
+     * @param correlationId  (optional) transaction id to trace execution through call chain.
+     * @param target         the collection to create indexes in.
+     * @param collectionName the collection name.
+     * @param logger         the logger to report progress.
+     * @param background     true to create indexes in a background thread.
+     * @param recreate       true to drop and recreate changed indexes.
+     * @return the declared indexes.
+     * @throws ConfigException when indexes have the same keys under different names.
+     */
+    List<MongoDbIndex> openIndexes(String correlationId, MongoDbIndexManager.Target target, String collectionName,
+                                   CompositeLogger logger, boolean background, boolean recreate) throws ConfigException {
+        var indexes = getDeclaredIndexes(correlationId, collectionName);
+        if (indexes.isEmpty())
+            return indexes;
+
+        var indexManager = new MongoDbIndexManager(target, _registry.get(), logger, recreate);
+        if (background) {
+            indexManager.start(correlationId, indexes, "mongodb-index-builder-" + collectionName);
+            this._indexManager = indexManager;
+        } else {
+            indexManager.ensureIndexes(correlationId, indexes);
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Stops waiting for background index builds when the component is closed.
+     */
+    void closeIndexes() {
+        if (this._indexManager != null) {
+            this._indexManager.stop();
+            this._indexManager = null;
+        }
+    }
+
+    /**
+     * Resolves the data item codec when the component is opened.
+     * POJO codec is resolved once to fail fast on unmapped classes,
+     * partial values are mapped with codecs of the opened collection.
+     *
+     * @param registry the codec registry of the opened collection.
+     * @return the data item codec.
+     */
+    Codec<T> openCodec(CodecRegistry registry) {
+        this._resultCodecs.clear();
+        return _pojoCodec.getAsBoolean() ? registry.get(_documentClass) : _codec.get();
+    }
+
+    /**
+     * Composes the codec registry of the collection that decodes documents directly into data items.
+     *
+     * @param registry the codec registry of the collection.
+     * @return the data item codec registry.
+     */
+    CodecRegistry getEntityRegistry(CodecRegistry registry) {
+        return CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(_codec.get()),
+                registry
+        );
+    }
+
+    /**
+     * Converts a document into a data item with the data item codec.
+     *
+     * @param value a document to convert.
+     * @return the data item.
+     */
+    T convertToPublic(Document value) {
+        if (value == null || value.isEmpty()) return null;
+
+        var reader = new BsonDocumentReader(value.toBsonDocument(Document.class, _registry.get()));
+        return _codec.get().decode(reader, DecoderContext.builder().build());
+    }
+
+    /**
+     * Converts a data item or a partial value into a document.
+     *
+     * @param value a value to convert.
+     * @return the document.
+     */
+    @SuppressWarnings("unchecked")
+    Document convertFromPublic(Object value) {
+        if (value == null)
+            return new Document();
+
+        // Data items and partial values are mapped the same way as decoded items
+        var codec = _documentClass.isInstance(value) ? (Codec<Object>) _codec.get()
+                : (Codec<Object>) getResultCodec(value.getClass());
+
+        var writer = new BsonDocumentWriter(new BsonDocument());
+        codec.encode(writer, value, EncoderContext.builder().build());
+
+        var reader = new BsonDocumentReader(writer.getDocument());
+        return new DocumentCodec(_registry.get()).decode(reader, DecoderContext.builder().build());
+    }
+
+    /**
+     * Creates a deep copy of a data item with the data item codec.
+     *
+     * @param item an item to be copied.
+     * @return the copied item.
+     */
+    T copyItem(T item) {
+        if (item == null)
+            return null;
+
+        var codec = _codec.get();
+        if (codec instanceof JacksonEntityCodec<T> jacksonCodec)
+            return jacksonCodec.copy(item);
+
+        var writer = new BsonDocumentWriter(new BsonDocument());
+        codec.encode(writer, item, EncoderContext.builder().build());
+        return codec.decode(new BsonDocumentReader(writer.getDocument()), DecoderContext.builder().build());
+    }
+
+    /**
+     * Gets a codec for results and values of another class than data items.
+     *
+     * @param resultClass the class of results.
+     * @param <R>         the class type
+     * @return the codec.
+     */
+    @SuppressWarnings("unchecked")
+    <R> Codec<R> getResultCodec(Class<R> resultClass) {
+        if (resultClass == _documentClass)
+            return (Codec<R>) _codec.get();
+
+        // Results are mapped the same way as data items, documents always use driver codecs
+        return (Codec<R>) _resultCodecs.computeIfAbsent(resultClass, type -> {
+            if (_pojoCodec.getAsBoolean() || Bson.class.isAssignableFrom(type))
+                return _registry.get().get(type);
+            return new JacksonEntityCodec<>(type);
+        });
+    }
+}
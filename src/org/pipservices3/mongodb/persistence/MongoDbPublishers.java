@@ -0,0 +1,107 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Adapters from reactive streams publishers to completable futures.
+ * <p>
+ * Futures are completed on the driver threads that deliver results,
+ * so dependent stages shall not block.
+ */
+public final class MongoDbPublishers {
+
+    private MongoDbPublishers() {
+    }
+
+    /**
+     * Gets the first item of a publisher and cancels the rest.
+     *
+     * @param publisher the publisher of items.
+     * @param <R>       the class type of items
+     * @return a future with the first item or null when there are no items.
+     */
+    public static <R> CompletableFuture<R> first(Publisher<R> publisher) {
+        var future = new CompletableFuture<R>();
+
+        publisher.subscribe(new Subscriber<R>() {
+            private Subscription _subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                _subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(R item) {
+                if (future.complete(item))
+                    _subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(null);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Collects all items of a publisher.
+     *
+     * @param publisher the publisher of items.
+     * @param <R>       the class type of items
+     * @return a future with the list of items.
+     */
+    public static <R> CompletableFuture<List<R>> toList(Publisher<R> publisher) {
+        var future = new CompletableFuture<List<R>>();
+
+        publisher.subscribe(new Subscriber<R>() {
+            private final List<R> _items = new ArrayList<>();
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(R item) {
+                _items.add(item);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(_items);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Waits until a publisher completes and ignores its items.
+     *
+     * @param publisher the publisher of items.
+     * @return a future that completes with the publisher.
+     */
+    public static CompletableFuture<Void> toVoid(Publisher<?> publisher) {
+        return toList(publisher).thenApply(items -> null);
+    }
+}
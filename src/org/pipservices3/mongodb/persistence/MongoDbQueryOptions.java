@@ -0,0 +1,241 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.EstimatedDocumentCountOptions;
+import org.bson.conversions.Bson;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Options that control how a single query is executed on the server.
+ * <p>
+ * All options are optional, unset options keep the defaults of the collection.
+ * <p>
+ * ### Example ###
+ * <pre>
+ * {@code
+ * var options = new MongoDbQueryOptions()
+ *     .hint(new Document("key", 1))
+ *     .maxTime(500)
+ *     .readPreference(ReadPreference.secondaryPreferred());
+ *
+ * var items = getListByFilter(correlationId, filter, sort, null, options);
+ * }
+ * </pre>
+ */
+public class MongoDbQueryOptions {
+    private Bson _hint;
+    private String _hintName;
+    private long _maxTime;
+    private int _batchSize;
+    private Collation _collation;
+    private ReadPreference _readPreference;
+    private Boolean _allowDiskUse;
+
+    /**
+     * Sets the index to use by its key pattern.
+     *
+     * @param hint the index key pattern.
+     * @return this options.
+     */
+    public MongoDbQueryOptions hint(Bson hint) {
+        _hint = hint;
+        return this;
+    }
+
+    /**
+     * Sets the index to use by its name. It is ignored when the key pattern is set.
+     * It applies to find and count queries only, aggregations hinted by name are rejected
+     * since the driver cannot pass the name to the server.
+     *
+     * @param hintName the index name.
+     * @return this options.
+     */
+    public MongoDbQueryOptions hintName(String hintName) {
+        _hintName = hintName;
+        return this;
+    }
+
+    /**
+     * Sets the time limit for the query on the server.
+     *
+     * @param maxTime the time limit in milliseconds or 0 for no limit.
+     * @return this options.
+     */
+    public MongoDbQueryOptions maxTime(long maxTime) {
+        _maxTime = maxTime;
+        return this;
+    }
+
+    /**
+     * Sets the number of documents returned by the server per round trip.
+     *
+     * @param batchSize the batch size or 0 to use the server default.
+     * @return this options.
+     */
+    public MongoDbQueryOptions batchSize(int batchSize) {
+        _batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the collation to compare strings.
+     *
+     * @param collation the collation.
+     * @return this options.
+     */
+    public MongoDbQueryOptions collation(Collation collation) {
+        _collation = collation;
+        return this;
+    }
+
+    /**
+     * Sets the members of a replica set to read from.
+     *
+     * @param readPreference the read preference.
+     * @return this options.
+     */
+    public MongoDbQueryOptions readPreference(ReadPreference readPreference) {
+        _readPreference = readPreference;
+        return this;
+    }
+
+    /**
+     * Allows the server to write temporary data to disk for large aggregations.
+     * It applies to aggregations only, find queries with disk use allowed are rejected
+     * since the driver cannot pass the option to the server.
+     *
+     * @param allowDiskUse true to allow disk use.
+     * @return this options.
+     */
+    public MongoDbQueryOptions allowDiskUse(Boolean allowDiskUse) {
+        _allowDiskUse = allowDiskUse;
+        return this;
+    }
+
+    public Bson getHint() {
+        return _hint;
+    }
+
+    public String getHintName() {
+        return _hintName;
+    }
+
+    public long getMaxTime() {
+        return _maxTime;
+    }
+
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
+    public Collation getCollation() {
+        return _collation;
+    }
+
+    public ReadPreference getReadPreference() {
+        return _readPreference;
+    }
+
+    public Boolean getAllowDiskUse() {
+        return _allowDiskUse;
+    }
+
+    /**
+     * Applies the options to a find query.
+     *
+     * @param iterable the find query.
+     * @param options  (optional) the query options.
+     * @return the configured find query.
+     * @throws IllegalArgumentException when disk use is allowed.
+     */
+    static <R> FindIterable<R> applyTo(FindIterable<R> iterable, MongoDbQueryOptions options) {
+        if (options == null)
+            return iterable;
+
+        if (Boolean.TRUE.equals(options._allowDiskUse))
+            throw new IllegalArgumentException("allowDiskUse is supported by aggregations only");
+
+        if (options._hint != null)
+            iterable = iterable.hint(options._hint);
+        else if (options._hintName != null)
+            iterable = iterable.hintString(options._hintName);
+        if (options._maxTime > 0)
+            iterable = iterable.maxTime(options._maxTime, TimeUnit.MILLISECONDS);
+        if (options._batchSize > 0)
+            iterable = iterable.batchSize(options._batchSize);
+        if (options._collation != null)
+            iterable = iterable.collation(options._collation);
+
+        return iterable;
+    }
+
+    /**
+     * Applies the options to an aggregation.
+     *
+     * @param iterable the aggregation.
+     * @param options  (optional) the query options.
+     * @return the configured aggregation.
+     * @throws IllegalArgumentException when the index is hinted by name only.
+     */
+    static <R> AggregateIterable<R> applyTo(AggregateIterable<R> iterable, MongoDbQueryOptions options) {
+        if (options == null)
+            return iterable;
+
+        if (options._hint == null && options._hintName != null)
+            throw new IllegalArgumentException("hintName is supported by find and count queries only, use hint with the index keys");
+
+        if (options._hint != null)
+            iterable = iterable.hint(options._hint);
+        if (options._maxTime > 0)
+            iterable = iterable.maxTime(options._maxTime, TimeUnit.MILLISECONDS);
+        if (options._batchSize > 0)
+            iterable = iterable.batchSize(options._batchSize);
+        if (options._collation != null)
+            iterable = iterable.collation(options._collation);
+        if (options._allowDiskUse != null)
+            iterable = iterable.allowDiskUse(options._allowDiskUse);
+
+        return iterable;
+    }
+
+    /**
+     * Converts the options into count options.
+     *
+     * @param options (optional) the query options.
+     * @return the count options.
+     */
+    static CountOptions toCountOptions(MongoDbQueryOptions options) {
+        var countOptions = new CountOptions();
+        if (options == null)
+            return countOptions;
+
+        if (options._hint != null)
+            countOptions.hint(options._hint);
+        else if (options._hintName != null)
+            countOptions.hintString(options._hintName);
+        if (options._maxTime > 0)
+            countOptions.maxTime(options._maxTime, TimeUnit.MILLISECONDS);
+        if (options._collation != null)
+            countOptions.collation(options._collation);
+
+        return countOptions;
+    }
+
+    /**
+     * Converts the options into estimated count options.
+     *
+     * @param options (optional) the query options.
+     * @return the estimated count options.
+     */
+    static EstimatedDocumentCountOptions toEstimatedCountOptions(MongoDbQueryOptions options) {
+        var countOptions = new EstimatedDocumentCountOptions();
+        if (options != null && options._maxTime > 0)
+            countOptions.maxTime(options._maxTime, TimeUnit.MILLISECONDS);
+        return countOptions;
+    }
+}
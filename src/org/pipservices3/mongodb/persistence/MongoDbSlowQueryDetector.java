@@ -0,0 +1,286 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.pipservices3.components.log.CompositeLogger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects operations that run longer than a threshold and logs them with redacted filters.
+ * <p>
+ * When explain is enabled the query plan is checked once per distinct filter shape.
+ * Collection scans are reported together with an index that would help
+ * and the indexes declared through <code>ensureIndex</code> that cover the same fields.
+ * Explain commands run one at a time in a background thread, shapes that arrive
+ * while the queue is full are skipped.
+ */
+class MongoDbSlowQueryDetector {
+    private static final int MAX_EXPLAINED_SHAPES = 1000;
+    private static final BsonString REDACTED = new BsonString("?");
+    private static final int MAX_PENDING_EXPLAINS = 16;
+    private static final long IDLE_TIMEOUT = 60000;
+
+    private final CompositeLogger _logger;
+    private final MongoDatabase _db;
+    private final String _collectionName;
+    private final CodecRegistry _registry;
+    private final List<BsonDocument> _indexes;
+    private final long _threshold;
+    private final boolean _explain;
+    private final ThreadPoolExecutor _executor;
+    private final Set<String> _explainedShapes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new instance of the detector.
+     *
+     * @param logger         the logger to report slow operations.
+     * @param db             the database to run explain commands.
+     * @param collectionName the name of the collection.
+     * @param registry       the codec registry to convert filters.
+     * @param indexes        the keys of declared indexes.
+     * @param threshold      the operation duration in milliseconds considered slow.
+     * @param explain        true to explain query plans of slow operations.
+     */
+    public MongoDbSlowQueryDetector(CompositeLogger logger, MongoDatabase db, String collectionName,
+                                    CodecRegistry registry, List<MongoDbIndex> indexes,
+                                    long threshold, boolean explain) {
+        _logger = logger;
+        _db = db;
+        _collectionName = collectionName;
+        _registry = registry;
+        _threshold = threshold;
+        _explain = explain;
+        _executor = explain ? createExecutor(collectionName) : null;
+
+        _indexes = new ArrayList<>();
+        for (var index : indexes)
+            _indexes.add(index.keys.toBsonDocument(BsonDocument.class, registry));
+    }
+
+    private static ThreadPoolExecutor createExecutor(String collectionName) {
+        var executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_EXPLAINS), runnable -> {
+            var thread = new Thread(runnable, "mongodb-explain-" + collectionName);
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Stops explaining queries. Explain commands already sent to the server are not waited for.
+     */
+    public void close() {
+        if (_executor != null)
+            _executor.shutdownNow();
+    }
+
+    /**
+     * Reports the operation when it has been running longer than the threshold.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param operation     the name of the operation.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param startTime     the operation start time taken from {@link System#nanoTime()}.
+     */
+    public void check(String correlationId, String operation, Bson filter, Bson sort, long startTime) {
+        var duration = (System.nanoTime() - startTime) / 1000000;
+        if (duration < _threshold)
+            return;
+
+        var filterDoc = filter != null ? filter.toBsonDocument(BsonDocument.class, _registry) : new BsonDocument();
+        var sortDoc = sort != null ? sort.toBsonDocument(BsonDocument.class, _registry) : null;
+        var shape = redact(filterDoc).toJson();
+
+        _logger.warn(correlationId, "Slow %s on %s took %d ms: filter %s, sort %s",
+                operation, _collectionName, duration, shape, sortDoc != null ? sortDoc.toJson() : "none");
+
+        if (!_explain)
+            return;
+
+        // Keep the set bounded for services with many distinct filters
+        if (_explainedShapes.size() >= MAX_EXPLAINED_SHAPES)
+            return;
+        if (!_explainedShapes.add(shape + (sortDoc != null ? sortDoc.toJson() : "")))
+            return;
+
+        try {
+            _executor.execute(() -> explain(correlationId, filterDoc, sortDoc, shape));
+        } catch (RejectedExecutionException ex) {
+            // The detector is closed
+        }
+    }
+
+    private void explain(String correlationId, BsonDocument filter, BsonDocument sort, String shape) {
+        try {
+            var find = new BsonDocument("find", new BsonString(_collectionName)).append("filter", filter);
+            if (sort != null)
+                find.append("sort", sort);
+
+            var result = _db.runCommand(new BsonDocument("explain", find)
+                    .append("verbosity", new BsonString("queryPlanner")), BsonDocument.class);
+
+            var plan = result.getDocument("queryPlanner", new BsonDocument()).get("winningPlan");
+            var stages = new LinkedHashSet<String>();
+            var usedIndexes = new LinkedHashSet<String>();
+            collectPlan(plan, stages, usedIndexes);
+
+            if (!stages.contains("COLLSCAN")) {
+                _logger.debug(correlationId, "Slow query on %s with filter %s uses indexes %s",
+                        _collectionName, shape, usedIndexes);
+                return;
+            }
+
+            var suggested = suggestIndex(filter, sort);
+            var declared = new ArrayList<String>();
+            for (var index : _indexes) {
+                if (!index.isEmpty() && suggested.containsKey(index.getFirstKey()))
+                    declared.add(index.toJson());
+            }
+
+            if (declared.isEmpty()) {
+                _logger.warn(correlationId, "Query on %s with filter %s scans the whole collection, "
+                        + "no declared index covers it, consider index %s", _collectionName, shape, suggested.toJson());
+            } else {
+                _logger.warn(correlationId, "Query on %s with filter %s scans the whole collection, "
+                        + "declared indexes %s are not used, consider index %s",
+                        _collectionName, shape, declared, suggested.toJson());
+            }
+        } catch (Exception ex) {
+            _logger.debug(correlationId, "Failed to explain query on %s: %s", _collectionName, ex.getMessage());
+        }
+    }
+
+    /**
+     * Replaces values in a filter with placeholders keeping field names and operators.
+     *
+     * @param filter a filter JSON object
+     * @return the filter shape.
+     */
+    static BsonDocument redact(BsonDocument filter) {
+        var result = new BsonDocument();
+        for (var entry : filter.entrySet())
+            result.append(entry.getKey(), redactValue(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    private static BsonValue redactValue(String key, BsonValue value) {
+        if (value.isDocument())
+            return redact(value.asDocument());
+
+        // Logical operators hold nested filters
+        if (value.isArray() && List.of("$and", "$or", "$nor").contains(key)) {
+            var result = new BsonArray();
+            for (var item : value.asArray())
+                result.add(item.isDocument() ? redact(item.asDocument()) : REDACTED);
+            return result;
+        }
+
+        return REDACTED;
+    }
+
+    /**
+     * Collects stages and index names used by a query plan.
+     *
+     * @param plan    the winning plan from explain output.
+     * @param stages  the set to add stage names.
+     * @param indexes the set to add index names.
+     */
+    static void collectPlan(BsonValue plan, Set<String> stages, Set<String> indexes) {
+        if (plan == null)
+            return;
+
+        if (plan.isArray()) {
+            for (var item : plan.asArray())
+                collectPlan(item, stages, indexes);
+        } else if (plan.isDocument()) {
+            var document = plan.asDocument();
+            if (document.isString("stage"))
+                stages.add(document.getString("stage").getValue());
+            if (document.isString("indexName"))
+                indexes.add(document.getString("indexName").getValue());
+
+            for (var value : document.values())
+                collectPlan(value, stages, indexes);
+        }
+    }
+
+    /**
+     * Suggests index keys for a query: equality fields first, then sort fields, then range fields.
+     *
+     * @param filter a filter JSON object
+     * @param sort   (optional) sorting JSON object
+     * @return the suggested index keys.
+     */
+    static BsonDocument suggestIndex(BsonDocument filter, BsonDocument sort) {
+        var equality = new LinkedHashSet<String>();
+        var range = new LinkedHashSet<String>();
+        collectFields(filter, equality, range);
+
+        var result = new BsonDocument();
+        for (var field : equality)
+            result.append(field, new BsonInt32(1));
+
+        if (sort != null) {
+            for (var entry : sort.entrySet()) {
+                if (!result.containsKey(entry.getKey()) && entry.getValue().isNumber())
+                    result.append(entry.getKey(), new BsonInt32(entry.getValue().asNumber().intValue() < 0 ? -1 : 1));
+            }
+        }
+
+        for (var field : range) {
+            if (!result.containsKey(field))
+                result.append(field, new BsonInt32(1));
+        }
+
+        return result;
+    }
+
+    private static void collectFields(BsonDocument filter, Set<String> equality, Set<String> range) {
+        for (var entry : filter.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+
+            if (key.equals("$and") && value.isArray()) {
+                for (var item : value.asArray()) {
+                    if (item.isDocument())
+                        collectFields(item.asDocument(), equality, range);
+                }
+            } else if (!key.startsWith("$")) {
+                if (isRange(value))
+                    range.add(key);
+                else
+                    equality.add(key);
+            }
+        }
+    }
+
+    private static boolean isRange(BsonValue value) {
+        if (!value.isDocument() || value.asDocument().isEmpty()
+                || !value.asDocument().getFirstKey().startsWith("$"))
+            return false;
+
+        for (var operator : value.asDocument().keySet()) {
+            if (!operator.equals("$eq") && !operator.equals("$in"))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,377 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.errors.InvocationException;
+import org.pipservices3.components.log.ILogger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded in-memory buffer that collects writes and sends them to MongoDB in bulk
+ * from a background thread.
+ * <p>
+ * Repeated writes to the same id are coalesced and the last written item wins.
+ * A replacement coalesced with a buffered write is sent as an upsert replacement.
+ * An insert of an id that is already buffered fails as a duplicate, the same way it would fail on the server.
+ * The buffer is flushed when it reaches the batch size or when the flush interval elapses.
+ * Writes to selected ids can be flushed ahead with {@link #flushIds} before the items
+ * are changed directly in the database, so buffered writes do not overwrite the changes later.
+ * When the buffer is full, callers block until the flusher makes room for new writes.
+ * <p>
+ * Writes are accepted before they reach the database and each of them is attempted at most once:
+ * failed writes are not retried and buffered writes are lost if the process stops without closing the buffer.
+ * Failed writes are logged and counted. {@link #flush} and {@link #close} throw an error
+ * when writes failed since the previous call, including failures of background flushes.
+ *
+ * @param <T> the class type of data items
+ */
+public class MongoDbWriteBuffer<T> {
+
+    /**
+     * Callback that writes buffered operations to the database.
+     *
+     * @param <T> the class type of data items
+     */
+    @FunctionalInterface
+    public interface Writer<T> {
+        /**
+         * Writes operations to the database.
+         *
+         * @param correlationId (optional) transaction id to trace execution through call chain.
+         * @param models        write operations.
+         * @param ids           ids of written items in the same order or nulls for items without ids.
+         * @return results of the written items.
+         */
+        List<MongoDbBulkItemResult<Object>> write(String correlationId, List<WriteModel<T>> models, List<Object> ids);
+    }
+
+    private static class PendingWrite<T> {
+        Object id;
+        T item;
+        boolean replace;
+    }
+
+    private final Object _lock = new Object();
+    private final Object _writeLock = new Object();
+    private final Map<Object, PendingWrite<T>> _writes = new LinkedHashMap<>();
+    private final ReplaceOptions _replaceOptions = new ReplaceOptions().upsert(true);
+    private final Writer<T> _writer;
+    private final ILogger _logger;
+    private final int _maxSize;
+    private final int _batchSize;
+    private final long _interval;
+    private Thread _flusher;
+    private boolean _closed;
+    private int _failedCount;
+    private String _failure;
+    private long _totalFailedCount;
+
+    /**
+     * Creates a new instance of the buffer.
+     *
+     * @param writer    callback to write buffered operations.
+     * @param logger    logger to report write errors.
+     * @param maxSize   maximum number of buffered writes.
+     * @param batchSize number of buffered writes that triggers a flush.
+     * @param interval  flush interval in milliseconds.
+     */
+    public MongoDbWriteBuffer(Writer<T> writer, ILogger logger, int maxSize, int batchSize, long interval) {
+        if (writer == null)
+            throw new NullPointerException("writer is null");
+
+        _writer = writer;
+        _logger = logger;
+        _maxSize = Math.max(maxSize, 1);
+        _batchSize = Math.max(Math.min(batchSize, _maxSize), 1);
+        _interval = Math.max(interval, 1);
+    }
+
+    /**
+     * Starts the background flusher.
+     *
+     * @param name name of the flusher thread.
+     */
+    public void start(String name) {
+        synchronized (_lock) {
+            if (_flusher != null)
+                return;
+
+            _closed = false;
+            _flusher = new Thread(this::run, name);
+            _flusher.setDaemon(true);
+            _flusher.start();
+        }
+    }
+
+    /**
+     * Gets the number of buffered writes.
+     *
+     * @return the number of buffered writes.
+     */
+    public int getSize() {
+        synchronized (_lock) {
+            return _writes.size();
+        }
+    }
+
+    /**
+     * Gets the number of writes that failed since the buffer was created.
+     *
+     * @return the number of failed writes.
+     */
+    public long getFailedCount() {
+        synchronized (_lock) {
+            return _totalFailedCount;
+        }
+    }
+
+    /**
+     * Adds a write to the buffer. Blocks while the buffer is full.
+     * After the buffer is closed the write is sent to the database immediately.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            id of the item or null if the item has no id.
+     * @param item          the item to be written.
+     * @param replace       true to replace the item or create it if it does not exist, false to insert it.
+     */
+    public void add(String correlationId, Object id, T item, boolean replace) {
+        var key = id != null ? id : new Object();
+
+        synchronized (_lock) {
+            while (!_closed) {
+                var pending = _writes.get(key);
+
+                // Coalesce with the buffered write to the same id
+                if (pending != null) {
+                    if (!replace) {
+                        recordFailures(1, "Item with id " + id + " already exists");
+                        if (_logger != null)
+                            _logger.warn(correlationId, "Buffered insert of item with id = %s failed: item already exists", id);
+                        return;
+                    }
+
+                    pending.item = item;
+                    pending.replace = true;
+                    return;
+                }
+
+                if (_writes.size() < _maxSize) {
+                    pending = new PendingWrite<>();
+                    pending.id = id;
+                    pending.item = item;
+                    pending.replace = replace;
+                    _writes.put(key, pending);
+
+                    if (_writes.size() >= _batchSize)
+                        _lock.notifyAll();
+                    return;
+                }
+
+                // Wait until the flusher makes room
+                _lock.notifyAll();
+                try {
+                    _lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+
+        var pending = new PendingWrite<T>();
+        pending.id = id;
+        pending.item = item;
+        pending.replace = replace;
+        write(correlationId, List.of(pending));
+    }
+
+    /**
+     * Writes all operations buffered before the call to the database.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @throws ApplicationException when writes failed since the previous flush or close call.
+     */
+    public void flush(String correlationId) throws ApplicationException {
+        flushBuffered(correlationId);
+        throwFailures(correlationId);
+    }
+
+    /**
+     * Writes operations buffered for the given ids and waits for the write in progress.
+     * Call it before the items are changed or deleted directly in the database,
+     * otherwise a buffered write sent later overwrites the change or restores a deleted item.
+     * Failed writes are reported by the next {@link #flush} or {@link #close} call.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of the items or null to write all buffered operations.
+     */
+    public void flushIds(String correlationId, Collection<?> ids) {
+        if (ids == null) {
+            flushBuffered(correlationId);
+            return;
+        }
+
+        // Waits for the write in progress that may contain the same ids
+        synchronized (_writeLock) {
+            List<PendingWrite<T>> batch = new ArrayList<>();
+
+            synchronized (_lock) {
+                for (var id : ids) {
+                    var pending = id != null ? _writes.remove(id) : null;
+                    if (pending != null)
+                        batch.add(pending);
+                }
+
+                if (batch.isEmpty())
+                    return;
+                _lock.notifyAll();
+            }
+
+            write(correlationId, batch);
+        }
+    }
+
+    private void flushBuffered(String correlationId) {
+        // Waits for the write in progress so previous writes are completed as well
+        synchronized (_writeLock) {
+            List<PendingWrite<T>> batch;
+
+            synchronized (_lock) {
+                if (_writes.isEmpty())
+                    return;
+
+                batch = new ArrayList<>(_writes.values());
+                _writes.clear();
+                _lock.notifyAll();
+            }
+
+            write(correlationId, batch);
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes all buffered operations.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @throws ApplicationException when writes failed since the previous flush or close call.
+     */
+    public void close(String correlationId) throws ApplicationException {
+        Thread flusher;
+
+        synchronized (_lock) {
+            _closed = true;
+            flusher = _flusher;
+            _flusher = null;
+            _lock.notifyAll();
+        }
+
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        flushBuffered(correlationId);
+        throwFailures(correlationId);
+    }
+
+    private void run() {
+        while (true) {
+            synchronized (_lock) {
+                var deadline = System.currentTimeMillis() + _interval;
+
+                while (!_closed && _writes.size() < _batchSize) {
+                    var timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0)
+                        break;
+
+                    try {
+                        _lock.wait(timeout);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+
+                // Remaining writes are flushed by close
+                if (_closed)
+                    return;
+            }
+
+            flushBuffered(null);
+        }
+    }
+
+    private void write(String correlationId, List<PendingWrite<T>> batch) {
+        List<WriteModel<T>> models = new ArrayList<>(batch.size());
+        List<Object> ids = new ArrayList<>(batch.size());
+
+        for (var pending : batch) {
+            if (pending.replace)
+                models.add(new ReplaceOneModel<>(new Document("_id", pending.id), pending.item, _replaceOptions));
+            else
+                models.add(new InsertOneModel<>(pending.item));
+            ids.add(pending.id);
+        }
+
+        try {
+            var results = _writer.write(correlationId, models, ids);
+
+            var failedCount = 0;
+            String failure = null;
+            for (var result : results) {
+                if (!result.isSuccessful()) {
+                    failedCount++;
+                    if (failure == null)
+                        failure = result.errorMessage != null ? result.errorMessage : result.writeConcernErrorMessage;
+                }
+            }
+
+            if (failedCount > 0)
+                recordFailures(failedCount, failure);
+        } catch (Exception ex) {
+            recordFailures(batch.size(), ex.getMessage());
+            if (_logger != null)
+                _logger.error(correlationId, ex, "Failed to write %d buffered items", batch.size());
+        }
+    }
+
+    private void recordFailures(int count, String message) {
+        synchronized (_lock) {
+            if (_failedCount == 0)
+                _failure = message;
+            _failedCount += count;
+            _totalFailedCount += count;
+        }
+    }
+
+    private void throwFailures(String correlationId) throws ApplicationException {
+        int count;
+        String failure;
+
+        synchronized (_lock) {
+            count = _failedCount;
+            failure = _failure;
+            _failedCount = 0;
+            _failure = null;
+        }
+
+        if (count > 0) {
+            throw new InvocationException(
+                    correlationId,
+                    "WRITE_FAILED",
+                    count + " buffered writes failed: " + failure
+            ).withDetails("failed_count", count);
+        }
+    }
+}
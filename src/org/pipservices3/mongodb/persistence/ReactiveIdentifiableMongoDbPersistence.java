@@ -0,0 +1,337 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.FindOneAndReplaceOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.BsonDocumentWrapper;
+import org.bson.Document;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.data.AnyValueMap;
+import org.pipservices3.commons.data.IIdentifiable;
+import org.pipservices3.commons.errors.ConfigException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Abstract persistence component that stores data in MongoDB using the reactive streams driver
+ * and implements a number of CRUD operations over data items with unique ids.
+ * The data items must implement <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/commons/data/IIdentifiable.html">IIdentifiable</a> interface.
+ * <p>
+ * The operations have the same semantics as in {@link IdentifiableMongoDbPersistence}
+ * and the same names as in IWriter, IGetter and ISetter interfaces,
+ * but they return <code>CompletableFuture</code> results instead of blocking.
+ * <p>
+ * ### Configuration parameters ###
+ * <ul>
+ * <li>collection:                  (optional) MongoDB collection name
+ * <li>connection(s):
+ *   <ul>
+ *   <li>discovery_key:             (optional) a key to retrieve the connection from <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a>
+ *   <li>host:                      host name or IP address
+ *   <li>port:                      port number (default: 27017)
+ *   <li>uri:                       resource URI or connection string with all parameters in it
+ *   </ul>
+ * <li>credential(s):
+ *   <ul>
+ *   <li>store_key:                 (optional) a key to retrieve the credentials from <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/auth/ICredentialStore.html">ICredentialStore</a>
+ *   <li>username:                  (optional) user name
+ *   <li>password:                  (optional) user password
+ *   </ul>
+ * <li>options:
+ *   <ul>
+ *   <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ *   <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ *   <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ *   <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ *   <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ *   <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
+ *   <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5000)
+ *   <li>socket_timeout:            (optional) socket timeout in milliseconds (default: 360000)
+ *   <li>max_page_size:             (optional) maximum page size (default: 100)
+ *   <li>pojo_codec:                (optional) decode data items with driver POJO codecs instead of Jackson mapping (default: false)
+ *   <li>copy_on_write:             (optional) copy data items before writes to keep caller objects unchanged (default: true)
+ *   <li>background_indexes:        (optional) create missing indexes in background after the component is opened (default: false)
+ *   <li>recreate_indexes:          (optional) drop and recreate existing indexes that differ from declared ones (default: false)
+ *   <li>replica_set:               (optional) name of replica set
+ *   <li>ssl:                       (optional) enable SSL connection (default: false)
+ *   <li>debug:                     (optional) enable debug output (default: false).
+ *   <li>monitoring:                (optional) report pool and command metrics to counters (default: true)
+ *   </ul>
+ * </ul>
+ * <p>
+ * ### References ###
+ * <ul>
+ * <li>*:logger:*:*:1.0                    (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/log/ILogger.html">ILogger</a> components to pass log messages
+ * <li>*:discovery:*:*:1.0                 (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a> services
+ * <li>*:credential-store:*:*:1.0          (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0                  (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/count/ICounters.html">ICounters</a> components to pass collected measurements
+ * <li>*:connection:mongodb-reactive:*:1.0 (optional) Shared reactive MongoDB connection
+ * </ul>
+ * <p>
+ * ### Example ###
+ * <pre>
+ * {@code
+ * class MyMongoDbPersistence extends ReactiveIdentifiableMongoDbPersistence<MyData, String> {
+ *
+ *   public MyMongoDbPersistence() {
+ *       super("mydata", MyData.class);
+ *   }
+ *
+ *   public CompletableFuture<DataPage<MyData>> getPageByFilter(String correlationId, FilterParams filter, PagingParams paging) {
+ *       filter = filter != null ? filter : new FilterParams();
+ *       String name = filter.getAsNullableString("name");
+ *       return super.getPageByFilter(correlationId, name != null ? Filters.eq("name", name) : null, paging, null, null);
+ *   }
+ * }
+ *
+ * MyMongoDbPersistence persistence = new MyMongoDbPersistence();
+ * persistence.configure(ConfigParams.fromTuples(
+ *     "host", "localhost",
+ *     "port", 27017
+ * ));
+ *
+ * persitence.open("123");
+ *
+ * persistence.create("123", new MyData("1", "ABC"))
+ *     .thenCompose(item -> persistence.getOneById("123", "1"))
+ *     .thenAccept(item -> System.out.println(item));  // Result: { id: "1", name: "ABC" }
+ * }
+ * </pre>
+ */
+public class ReactiveIdentifiableMongoDbPersistence<T extends IIdentifiable<K>, K extends Comparable<K>>
+        extends ReactiveMongoDbPersistence<T> {
+
+    /**
+     * Flag to turn on automated string ID generation
+     */
+    protected boolean _autoGenerateId = true;
+
+    /**
+     * Flag to copy data items before writes. When it is turned off,
+     * generated ids are assigned to the caller objects.
+     */
+    protected boolean _copyOnWrite = true;
+
+    /**
+     * Creates a new instance of the persistence component.
+     *
+     * @param collectionName (optional) a collection name.
+     * @param documentClass  the default class to cast any documents returned from
+     *                       the database into
+     */
+    public ReactiveIdentifiableMongoDbPersistence(String collectionName, Class<T> documentClass) {
+        super(collectionName, documentClass);
+    }
+
+    /**
+     * Configures component by passing configuration parameters.
+     *
+     * @param config configuration parameters to be set.
+     */
+    @Override
+    public void configure(ConfigParams config) throws ConfigException {
+        super.configure(config);
+
+        this._copyOnWrite = config.getAsBooleanWithDefault("options.copy_on_write", this._copyOnWrite);
+    }
+
+    /**
+     * Prepares a data item for writing: copies it when copying is enabled
+     * and generates a missing id.
+     *
+     * @param item an item to be written.
+     * @return the item to write.
+     */
+    protected T prepareForWrite(T item) {
+        var newItem = this._copyOnWrite ? copyItem(item) : item;
+
+        // Auto generate id
+        if (newItem.getId() == null && this._autoGenerateId)
+            newItem.setId(newItem.withGeneratedId());
+
+        return newItem;
+    }
+
+    /**
+     * Converts the given object from the public partial format.
+     *
+     * @param value the object to convert from the public partial format.
+     * @return the initial object.
+     */
+    protected Document convertFromPublicPartial(Object value) {
+        return this.convertFromPublic(value);
+    }
+
+    /**
+     * Gets a list of data items retrieved by given unique ids.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be retrieved
+     * @return a future with the data list.
+     */
+    public CompletableFuture<List<T>> getListByIds(String correlationId, List<K> ids) {
+        var filter = new Document("_id", new Document("$in", ids));
+        return this.getListByFilter(correlationId, filter, null, null);
+    }
+
+    /**
+     * Gets a list of data items retrieved by given unique ids.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be retrieved
+     * @return a future with the data list.
+     */
+    public CompletableFuture<List<T>> getListByIds(String correlationId, K[] ids) {
+        return this.getListByIds(correlationId, Arrays.stream(ids).toList());
+    }
+
+    /**
+     * Gets a data item by its unique id.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of data item to be retrieved.
+     * @return a future with the found data item or null.
+     */
+    public CompletableFuture<T> getOneById(String correlationId, K id) {
+        var filter = new Document("_id", id);
+
+        return MongoDbPublishers.first(this._entityCollection.find(filter).limit(1)).thenApply(item -> {
+            if (item == null)
+                this._logger.trace(correlationId, "Nothing found from %s with id = %s", this._collectionName, id);
+            else
+                this._logger.trace(correlationId, "Retrieved from %s with id = %s", this._collectionName, id);
+            return item;
+        });
+    }
+
+    /**
+     * Creates a data item.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          an item to be created.
+     * @return a future with the created item.
+     */
+    @Override
+    public CompletableFuture<T> create(String correlationId, T item) {
+        if (item == null)
+            return CompletableFuture.completedFuture(null);
+
+        return super.create(correlationId, prepareForWrite(item));
+    }
+
+    /**
+     * Sets a data item. If the data item exists it updates it, otherwise it create
+     * a new data item.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          a item to be set.
+     * @return a future with the updated item.
+     */
+    public CompletableFuture<T> set(String correlationId, T item) {
+        if (item == null)
+            return CompletableFuture.completedFuture(null);
+
+        var newItem = prepareForWrite(item);
+        var filter = new Document("_id", newItem.getId());
+
+        var options = new FindOneAndReplaceOptions();
+        options.upsert(true);
+        options.returnDocument(ReturnDocument.AFTER);
+
+        return MongoDbPublishers.first(this._entityCollection.findOneAndReplace(filter, newItem, options)).thenApply(result -> {
+            if (result != null)
+                this._logger.trace(correlationId, "Set in %s with id = %s", this._collectionName, newItem.getId());
+            return result;
+        });
+    }
+
+    /**
+     * Updates a data item.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          an item to be updated.
+     * @return a future with the updated item or null when it was not found.
+     */
+    public CompletableFuture<T> update(String correlationId, T item) {
+        if (item == null || item.getId() == null)
+            return CompletableFuture.completedFuture(null);
+
+        // The item is encoded when the update is sent, so it shall not be changed until the future completes
+        var update = new Document("$set", new BsonDocumentWrapper<>(item, this._codec));
+        var filter = new Document("_id", item.getId());
+
+        var options = new FindOneAndUpdateOptions();
+        options.returnDocument(ReturnDocument.AFTER);
+
+        return MongoDbPublishers.first(this._entityCollection.findOneAndUpdate(filter, update, options)).thenApply(result -> {
+            this._logger.trace(correlationId, "Updated in %s with id = %s", this._collectionName, item.getId());
+            return result;
+        });
+    }
+
+    /**
+     * Updates only few selected fields in a data item.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of data item to be updated.
+     * @param data          a map with fields to be updated.
+     * @return a future with the updated item or null when it was not found.
+     */
+    public CompletableFuture<T> updatePartially(String correlationId, K id, AnyValueMap data) {
+        if (data == null || id == null)
+            return CompletableFuture.completedFuture(null);
+
+        var update = new Document("$set", this.convertFromPublicPartial(data.getAsObject()));
+        var filter = new Document("_id", id);
+
+        var options = new FindOneAndUpdateOptions();
+        options.returnDocument(ReturnDocument.AFTER);
+
+        return MongoDbPublishers.first(this._entityCollection.findOneAndUpdate(filter, update, options)).thenApply(result -> {
+            this._logger.trace(correlationId, "Updated partially in %s with id = %s", this._collectionName, id);
+            return result;
+        });
+    }
+
+    /**
+     * Deleted a data item by it's unique id.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param id            an id of the item to be deleted
+     * @return a future with the deleted item or null when it was not found.
+     */
+    public CompletableFuture<T> deleteById(String correlationId, K id) {
+        var filter = new Document("_id", id);
+
+        return MongoDbPublishers.first(this._entityCollection.findOneAndDelete(filter)).thenApply(result -> {
+            this._logger.trace(correlationId, "Deleted from %s with id = %s", this._collectionName, id);
+            return result;
+        });
+    }
+
+    /**
+     * Deletes multiple data items by their unique ids.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be deleted.
+     * @return a future that completes when items are deleted.
+     */
+    public CompletableFuture<Void> deleteByIds(String correlationId, List<K> ids) {
+        return this.deleteByFilter(correlationId, new Document("_id", new Document("$in", ids)));
+    }
+
+    /**
+     * Deletes multiple data items by their unique ids.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param ids           ids of data items to be deleted.
+     * @return a future that completes when items are deleted.
+     */
+    public CompletableFuture<Void> deleteByIds(String correlationId, K[] ids) {
+        return this.deleteByIds(correlationId, Arrays.stream(ids).toList());
+    }
+}
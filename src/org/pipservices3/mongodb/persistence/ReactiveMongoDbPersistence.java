@@ -0,0 +1,693 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.config.IConfigurable;
+import org.pipservices3.commons.data.DataPage;
+import org.pipservices3.commons.data.IIdentifiable;
+import org.pipservices3.commons.data.PagingParams;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.errors.ConfigException;
+import org.pipservices3.commons.errors.ConnectionException;
+import org.pipservices3.commons.errors.InvalidStateException;
+import org.pipservices3.commons.refer.*;
+import org.pipservices3.commons.run.ICleanable;
+import org.pipservices3.commons.run.IOpenable;
+import org.pipservices3.components.log.CompositeLogger;
+import org.pipservices3.mongodb.codecs.JacksonEntityCodec;
+import org.pipservices3.mongodb.connect.ReactiveMongoDbConnection;
+import org.reactivestreams.Publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Abstract persistence component that stores data in MongoDB using the reactive streams driver.
+ * <p>
+ * It mirrors {@link MongoDbPersistence}: it accepts the same configuration, converts data items
+ * the same way and offers the same operations. The operations do not block calling threads,
+ * they return <code>CompletableFuture</code> results or <code>Publisher</code> streams instead.
+ * Opening and closing the component are blocking, as required by <code>IOpenable</code>.
+ * Declared indexes are managed the same way: existing ones are kept, missing ones are created
+ * in a single call and changed ones are recreated only when enabled.
+ * <p>
+ * Futures are completed on the driver threads, so dependent stages shall not block.
+ * <p>
+ * ### Configuration parameters ###
+ * <ul>
+ * <li>collection:                  (optional) MongoDB collection name
+ * <li>connection(s):
+ *   <ul>
+ *   <li>discovery_key:             (optional) a key to retrieve the connection from <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a>
+ *   <li>host:                      host name or IP address
+ *   <li>port:                      port number (default: 27017)
+ *   <li>uri:                       resource URI or connection string with all parameters in it
+ *   </ul>
+ * <li>credential(s):
+ *   <ul>
+ *   <li>store_key:                 (optional) a key to retrieve the credentials from <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/auth/ICredentialStore.html">ICredentialStore</a>
+ *   <li>username:                  (optional) user name
+ *   <li>password:                  (optional) user password
+ *   </ul>
+ * <li>indexes:
+ *   <ul>
+ *   <li>&lt;name&gt;.keys:                 index keys as JSON object or a comma-separated list like "key:1,created:-1"
+ *   <li>&lt;name&gt;.unique:               (optional) true to create a unique index (default: false)
+ *   <li>&lt;name&gt;.sparse:               (optional) true to skip documents without the indexed fields (default: false)
+ *   <li>&lt;name&gt;.partial_filter:       (optional) JSON filter of documents to index
+ *   <li>&lt;name&gt;.expire_after_seconds: (optional) time to live of documents in seconds
+ *   <li>&lt;name&gt;.collation.locale:     (optional) collation locale
+ *   <li>&lt;name&gt;.collation.strength:   (optional) collation strength from 1 to 5
+ *   </ul>
+ *   Configured indexes are created together with the ones defined by <code>ensureIndex</code>
+ *   and replace them when names match. Indexes with the same keys under different names
+ *   cannot coexist and are reported as configuration errors.
+ * <li>options:
+ *   <ul>
+ *   <li>max_pool_size:             (optional) maximum number of connections per server (default: 100)
+ *   <li>min_pool_size:             (optional) minimum number of connections kept open per server (default: 0)
+ *   <li>max_wait_time:             (optional) maximum time in milliseconds to wait for a free connection (default: 120000)
+ *   <li>max_idle_time:             (optional) maximum idle time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>max_life_time:             (optional) maximum life time in milliseconds of a pooled connection (default: 0, no limit)
+ *   <li>heartbeat_frequency:       (optional) interval in milliseconds between server monitor checks (default: 10000)
+ *   <li>server_selection_timeout:  (optional) time in milliseconds to wait for a suitable server (default: 30000)
+ *   <li>local_threshold:           (optional) acceptable latency window in milliseconds to select among servers (default: 15)
+ *   <li>connect_timeout:           (optional) connection timeout in milliseconds (default: 5000)
+ *   <li>socket_timeout:            (optional) socket timeout in milliseconds (default: 360000)
+ *   <li>max_page_size:             (optional) maximum page size (default: 100)
+ *   <li>pojo_codec:                (optional) decode data items with driver POJO codecs instead of Jackson mapping (default: false)
+ *   <li>background_indexes:        (optional) create missing indexes in background after the component is opened (default: false)
+ *   <li>recreate_indexes:          (optional) drop and recreate existing indexes that differ from declared ones with the same name or keys,
+ *                                  otherwise they are kept and a warning is logged (default: false)
+ *   <li>replica_set:               (optional) name of replica set
+ *   <li>ssl:                       (optional) enable SSL connection (default: false)
+ *   <li>debug:                     (optional) enable debug output (default: false).
+ *   <li>monitoring:                (optional) report pool and command metrics to counters (default: true)
+ *   </ul>
+ * </ul>
+ * <p>
+ * ### References ###
+ * <ul>
+ * <li>*:logger:*:*:1.0                    (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/log/ILogger.html">ILogger</a> components to pass log messages
+ * <li>*:discovery:*:*:1.0                 (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/connect/IDiscovery.html">IDiscovery</a> services
+ * <li>*:credential-store:*:*:1.0          (optional) Credential stores to resolve credentials
+ * <li>*:counters:*:*:1.0                  (optional) <a href="https://pip-services3-java.github.io/pip-services3-components-java/org/pipservices3/components/count/ICounters.html">ICounters</a> components to pass collected measurements
+ * <li>*:connection:mongodb-reactive:*:1.0 (optional) Shared reactive MongoDB connection
+ * </ul>
+ * <p>
+ * ### Example ###
+ * <pre>
+ * {@code
+ * class MyMongoDbPersistence extends ReactiveMongoDbPersistence<MyData> {
+ *
+ *   public MyMongoDbPersistence() {
+ *       super("mydata", MyData.class);
+ *   }
+ *
+ *   public CompletableFuture<MyData> getByName(String correlationId, String name) {
+ *       return MongoDbPublishers.first(_entityCollection.find(Filters.eq("name", name)));
+ *   }
+ * }
+ *
+ * MyMongoDbPersistence persistence = new MyMongoDbPersistence();
+ * persistence.configure(ConfigParams.fromTuples(
+ *     "host", "localhost",
+ *     "port", 27017
+ * ));
+ *
+ * persitence.open("123");
+ * persistence.getByName("123", "ABC")
+ *     .thenAccept(item -> System.out.println(item));  // Result: { name: "ABC" }
+ * }
+ * </pre>
+ */
+public class ReactiveMongoDbPersistence<T> implements IReferenceable, IUnreferenceable, IConfigurable, IOpenable, ICleanable {
+
+    private final ConfigParams _defaultConfig = ConfigParams.fromTuples(
+            "collection", null,
+            "dependencies.connection", "*:connection:mongodb-reactive:*:1.0",
+
+            // connections.*
+            // credential.*
+
+            "options.max_pool_size", 100,
+            "options.keep_alive", 1,
+            "options.connect_timeout", 5000,
+            "options.auto_reconnect", true,
+            "options.max_page_size", 100,
+            "options.pojo_codec", false,
+            "options.background_indexes", false,
+            "options.recreate_indexes", false,
+            "options.debug", false
+    );
+
+    private ConfigParams _config;
+    private IReferences _references;
+    private boolean _opened;
+    private boolean _localConnection;
+    private final MongoDbPersistenceSupport<T> _support;
+
+    /**
+     * The dependency resolver.
+     */
+    protected DependencyResolver _dependencyResolver = new DependencyResolver(_defaultConfig);
+
+    /**
+     * The logger.
+     */
+    protected CompositeLogger _logger = new CompositeLogger();
+
+    /**
+     * The reactive MongoDB connection component.
+     */
+    protected ReactiveMongoDbConnection _connection;
+
+    /**
+     * The reactive MongoDB connection object.
+     */
+    protected MongoClient _client;
+
+    /**
+     * The MongoDB database name.
+     */
+    protected String _databaseName;
+
+    /**
+     * The collection name.
+     */
+    protected String _collectionName;
+
+    /**
+     * The MongoDb database object.
+     */
+    protected MongoDatabase _db;
+
+    /**
+     * The MongoDB collection object.
+     */
+    protected MongoCollection<Document> _collection;
+
+    /**
+     * The MongoDB collection object that decodes documents directly into data items.
+     */
+    protected MongoCollection<T> _entityCollection;
+
+    /**
+     * The codec to convert data items to and from BSON.
+     */
+    protected Codec<T> _codec;
+
+    protected long _maxPageSize = 100;
+
+    /**
+     * Flag to decode data items with the driver POJO codecs instead of Jackson mapping
+     */
+    protected boolean _pojoCodec = false;
+
+    /**
+     * The default class to cast any documents returned from the database into
+     */
+    protected Class<T> _documentClass;
+
+    /**
+     * The flag to create indexes in background after the component is opened.
+     */
+    protected boolean _backgroundIndexes = false;
+
+    /**
+     * The flag to drop and recreate existing indexes that differ from declared ones.
+     */
+    protected boolean _recreateIndexes = false;
+
+    /**
+     * Creates a new instance of the persistence component.
+     *
+     * @param collectionName (optional) a collection name.
+     * @param documentClass  the default class to cast any documents returned from
+     *                       the database into
+     */
+    public ReactiveMongoDbPersistence(String collectionName, Class<T> documentClass) {
+        if (collectionName == null)
+            throw new NullPointerException("collectionName is null");
+
+        _collectionName = collectionName;
+        _documentClass = documentClass;
+        _support = new MongoDbPersistenceSupport<>(documentClass, () -> this._codec, () -> this._pojoCodec,
+                this::getCodecRegistry);
+        _codec = createCodec();
+    }
+
+    /**
+     * Configures component by passing configuration parameters.
+     *
+     * @param config configuration parameters to be set.
+     */
+    @Override
+    public void configure(ConfigParams config) throws ConfigException {
+        config = config.setDefaults(_defaultConfig);
+        this._config = config;
+
+        this._dependencyResolver.configure(config);
+
+        this._collectionName = config.getAsStringWithDefault("collection", this._collectionName);
+        this._maxPageSize = config.getAsLongWithDefault("options.max_page_size", this._maxPageSize);
+        this._pojoCodec = config.getAsBooleanWithDefault("options.pojo_codec", this._pojoCodec);
+        this._backgroundIndexes = config.getAsBooleanWithDefault("options.background_indexes", this._backgroundIndexes);
+        this._recreateIndexes = config.getAsBooleanWithDefault("options.recreate_indexes", this._recreateIndexes);
+
+        this._support.configure(config, this._collectionName);
+    }
+
+    /**
+     * Sets references to dependent components.
+     *
+     * @param references references to locate the component dependencies.
+     */
+    @Override
+    public void setReferences(IReferences references) throws ReferenceException, ConfigException {
+        this._references = references;
+        this._logger.setReferences(references);
+
+        // Get connection
+        this._dependencyResolver.setReferences(references);
+        this._connection = this._dependencyResolver.getOneOptional(ReactiveMongoDbConnection.class, "connection");
+        // Or create a local one
+        if (this._connection == null) {
+            this._connection = this.createConnection();
+            this._localConnection = true;
+        } else {
+            this._localConnection = false;
+        }
+    }
+
+    /**
+     * Unsets (clears) previously set references to dependent components.
+     */
+    @Override
+    public void unsetReferences() {
+        this._connection = null;
+    }
+
+    /**
+     * Checks if the component is opened.
+     *
+     * @return true if the component has been opened and false otherwise.
+     */
+    @Override
+    public boolean isOpen() {
+        return this._opened;
+    }
+
+    private ReactiveMongoDbConnection createConnection() throws ConfigException, ReferenceException {
+        var connection = new ReactiveMongoDbConnection();
+
+        if (this._config != null)
+            connection.configure(this._config);
+
+        if (this._references != null)
+            connection.setReferences(this._references);
+
+        return connection;
+    }
+
+    /**
+     * Checks if the component is opened.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws InvalidStateException when operation cannot be performed.
+     */
+    protected void checkOpened(String correlationId) throws InvalidStateException {
+        if (!isOpen()) {
+            throw new InvalidStateException(correlationId, "NOT_OPENED",
+                    "Operation cannot be performed because the component is closed");
+        }
+    }
+
+    /**
+     * Adds index definition to create it on opening
+     *
+     * @param keys    index keys (fields)
+     * @param options index options
+     */
+    protected void ensureIndex(Bson keys, IndexOptions options) {
+        this._support.ensureIndex(keys, options);
+    }
+
+    /**
+     * Clears all auto-created objects
+     */
+    protected void clearSchema() {
+        this._support.clearSchema();
+    }
+
+    /**
+     * Defines database schema via auto create objects or convenience methods.
+     */
+    protected void defineSchema() {
+        // Todo: override in child classes
+    }
+
+    /**
+     * Creates a codec that converts data items to and from BSON.
+     * Override this method to customize mapping of data items.
+     *
+     * @return the data item codec.
+     */
+    protected Codec<T> createCodec() {
+        return new JacksonEntityCodec<>(_documentClass);
+    }
+
+    private CodecRegistry getCodecRegistry() {
+        return this._collection != null ? this._collection.getCodecRegistry() : MongoClientSettings.getDefaultCodecRegistry();
+    }
+
+    /**
+     * Converts object value from internal to public format.
+     * <p>
+     * Built-in operations decode data items with the codec directly.
+     * This method is used to convert documents retrieved by custom queries.
+     *
+     * @param value an object in internal format to convert.
+     * @return converted object in public format.
+     */
+    protected T convertToPublic(Document value) {
+        return this._support.convertToPublic(value);
+    }
+
+    /**
+     * Convert object value from public to internal format.
+     * <p>
+     * Built-in operations encode data items with the codec directly.
+     * This method is used to compose documents for custom and partial updates.
+     *
+     * @param value an object in public format to convert.
+     * @return converted object in internal format.
+     */
+    protected Document convertFromPublic(Object value) {
+        return this._support.convertFromPublic(value);
+    }
+
+    /**
+     * Creates a deep copy of a data item with the data item codec.
+     *
+     * @param item an item to be copied.
+     * @return the copied item.
+     */
+    protected T copyItem(T item) {
+        return this._support.copyItem(item);
+    }
+
+    /**
+     * Opens the component and waits until indexes are created.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void open(String correlationId) throws ApplicationException {
+        if (this._opened) return;
+
+        if (this._connection == null) {
+            this._connection = this.createConnection();
+            this._localConnection = true;
+        }
+
+        if (this._localConnection)
+            this._connection.open(correlationId);
+
+        if (!this._connection.isOpen())
+            throw new ConnectionException(correlationId, "CONNECT_FAILED", "MongoDB connection is not opened");
+
+        this._client = this._connection.getConnection();
+        this._db = this._connection.getDatabase();
+        this._databaseName = this._connection.getDatabaseName();
+
+        try {
+            var collection = this._db.getCollection(_collectionName);
+
+            // Define database schema
+            this.defineSchema();
+
+            // Create missing and changed indexes
+            this._support.openIndexes(correlationId,
+                    MongoDbIndexManager.forCollection(collection, this._client.getDatabase("admin")),
+                    this._collectionName, this._logger, this._backgroundIndexes, this._recreateIndexes);
+
+            this._codec = this._support.openCodec(collection.getCodecRegistry());
+
+            this._opened = true;
+            this._collection = collection;
+            this._entityCollection = collection.withDocumentClass(_documentClass)
+                    .withCodecRegistry(this._support.getEntityRegistry(collection.getCodecRegistry()));
+
+            this._logger.debug(correlationId, "Connected to mongodb database %s, collection %s", this._databaseName, this._collectionName);
+        } catch (ConfigException ex) {
+            this._db = null;
+            this._client = null;
+            throw ex;
+        } catch (Exception ex) {
+            this._db = null;
+            this._client = null;
+            throw new ConnectionException(correlationId, "CONNECT_FAILED", "Connection to mongodb failed").withCause(ex);
+        }
+    }
+
+    /**
+     * Closes component and frees used resources.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void close(String correlationId) throws ApplicationException {
+        if (!this._opened)
+            return;
+
+        if (this._connection == null)
+            throw new InvalidStateException(correlationId, "NO_CONNECTION", "MongoDb connection is missing");
+
+        this._support.closeIndexes();
+
+        if (this._localConnection)
+            this._connection.close(correlationId);
+
+        this._opened = false;
+        this._client = null;
+        this._db = null;
+        this._collection = null;
+        this._entityCollection = null;
+    }
+
+    /**
+     * Clears component state and waits until the collection is dropped.
+     *
+     * @param correlationId (optional) transaction id to trace execution through
+     *                      call chain.
+     * @throws ApplicationException when error occured.
+     */
+    @Override
+    public void clear(String correlationId) throws ApplicationException {
+        checkOpened(correlationId);
+
+        try {
+            MongoDbPublishers.toVoid(_collection.drop()).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw ex;
+        }
+    }
+
+    /**
+     * Gets a page of data items retrieved by a given filter and sorted according to sort parameters.
+     * The page and the total are retrieved concurrently.
+     * <p>
+     * This method shall be called by a public getPageByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param paging        (optional) paging parameters
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @return a future with the data page.
+     */
+    protected CompletableFuture<DataPage<T>> getPageByFilter(String correlationId, Bson filter, PagingParams paging,
+                                                             Bson sort, Bson select) {
+        // Adjust max item count based on configuration
+        paging = paging != null ? paging : new PagingParams();
+        var skip = paging.getSkip(0);
+        var take = paging.getTake(this._maxPageSize);
+        var pagingEnabled = paging.hasTotal();
+
+        var query = filter != null ? filter : new Document();
+
+        var itemsFuture = MongoDbPublishers.toList(_entityCollection.find(query)
+                .skip((int) skip)
+                .limit((int) take)
+                .sort(sort)
+                .projection(select));
+
+        CompletableFuture<Long> countFuture = pagingEnabled
+                ? MongoDbPublishers.first(_collection.countDocuments(query))
+                : CompletableFuture.completedFuture(null);
+
+        return itemsFuture.thenCombine(countFuture, (items, count) -> {
+            if (!items.isEmpty())
+                this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
+
+            return new DataPage<T>(items, count);
+        });
+    }
+
+    /**
+     * Gets a number of data items retrieved by a given filter.
+     * <p>
+     * This method shall be called by a public getCountByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @return a future with the number of filtered items.
+     */
+    protected CompletableFuture<Long> getCountByFilter(String correlationId, Bson filter) {
+        filter = filter != null ? filter : new Document();
+
+        return MongoDbPublishers.first(_collection.countDocuments(filter)).thenApply(count -> {
+            this._logger.trace(correlationId, "Counted %d items in %s", count, this._collectionName);
+            return count;
+        });
+    }
+
+    /**
+     * Gets a list of data items retrieved by a given filter and sorted according to sort parameters.
+     * <p>
+     * This method shall be called by a public getListByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @return a future with the filtered data list.
+     */
+    protected CompletableFuture<List<T>> getListByFilter(String correlationId, Bson filter, Bson sort, Bson select) {
+        filter = filter != null ? filter : new Document();
+
+        var res = _entityCollection.find(filter)
+                .sort(sort)
+                .projection(select);
+
+        return MongoDbPublishers.toList(res).thenApply(items -> {
+            if (!items.isEmpty())
+                this._logger.trace(correlationId, "Retrieved %d from %s", items.size(), this._collectionName);
+            return items;
+        });
+    }
+
+    /**
+     * Gets a stream of data items retrieved by a given filter and sorted according to sort parameters.
+     * <p>
+     * Items are fetched from the server in batches as subscribers request them.
+     * <p>
+     * This method shall be called by a public getStreamByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @param sort          (optional) sorting JSON object
+     * @param select        (optional) projection JSON object
+     * @param batchSize     number of items fetched from the server per round trip or 0 to use the server default.
+     * @return a publisher of filtered data items.
+     */
+    protected Publisher<T> getStreamByFilter(String correlationId, Bson filter, Bson sort, Bson select, int batchSize) {
+        filter = filter != null ? filter : new Document();
+
+        var res = _entityCollection.find(filter)
+                .sort(sort)
+                .projection(select);
+
+        if (batchSize > 0)
+            res = res.batchSize(batchSize);
+
+        this._logger.trace(correlationId, "Opened stream from %s", this._collectionName);
+
+        return res;
+    }
+
+    /**
+     * Gets a random item from items that match to a given filter.
+     * <p>
+     * This method shall be called by a public getOneRandom method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object
+     * @return a future with the random item.
+     */
+    protected CompletableFuture<T> getOneRandom(String correlationId, Bson filter) {
+        List<Bson> pipeline = new ArrayList<>();
+        if (filter != null)
+            pipeline.add(Aggregates.match(filter));
+        pipeline.add(Aggregates.sample(1));
+
+        return MongoDbPublishers.first(_entityCollection.aggregate(pipeline)).thenApply(item -> {
+            if (item == null)
+                this._logger.trace(correlationId, "Random item wasn't found from %s", this._collectionName);
+            else
+                this._logger.trace(correlationId, "Retrieved random item from %s", this._collectionName);
+            return item;
+        });
+    }
+
+    /**
+     * Creates a data item.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param item          an item to be created.
+     * @return a future with the created item.
+     */
+    public CompletableFuture<T> create(String correlationId, T item) {
+        if (item == null)
+            return CompletableFuture.completedFuture(null);
+
+        return MongoDbPublishers.toVoid(_entityCollection.insertOne(item)).thenApply(result -> {
+            if (item instanceof IIdentifiable<?> identifiable)
+                this._logger.trace(correlationId, "Created in %s with id = %s", this._collectionName, identifiable.getId());
+            else
+                this._logger.trace(correlationId, "Created in %s", this._collectionName);
+            return item;
+        });
+    }
+
+    /**
+     * Deletes data items that match to a given filter.
+     * <p>
+     * This method shall be called by a public deleteByFilter method from child class that
+     * receives FilterParams and converts them into a filter function.
+     *
+     * @param correlationId (optional) transaction id to trace execution through call chain.
+     * @param filter        (optional) a filter JSON object.
+     * @return a future that completes when items are deleted.
+     */
+    public CompletableFuture<Void> deleteByFilter(String correlationId, Bson filter) {
+        filter = filter != null ? filter : new Document();
+
+        return MongoDbPublishers.first(_collection.deleteMany(filter)).thenAccept(result ->
+                this._logger.trace(correlationId, "Deleted %d items from %s", result.getDeletedCount(), this._collectionName));
+    }
+}
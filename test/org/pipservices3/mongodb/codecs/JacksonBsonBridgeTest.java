@@ -0,0 +1,40 @@
+package org.pipservices3.mongodb.codecs;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.types.Decimal128;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class JacksonBsonBridgeTest {
+
+    public static class Amount {
+        public BigDecimal value;
+        public double rate;
+    }
+
+    @Test
+    public void testDecimalRoundTrip() {
+        var bridge = JacksonBsonBridge.getDefault();
+
+        var amount = new Amount();
+        amount.value = new BigDecimal("12345678901234567890.123456789");
+        amount.rate = 0.25;
+
+        var writer = new BsonDocumentWriter(new BsonDocument());
+        bridge.write(writer, amount, false);
+        var document = writer.getDocument();
+
+        assertTrue(document.get("value").isDecimal128());
+        assertEquals(new Decimal128(amount.value), document.getDecimal128("value").getValue());
+        assertTrue(document.get("rate").isDouble());
+
+        var result = bridge.read(new BsonDocumentReader(document), Amount.class, false);
+        assertEquals(amount.value, result.value);
+        assertEquals(amount.rate, result.rate, 0);
+    }
+}
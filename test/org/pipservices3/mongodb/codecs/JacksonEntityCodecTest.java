@@ -0,0 +1,62 @@
+package org.pipservices3.mongodb.codecs;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.pipservices3.mongodb.fixtures.Dummy;
+
+import static org.junit.Assert.*;
+
+public class JacksonEntityCodecTest {
+
+    private final JacksonEntityCodec<Dummy> codec = new JacksonEntityCodec<>(Dummy.class);
+
+    private BsonDocument encode(Dummy dummy) {
+        var writer = new BsonDocumentWriter(new BsonDocument());
+        codec.encode(writer, dummy, EncoderContext.builder().build());
+        return writer.getDocument();
+    }
+
+    private Dummy decode(BsonDocument document) {
+        return codec.decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+    }
+
+    @Test
+    public void testEncodeAndDecode() {
+        var dummy = new Dummy("1", "Key 1", "Content 1");
+
+        var document = encode(dummy);
+        assertEquals(new BsonString("1"), document.get("_id"));
+        assertFalse(document.containsKey("id"));
+        assertEquals(new BsonString("Key 1"), document.get("key"));
+        assertTrue(document.get("subObject").isDocument());
+
+        var result = decode(document);
+        assertEquals(dummy.getId(), result.getId());
+        assertEquals(dummy.getKey(), result.getKey());
+        assertEquals(dummy.getContent(), result.getContent());
+        assertEquals(dummy.getCreateTime().toInstant(), result.getCreateTime().toInstant());
+        assertEquals(dummy.getSubObject().getCoordinates(), result.getSubObject().getCoordinates());
+    }
+
+    @Test
+    public void testNullAndGeneratedIds() {
+        var document = encode(new Dummy(null, "Key 1", "Content 1"));
+        assertFalse(document.containsKey("_id"));
+        assertFalse(document.containsKey("id"));
+
+        var objectId = new ObjectId();
+        document.put("_id", new BsonObjectId(objectId));
+        document.put("id", BsonNull.VALUE);
+
+        var result = decode(document);
+        assertEquals(objectId.toHexString(), result.getId());
+    }
+}
@@ -0,0 +1,42 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.MongoCompressor;
+import org.junit.Test;
+import org.pipservices3.commons.errors.ConfigException;
+import org.pipservices3.components.log.CompositeLogger;
+
+import static org.junit.Assert.*;
+
+public class MongoDbCompressorsTest {
+
+    private final CompositeLogger _logger = new CompositeLogger();
+
+    @Test
+    public void testCreateZlib() throws ConfigException {
+        var compressors = MongoDbCompressors.create(null, "zlib", 9, _logger);
+
+        assertEquals(1, compressors.size());
+        assertEquals("zlib", compressors.get(0).getName());
+        assertEquals(9, (int) compressors.get(0).getProperty(MongoCompressor.LEVEL, 0));
+
+        assertTrue(MongoDbCompressors.create(null, " ", null, _logger).isEmpty());
+    }
+
+    @Test
+    public void testValidateLevel() {
+        var ex = assertThrows(ConfigException.class, () -> MongoDbCompressors.create(null, "zlib", 10, _logger));
+        assertEquals("BAD_COMPRESSION_LEVEL", ex.getCode());
+
+        ex = assertThrows(ConfigException.class, () -> MongoDbCompressors.create(null, "zlib", -2, _logger));
+        assertEquals("BAD_COMPRESSION_LEVEL", ex.getCode());
+    }
+
+    @Test
+    public void testRejectUnsupported() {
+        var ex = assertThrows(ConfigException.class, () -> MongoDbCompressors.create(null, "zstd,zlib", null, _logger));
+        assertEquals("UNSUPPORTED_COMPRESSOR", ex.getCode());
+
+        ex = assertThrows(ConfigException.class, () -> MongoDbCompressors.create(null, "brotli", null, _logger));
+        assertEquals("BAD_COMPRESSOR", ex.getCode());
+    }
+}
@@ -0,0 +1,71 @@
+package org.pipservices3.mongodb.connect;
+
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.junit.Test;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MongoDbConcernsTest {
+
+    @Test
+    public void testParseReadPreference() throws ConfigException {
+        assertNull(MongoDbConcerns.parseReadPreference(null, null));
+        assertEquals(ReadPreference.secondaryPreferred(), MongoDbConcerns.parseReadPreference(null, "secondary_preferred"));
+        assertEquals(ReadPreference.nearest(), MongoDbConcerns.parseReadPreference(null, "nearest"));
+
+        try {
+            MongoDbConcerns.parseReadPreference(null, "anywhere");
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_READ_PREFERENCE", ex.getCode());
+        }
+    }
+
+    @Test
+    public void testParseConcerns() throws ConfigException {
+        assertEquals(ReadConcern.MAJORITY, MongoDbConcerns.parseReadConcern(null, "majority"));
+        assertEquals(WriteConcern.MAJORITY, MongoDbConcerns.parseWriteConcern(null, "majority"));
+        assertEquals(new WriteConcern(2), MongoDbConcerns.parseWriteConcern(null, "2"));
+        assertEquals(WriteConcern.UNACKNOWLEDGED, MongoDbConcerns.parseWriteConcern(null, "unacknowledged"));
+
+        try {
+            MongoDbConcerns.parseWriteConcern(null, "sometimes");
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_WRITE_CONCERN", ex.getCode());
+        }
+
+        try {
+            MongoDbConcerns.parseWriteConcern(null, "99999999999");
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_WRITE_CONCERN", ex.getCode());
+        }
+    }
+
+    @Test
+    public void testComposeWriteConcern() throws ConfigException {
+        var options = ConfigParams.fromTuples("w", "majority", "j", true, "wtimeout", 5000);
+        var writeConcern = MongoDbConcerns.parseWriteConcern(null, null, options);
+
+        assertEquals("majority", writeConcern.getWString());
+        assertTrue(writeConcern.getJournal());
+        assertEquals(5000, (long) writeConcern.getWTimeout(TimeUnit.MILLISECONDS));
+
+        writeConcern = MongoDbConcerns.parseWriteConcern(null, null, ConfigParams.fromTuples("w", 0));
+        assertFalse(writeConcern.isAcknowledged());
+
+        try {
+            MongoDbConcerns.parseWriteConcern(null, "unacknowledged", ConfigParams.fromTuples("j", true));
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_WRITE_CONCERN", ex.getCode());
+        }
+    }
+}
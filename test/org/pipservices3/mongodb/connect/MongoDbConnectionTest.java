@@ -1,11 +1,16 @@
 package org.pipservices3.mongodb.connect;
 
+import org.bson.Document;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import org.pipservices3.commons.config.ConfigParams;
 import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.commons.errors.ConfigException;
+import org.pipservices3.commons.refer.Descriptor;
+import org.pipservices3.commons.refer.References;
+import org.pipservices3.components.count.LogCounters;
 
 public class MongoDbConnectionTest {
     MongoDbConnection connection;
@@ -54,4 +59,145 @@ public class MongoDbConnectionTest {
         }
     }
 
+    @Test
+    public void testPoolOptions() throws ApplicationException {
+        if (enabled) {
+            var pooled = new MongoDbConnection();
+            pooled.configure(ConfigParams.fromTuples(
+                    "connection.uri", mongoUri,
+                    "connection.host", mongoHost,
+                    "connection.port", mongoPort,
+                    "connection.database", mongoDatabase,
+                    "options.max_pool_size", 20,
+                    "options.min_pool_size", 2,
+                    "options.max_wait_time", 1000,
+                    "options.max_idle_time", 60000,
+                    "options.server_selection_timeout", 5000
+            ));
+
+            pooled.open(null);
+            try {
+                var options = pooled.getConnection().getMongoClientOptions();
+                assertEquals(20, options.getConnectionsPerHost());
+                assertEquals(2, options.getMinConnectionsPerHost());
+                assertEquals(1000, options.getMaxWaitTime());
+                assertEquals(60000, options.getMaxConnectionIdleTime());
+                assertEquals(5000, options.getServerSelectionTimeout());
+            } finally {
+                pooled.close(null);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPoolOptions() throws ApplicationException {
+        var invalid = new MongoDbConnection();
+        invalid.configure(ConfigParams.fromTuples(
+                "connection.host", mongoHost,
+                "connection.port", mongoPort,
+                "connection.database", mongoDatabase,
+                "options.max_pool_size", 5,
+                "options.min_pool_size", 10
+        ));
+
+        try {
+            invalid.open(null);
+            invalid.close(null);
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_POOL_SIZE", ex.getCode());
+        }
+    }
+
+    @Test
+    public void testMonitoring() throws ApplicationException {
+        if (enabled) {
+            var counters = new LogCounters();
+            var monitored = new MongoDbConnection();
+            monitored.configure(ConfigParams.fromTuples(
+                    "connection.uri", mongoUri,
+                    "connection.host", mongoHost,
+                    "connection.port", mongoPort,
+                    "connection.database", mongoDatabase,
+                    "options.share_client", false
+            ));
+            monitored.setReferences(References.fromTuples(
+                    new Descriptor("pip-services", "counters", "log", "default", "1.0"), counters
+            ));
+
+            monitored.open(null);
+            try {
+                monitored.getDatabase().listCollectionNames().first();
+
+                var names = counters.getAll().stream().map(counter -> counter.getName()).toList();
+                assertTrue(names.contains("mongodb." + monitored.getDatabaseName() + ".listCollections.exec_time"));
+                assertTrue(names.contains("mongodb.pool.checked_out"));
+            } finally {
+                monitored.close(null);
+            }
+        }
+    }
+
+    @Test
+    public void testSharedClient() throws ApplicationException {
+        if (enabled) {
+            var shared = new MongoDbConnection();
+            shared.configure(ConfigParams.fromTuples(
+                    "connection.uri", mongoUri,
+                    "connection.host", mongoHost,
+                    "connection.port", mongoPort,
+                    "connection.database", mongoDatabase
+            ));
+
+            shared.open(null);
+            assertSame(connection.getConnection(), shared.getConnection());
+            shared.close(null);
+
+            // The client stays open while other connections use it
+            var result = connection.getDatabase().runCommand(new Document("ping", 1));
+            assertEquals(1.0, result.get("ok", Number.class).doubleValue(), 0);
+        }
+    }
+
+    @Test
+    public void testCompression() throws ApplicationException {
+        if (enabled) {
+            var compressed = new MongoDbConnection();
+            compressed.configure(ConfigParams.fromTuples(
+                    "connection.uri", mongoUri,
+                    "connection.host", mongoHost,
+                    "connection.port", mongoPort,
+                    "connection.database", mongoDatabase,
+                    "options.compressors", "zlib",
+                    "options.compression_level", 6
+            ));
+
+            compressed.open(null);
+            try {
+                var compressors = compressed.getConnection().getMongoClientOptions().getCompressorList();
+                assertEquals(1, compressors.size());
+                assertEquals("zlib", compressors.get(0).getName());
+
+                compressed.getDatabase().runCommand(new Document("ping", 1));
+            } finally {
+                compressed.close(null);
+            }
+        }
+
+        var invalid = new MongoDbConnection();
+        invalid.configure(ConfigParams.fromTuples(
+                "connection.host", mongoHost,
+                "connection.port", mongoPort,
+                "connection.database", mongoDatabase,
+                "options.compressors", "brotli"
+        ));
+
+        try {
+            invalid.open(null);
+            invalid.close(null);
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_COMPRESSOR", ex.getCode());
+        }
+    }
 }
@@ -3,9 +3,11 @@ package org.pipservices3.mongodb.fixtures;
 import static org.junit.Assert.*;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import org.pipservices3.commons.data.*;
 import org.pipservices3.commons.errors.*;
+import org.pipservices3.mongodb.persistence.MongoDbBulkItemResult;
 
 public class DummyPersistenceFixture {
 
@@ -113,4 +115,181 @@ public class DummyPersistenceFixture {
         assertEquals(0, dummies.size());
     }
 
+    public void testBulkOperations() throws ApplicationException {
+        // Create dummies in bulk, the duplicate fails
+        var results = _persistence.createMany(null, List.of(_dummy1, _dummy2, _dummy1), false);
+
+        assertEquals(3, results.size());
+        assertEquals(MongoDbBulkItemResult.Status.INSERTED, results.get(0).status);
+        assertEquals(MongoDbBulkItemResult.Status.INSERTED, results.get(1).status);
+        assertEquals(MongoDbBulkItemResult.Status.FAILED, results.get(2).status);
+        assertNotNull(results.get(2).errorMessage);
+        assertFalse(results.get(0).hasWriteConcernError());
+
+        // Set existing and new dummies
+        var dummy3 = new Dummy("3", "Key 3", "Content 3");
+        results = _persistence.setMany(null, List.of(_dummy1, dummy3), true);
+
+        assertEquals(MongoDbBulkItemResult.Status.APPLIED, results.get(0).status);
+        assertEquals(MongoDbBulkItemResult.Status.UPSERTED, results.get(1).status);
+        assertEquals("3", results.get(1).id);
+
+        var dummies = _persistence.getListByIds(null, new String[]{"1", "2", "3"});
+        assertEquals(3, dummies.size());
+
+        // Delete dummies in bulk
+        results = _persistence.deleteMany(null, List.of("1", "2", "3"), true);
+        assertEquals(3, results.size());
+        assertTrue(results.stream().allMatch(MongoDbBulkItemResult::isSuccessful));
+
+        dummies = _persistence.getListByIds(null, new String[]{"1", "2", "3"});
+        assertEquals(0, dummies.size());
+    }
+
+    public void testKeysetPaging() throws ApplicationException {
+        _persistence.create(null, _dummy1);
+        _persistence.create(null, _dummy2);
+        _persistence.create(null, new Dummy("3", "Key 3", "Content 3"));
+
+        // Get pages sorted by key in descending order
+        var page = _persistence.getPageByFilter(null, null, new PagingParams(0, 2, true), null);
+
+        assertEquals(2, page.getData().size());
+        assertEquals("Key 3", page.getData().get(0).getKey());
+        assertEquals("Key 2", page.getData().get(1).getKey());
+        assertEquals(3, page.getTotal().longValue());
+        assertNotNull(page.getContinuationToken());
+
+        page = _persistence.getPageByFilter(null, null, new PagingParams(0, 2, false), page.getContinuationToken());
+
+        assertEquals(1, page.getData().size());
+        assertEquals("Key 1", page.getData().get(0).getKey());
+        assertNull(page.getContinuationToken());
+    }
+
+    public void testStream() throws ApplicationException {
+        _persistence.create(null, _dummy1);
+        _persistence.create(null, _dummy2);
+        _persistence.create(null, new Dummy("3", "Key 3", "Content 3"));
+
+        // Read all dummies from the cursor
+        try (var stream = _persistence.getStreamByFilter(null, null)) {
+            var keys = stream.map(Dummy::getKey).toList();
+            assertEquals(List.of("Key 1", "Key 2", "Key 3"), keys);
+        }
+
+        // Close the stream before it is read to the end
+        try (var stream = _persistence.getStreamByFilter(null, null)) {
+            var iterator = stream.iterator();
+            assertTrue(iterator.hasNext());
+            assertEquals("Key 1", iterator.next().getKey());
+        }
+
+        // Exhausted stream keeps reporting no more items
+        try (var stream = _persistence.getStreamByFilter(null, FilterParams.fromTuples("key", "Key 2"))) {
+            var iterator = stream.iterator();
+            assertTrue(iterator.hasNext());
+            assertEquals("Key 2", iterator.next().getKey());
+            assertFalse(iterator.hasNext());
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    public void testRandom() throws ApplicationException {
+        _persistence.create(null, _dummy1);
+        _persistence.create(null, _dummy2);
+
+        // Get fewer items than requested when not enough items match
+        var dummies = _persistence.getRandomList(null, null, Integer.MAX_VALUE);
+        assertEquals(2, dummies.size());
+
+        dummies = _persistence.getRandomList(null, FilterParams.fromTuples("key", "Key 2"), 5);
+        assertEquals(1, dummies.size());
+        assertEquals("Key 2", dummies.get(0).getKey());
+
+        // Get no items for zero count and fail for negative count
+        dummies = _persistence.getRandomList(null, null, 0);
+        assertEquals(0, dummies.size());
+
+        assertThrows(IllegalArgumentException.class, () -> _persistence.getRandomList(null, null, -1));
+    }
+
+    public void testWriteBehind() throws ApplicationException {
+        // Buffered set is written before the direct delete, so the flush does not restore the item
+        _persistence.set(null, _dummy1);
+        _persistence.deleteById(null, _dummy1.getId());
+        _persistence.flush(null);
+
+        assertNull(_persistence.getOneById(null, _dummy1.getId()));
+
+        // Buffered set is written before the direct update, so the flush does not overwrite it
+        _persistence.set(null, _dummy2);
+        _persistence.updatePartially(null, _dummy2.getId(), AnyValueMap.fromTuples("content", "Updated content 2"));
+        _persistence.flush(null);
+
+        assertEquals("Updated content 2", _persistence.getOneById(null, _dummy2.getId()).getContent());
+    }
+
+    public void testQueryOptions() throws ApplicationException {
+        _persistence.create(null, _dummy1);
+        _persistence.create(null, new Dummy("3", "Key 3", "Content 3"));
+        _persistence.create(null, _dummy2);
+
+        // Get list sorted by key in descending order
+        var dummies = _persistence.getSortedList(null, null);
+
+        assertEquals(3, dummies.size());
+        assertEquals("Key 3", dummies.get(0).getKey());
+        assertEquals("Key 2", dummies.get(1).getKey());
+        assertEquals("Key 1", dummies.get(2).getKey());
+
+        dummies = _persistence.getSortedList(null, FilterParams.fromTuples("key", "Key 2"));
+
+        assertEquals(1, dummies.size());
+        assertEquals("Key 2", dummies.get(0).getKey());
+    }
+
+    public void testAsyncOperations() {
+        // Create dummies in parallel
+        var create1 = _persistence.createAsync(null, _dummy1);
+        var create2 = _persistence.createAsync(null, _dummy2);
+        CompletableFuture.allOf(create1, create2).join();
+
+        assertEquals(_dummy1.getKey(), create1.join().getKey());
+        assertEquals(_dummy2.getKey(), create2.join().getKey());
+
+        // Read them in parallel
+        var dummy1 = _persistence.getOneByIdAsync(null, create1.join().getId());
+        var dummy2 = _persistence.getOneByIdAsync(null, create2.join().getId());
+
+        assertEquals(_dummy1.getContent(), dummy1.join().getContent());
+        assertEquals(_dummy2.getContent(), dummy2.join().getContent());
+
+        // Delete and check
+        var deleted = _persistence.deleteByIdAsync(null, create1.join().getId())
+                .thenCompose(item -> _persistence.getOneByIdAsync(null, item.getId()))
+                .join();
+        assertNull(deleted);
+    }
+
+    public void testAggregation() throws ApplicationException {
+        _persistence.create(null, _dummy1);
+        _persistence.create(null, _dummy2);
+        _persistence.create(null, new Dummy("3", "Key 1", "Content 2"));
+
+        // Group on the server
+        var counts = _persistence.getCountsByKey(null);
+
+        assertEquals(2, counts.size());
+        assertEquals(2, counts.get("Key 1").intValue());
+        assertEquals(1, counts.get("Key 2").intValue());
+
+        // Get a page of aggregation results with total
+        var page = _persistence.getPageByContent(null, "Content 2", new PagingParams(1, 1, true));
+
+        assertEquals(1, page.getData().size());
+        assertEquals("Key 2", page.getData().get(0).getKey());
+        assertEquals(2, page.getTotal().longValue());
+    }
+
 }
@@ -1,18 +1,36 @@
 package org.pipservices3.mongodb.fixtures;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import org.pipservices3.commons.data.*;
 import org.pipservices3.commons.errors.*;
+import org.pipservices3.mongodb.persistence.MongoDbBulkItemResult;
+import org.pipservices3.mongodb.persistence.MongoDbKeysetPage;
 
 public interface IDummyPersistence {
     DataPage<Dummy> getPageByFilter(String correlationId, FilterParams filterDefinition, PagingParams paging) throws ApplicationException;
+    MongoDbKeysetPage<Dummy> getPageByFilter(String correlationId, FilterParams filterDefinition, PagingParams paging, String continuationToken);
     List<Dummy> getListByIds(String correlationId, String[] ids) throws ApplicationException;
+    List<Dummy> getSortedList(String correlationId, FilterParams filter);
+    Stream<Dummy> getStreamByFilter(String correlationId, FilterParams filter);
+    List<Dummy> getRandomList(String correlationId, FilterParams filter, int count);
+    Map<String, Integer> getCountsByKey(String correlationId);
+    DataPage<Dummy> getPageByContent(String correlationId, String content, PagingParams paging);
     long getCountByFilter(String correlationId, FilterParams filter);
     Dummy getOneById(String correlationId, String id) throws ApplicationException;
 	Dummy create(String correlationId, Dummy item);
+    Dummy set(String correlationId, Dummy item);
+    void flush(String correlationId) throws ApplicationException;
     Dummy update(String correlationId, Dummy item) throws ApplicationException;
     Dummy updatePartially(String correlationId, String id, AnyValueMap update) throws ApplicationException;
     Dummy deleteById(String correlationId, String id) throws ApplicationException;
     void deleteByIds(String correlationId, String[] ids) throws ApplicationException;
+    List<MongoDbBulkItemResult<String>> createMany(String correlationId, List<Dummy> items, boolean ordered);
+    List<MongoDbBulkItemResult<String>> setMany(String correlationId, List<Dummy> items, boolean ordered);
+    List<MongoDbBulkItemResult<String>> deleteMany(String correlationId, List<String> ids, boolean ordered);
+    CompletableFuture<Dummy> createAsync(String correlationId, Dummy item);
+    CompletableFuture<Dummy> getOneByIdAsync(String correlationId, String id);
+    CompletableFuture<Dummy> deleteByIdAsync(String correlationId, String id);
 }
@@ -73,4 +73,46 @@ public class DummyMongoDbConnectionTest {
         if (enabled)
             fixture.testBatchOperations();
     }
+
+    @Test
+    public void testBulkOperations() throws ApplicationException {
+        if (enabled)
+            fixture.testBulkOperations();
+    }
+
+    @Test
+    public void testKeysetPaging() throws ApplicationException {
+        if (enabled)
+            fixture.testKeysetPaging();
+    }
+
+    @Test
+    public void testStream() throws ApplicationException {
+        if (enabled)
+            fixture.testStream();
+    }
+
+    @Test
+    public void testRandom() throws ApplicationException {
+        if (enabled)
+            fixture.testRandom();
+    }
+
+    @Test
+    public void testQueryOptions() throws ApplicationException {
+        if (enabled)
+            fixture.testQueryOptions();
+    }
+
+    @Test
+    public void testAggregation() throws ApplicationException {
+        if (enabled)
+            fixture.testAggregation();
+    }
+
+    @Test
+    public void testAsyncOperations() {
+        if (enabled)
+            fixture.testAsyncOperations();
+    }
 }
@@ -2,8 +2,13 @@ package org.pipservices3.mongodb.persistence;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.IndexOptions;
 import org.bson.Document;
 import org.bson.conversions.*;
@@ -46,6 +51,62 @@ public class DummyMongoDbPersistence extends IdentifiableMongoDbPersistence<Dumm
         return super.getPageByFilter(correlationId, filterDefinition, paging, null, null);
     }
 
+    public MongoDbKeysetPage<Dummy> getPageByFilter(String correlationId, FilterParams filter, PagingParams paging,
+                                                    String continuationToken) {
+        return super.getKeysetPageByFilter(correlationId, null, paging, new Document("key", -1), null, continuationToken);
+    }
+
+    public List<Dummy> getSortedList(String correlationId, FilterParams filter) {
+        filter = filter != null ? filter : new FilterParams();
+        var key = filter.getAsNullableString("key");
+
+        var options = new MongoDbQueryOptions()
+                .hint(new Document("key", 1))
+                .maxTime(5000)
+                .batchSize(2);
+
+        return super.getListByFilter(correlationId, key != null ? Filters.eq("key", key) : null,
+                new Document("key", -1), null, options);
+    }
+
+    public Stream<Dummy> getStreamByFilter(String correlationId, FilterParams filter) {
+        filter = filter != null ? filter : new FilterParams();
+        var key = filter.getAsNullableString("key");
+
+        // Small batches read the cursor in several round trips
+        return super.getStreamByFilter(correlationId, key != null ? Filters.eq("key", key) : null,
+                new Document("key", 1), null, 1);
+    }
+
+    public List<Dummy> getRandomList(String correlationId, FilterParams filter, int count) {
+        filter = filter != null ? filter : new FilterParams();
+        var key = filter.getAsNullableString("key");
+
+        return super.getRandomN(correlationId, key != null ? Filters.eq("key", key) : null, count);
+    }
+
+    public Map<String, Integer> getCountsByKey(String correlationId) {
+        var pipeline = List.of(
+                Aggregates.group("$key", Accumulators.sum("count", 1))
+        );
+
+        Map<String, Integer> counts = new HashMap<>();
+        try (var stream = super.aggregateStream(correlationId, pipeline, Document.class,
+                new MongoDbQueryOptions().allowDiskUse(true).batchSize(10))) {
+            stream.forEach(document -> counts.put(document.getString("_id"), document.getInteger("count")));
+        }
+        return counts;
+    }
+
+    public DataPage<Dummy> getPageByContent(String correlationId, String content, PagingParams paging) {
+        var pipeline = List.of(
+                Aggregates.match(Filters.eq("content", content)),
+                Aggregates.sort(new Document("key", 1))
+        );
+
+        return super.aggregatePage(correlationId, pipeline, paging, Dummy.class, null);
+    }
+
     @Override
     public long getCountByFilter(String correlationId, FilterParams filter) {
         filter = filter != null ? filter : new FilterParams();
@@ -10,6 +10,7 @@ public class DummyMongoDbPersistenceTest {
 
 	private DummyMongoDbPersistence _persistence;
 	private DummyPersistenceFixture _fixture;
+	private ConfigParams _config;
 
 	public DummyMongoDbPersistenceTest() throws ApplicationException {
         String mongoEnabled = System.getenv("MONGO_SERVICE_URI") != null ? System.getenv("MONGO_SERVICE_URI") : "true";
@@ -24,13 +25,14 @@ public class DummyMongoDbPersistenceTest {
                 return;
 
             _persistence = new DummyMongoDbPersistence();
-                    
-            _persistence.configure(ConfigParams.fromTuples(
+
+            _config = ConfigParams.fromTuples(
                 "connection.uri", mongoUri,
                 "connection.host", mongoHost,
                 "connection.port", mongoPort,
                 "connection.database", mongoDatabase
-            ));
+            );
+            _persistence.configure(_config);
 
             _persistence.open(null);
             _persistence.clear(null);
@@ -50,5 +52,66 @@ public class DummyMongoDbPersistenceTest {
         if (_fixture != null)
 		    _fixture.testBatchOperations();
     }
+
+	@Test
+	public void testBulkOperations() throws ApplicationException {
+        if (_fixture != null)
+		    _fixture.testBulkOperations();
+    }
+
+	@Test
+	public void testKeysetPaging() throws ApplicationException {
+        if (_fixture != null)
+		    _fixture.testKeysetPaging();
+    }
+
+	@Test
+	public void testStream() throws ApplicationException {
+        if (_fixture != null)
+	    _fixture.testStream();
+    }
+
+	@Test
+	public void testRandom() throws ApplicationException {
+        if (_fixture != null)
+		    _fixture.testRandom();
+    }
+
+	@Test
+	public void testQueryOptions() throws ApplicationException {
+        if (_fixture != null)
+		    _fixture.testQueryOptions();
+    }
+
+	@Test
+	public void testAggregation() throws ApplicationException {
+        if (_fixture != null)
+		    _fixture.testAggregation();
+    }
+
+	@Test
+	public void testWriteBehind() throws ApplicationException {
+        if (_fixture == null)
+            return;
+
+        var persistence = new DummyMongoDbPersistence();
+        persistence.configure(_config.override(ConfigParams.fromTuples(
+            "options.write_behind", true,
+            "options.write_interval", 60000
+        )));
+        persistence.open(null);
+
+        try {
+            new DummyPersistenceFixture(persistence).testWriteBehind();
+        } finally {
+            persistence.close(null);
+        }
+    }
+
+	@Test
+	public void testAsyncOperations() {
+        if (_fixture != null)
+		    _fixture.testAsyncOperations();
+    }
 	
 }
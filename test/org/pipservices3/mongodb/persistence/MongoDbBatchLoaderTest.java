@@ -0,0 +1,116 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MongoDbBatchLoaderTest {
+
+    private final List<List<String>> _batches = Collections.synchronizedList(new ArrayList<>());
+
+    private List<String> load(String correlationId, List<String> ids) {
+        _batches.add(ids);
+        // Item "0" does not exist
+        return ids.stream().filter(id -> !id.equals("0")).map(id -> "item" + id).toList();
+    }
+
+    private List<String> loadAll(MongoDbBatchLoader<String, String> loader, List<String> ids)
+            throws InterruptedException, ExecutionException {
+        var executor = Executors.newFixedThreadPool(ids.size());
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (var id : ids)
+                tasks.add(() -> loader.load(null, id));
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : executor.invokeAll(tasks))
+                results.add(future.get());
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCoalesceConcurrentLoads() throws Exception {
+        var loader = new MongoDbBatchLoader<String, String>(this::load, item -> item.substring(4), 100, 100);
+
+        var results = loadAll(loader, List.of("1", "2", "3", "2", "0"));
+
+        assertEquals(List.of("item1", "item2", "item3", "item2"), results.subList(0, 4));
+        assertNull(results.get(4));
+
+        assertEquals(1, _batches.size());
+        assertEquals(4, _batches.get(0).size());
+    }
+
+    @Test
+    public void testMaxBatchSize() throws Exception {
+        var loader = new MongoDbBatchLoader<String, String>(this::load, item -> item.substring(4), 2, 100);
+
+        var results = loadAll(loader, List.of("1", "2", "3", "4", "5"));
+
+        assertEquals(List.of("item1", "item2", "item3", "item4", "item5"), results);
+        assertTrue(_batches.size() >= 3);
+        for (var batch : _batches)
+            assertTrue(batch.size() <= 2);
+    }
+
+    @Test
+    public void testPropagateErrors() {
+        var loader = new MongoDbBatchLoader<String, String>((correlationId, ids) -> {
+            throw new IllegalStateException("Test error");
+        }, item -> item, 10, 10);
+
+        try {
+            loader.load(null, "1");
+            fail("Exception expected");
+        } catch (IllegalStateException ex) {
+            assertEquals("Test error", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testForgetAfterWrite() throws Exception {
+        var sent = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var version = new AtomicInteger();
+        var loader = new MongoDbBatchLoader<String, String>((correlationId, ids) -> {
+            var item = "item" + ids.get(0) + "v" + version.incrementAndGet();
+            sent.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(item);
+        }, item -> item.substring(4, 5), 10, 0);
+
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var before = executor.submit(() -> loader.load(null, "1"));
+            sent.await();
+
+            // The item was written while the first batch was being read
+            loader.forget(List.of("1"));
+            var after = executor.submit(() -> loader.load(null, "1"));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals("item1v1", before.get());
+            assertEquals("item1v2", after.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoSocketReadException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class MongoDbCacheSynchronizerTest {
+
+    /**
+     * Local stand-in for a change stream that emits queued events, post-batch tokens and failures.
+     */
+    private static class ChangeSourceStub implements IMongoDbChangeSource {
+        final LinkedBlockingQueue<Object> changes = new LinkedBlockingQueue<>();
+        final List<BsonDocument> openTokens = new ArrayList<>();
+        int openFailures;
+        BsonDocument resumeToken;
+
+        @Override
+        public synchronized void open(BsonDocument resumeToken) {
+            openTokens.add(resumeToken);
+            if (openFailures > 0) {
+                openFailures--;
+                throw new MongoSocketReadException("Connection reset", new ServerAddress());
+            }
+            this.resumeToken = resumeToken;
+        }
+
+        @Override
+        public MongoDbChangeEvent tryNext() {
+            try {
+                var change = changes.poll(20, TimeUnit.MILLISECONDS);
+                if (change instanceof RuntimeException ex)
+                    throw ex;
+                // Empty batch that only moves the stream position
+                if (change instanceof BsonDocument token) {
+                    setResumeToken(token);
+                    return null;
+                }
+                if (change instanceof MongoDbChangeEvent event)
+                    setResumeToken(event.getResumeToken());
+                return (MongoDbChangeEvent) change;
+            } catch (InterruptedException ex) {
+                return null;
+            }
+        }
+
+        private synchronized void setResumeToken(BsonDocument token) {
+            resumeToken = token;
+        }
+
+        @Override
+        public synchronized BsonDocument getResumeToken() {
+            return resumeToken;
+        }
+
+        @Override
+        public synchronized void close() {
+            resumeToken = null;
+        }
+
+        synchronized List<BsonDocument> getOpenTokens() {
+            return new ArrayList<>(openTokens);
+        }
+    }
+
+    private final MongoDbEntityCache<String, String> _cache = new MongoDbEntityCache<>(100, 0);
+    private final ChangeSourceStub _source = new ChangeSourceStub();
+    private final MongoDbCacheSynchronizer<String, String> _synchronizer = new MongoDbCacheSynchronizer<>(
+            _cache, _source, id -> id.asString().getValue(), document -> document.getString("content").getValue(),
+            null, 10);
+
+    @After
+    public void tearDown() {
+        _synchronizer.close();
+    }
+
+    private static BsonDocument token(int value) {
+        return new BsonDocument("_data", new BsonInt32(value));
+    }
+
+    private static MongoDbChangeEvent change(String operation, String id, String content, int token) {
+        var document = content != null
+                ? new BsonDocument("_id", new BsonString(id)).append("content", new BsonString(content))
+                : null;
+        return new MongoDbChangeEvent(operation, new BsonString(id), document, token(token));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        for (var retry = 0; retry < 100 && !condition.getAsBoolean(); retry++)
+            Thread.sleep(10);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testApplyChanges() throws InterruptedException {
+        _cache.put("1", "Content 1");
+        _cache.put("2", "Content 2");
+        _cache.put("3", "Content 3");
+
+        _synchronizer.start("test-cache-sync");
+
+        _source.changes.add(change("update", "1", "Content 11", 1));
+        _source.changes.add(change("delete", "2", null, 2));
+        _source.changes.add(change("replace", "3", null, 3));
+        _source.changes.add(change("update", "4", "Content 4", 4));
+
+        waitFor(() -> token(4).equals(_synchronizer.getResumeToken()));
+
+        assertEquals("Content 11", _cache.get("1"));
+        assertNull(_cache.get("2"));
+        assertNull(_cache.get("3"));
+        // Changed items that are not cached are not added
+        assertNull(_cache.get("4"));
+
+        _source.changes.add(change("drop", "1", null, 5));
+        waitFor(() -> _cache.getSize() == 0);
+    }
+
+    @Test
+    public void testResumeAfterFailure() throws InterruptedException {
+        _cache.put("1", "Content 1");
+
+        _synchronizer.start("test-cache-sync");
+
+        _source.changes.add(change("update", "1", "Content 11", 1));
+        _source.changes.add(new MongoSocketReadException("Connection reset", new ServerAddress()));
+        _source.changes.add(change("update", "1", "Content 12", 2));
+
+        waitFor(() -> token(2).equals(_synchronizer.getResumeToken()));
+
+        var tokens = _source.getOpenTokens();
+        assertEquals(2, tokens.size());
+        assertNull(tokens.get(0));
+        assertEquals(token(1), tokens.get(1));
+        assertEquals("Content 12", _cache.get("1"));
+    }
+
+    @Test
+    public void testOpenOnStart() {
+        _synchronizer.start("test-cache-sync");
+
+        // Changes made right after start are delivered by the already opened stream
+        var tokens = _source.getOpenTokens();
+        assertEquals(1, tokens.size());
+        assertNull(tokens.get(0));
+    }
+
+    @Test
+    public void testResumeAfterQuietPeriod() throws InterruptedException {
+        _cache.put("1", "Content 1");
+
+        _synchronizer.start("test-cache-sync");
+
+        _source.changes.add(change("update", "1", "Content 11", 1));
+        _source.changes.add(token(5));
+        waitFor(() -> token(5).equals(_synchronizer.getResumeToken()));
+
+        _source.changes.add(new MongoSocketReadException("Connection reset", new ServerAddress()));
+        waitFor(() -> _source.getOpenTokens().size() == 2);
+
+        // The stream resumes after the post-batch position, not after the last change
+        assertEquals(token(5), _source.getOpenTokens().get(1));
+        assertEquals("Content 11", _cache.get("1"));
+    }
+
+    @Test
+    public void testClearWhenReopenedWithoutToken() throws InterruptedException {
+        _cache.put("1", "Content 1");
+        _source.openFailures = 1;
+
+        _synchronizer.start("test-cache-sync");
+        // Changes made before the stream was opened are lost
+        waitFor(() -> _cache.getSize() == 0);
+        assertNull(_source.getOpenTokens().get(1));
+    }
+
+    private static MongoCommandException notSupported() {
+        return new MongoCommandException(
+                new BsonDocument("ok", new BsonInt32(0))
+                        .append("code", new BsonInt32(40573))
+                        .append("errmsg", new BsonString("The $changeStream stage is only supported on replica sets")),
+                new ServerAddress());
+    }
+
+    @Test
+    public void testDegradeWhenNotSupported() throws InterruptedException {
+        var cache = new MongoDbEntityCache<String, String>(100, 60000);
+        var synchronizer = new MongoDbCacheSynchronizer<String, String>(
+                cache, _source, id -> id.asString().getValue(), null, null, 10);
+        cache.put("1", "Content 1");
+
+        synchronizer.start("test-cache-sync");
+        _source.changes.add(notSupported());
+
+        waitFor(synchronizer::isDegraded);
+        synchronizer.close();
+
+        assertEquals("Content 1", cache.get("1"));
+        assertFalse(cache.isDisabled());
+    }
+
+    @Test
+    public void testDisableCacheWithoutTimeout() throws InterruptedException {
+        _cache.put("1", "Content 1");
+
+        _synchronizer.start("test-cache-sync");
+        _source.changes.add(notSupported());
+
+        waitFor(_synchronizer::isDegraded);
+
+        // Items would never be refreshed, so they are not cached at all
+        assertTrue(_cache.isDisabled());
+        assertNull(_cache.get("1"));
+
+        _cache.put("1", "Content 1");
+        assertNull(_cache.get("1"));
+    }
+}
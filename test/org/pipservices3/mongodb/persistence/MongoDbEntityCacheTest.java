@@ -0,0 +1,86 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MongoDbEntityCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        var cache = new MongoDbEntityCache<String, String>(2, 0);
+
+        cache.put("1", "A");
+        cache.put("2", "B");
+        assertEquals("A", cache.get("1"));
+
+        cache.put("3", "C");
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("2"));
+        assertEquals("A", cache.get("1"));
+        assertEquals("C", cache.get("3"));
+
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testExpirationAndInvalidation() throws InterruptedException {
+        var cache = new MongoDbEntityCache<String, String>(10, 50);
+
+        cache.put("1", "A");
+        cache.put("2", "B");
+        assertEquals("A", cache.get("1"));
+
+        cache.put("2", null);
+        assertNull(cache.get("2"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("1"));
+        assertEquals(0, cache.getSize());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void testReplaceIfPresent() {
+        var cache = new MongoDbEntityCache<String, String>(10, 0);
+
+        cache.put("1", "A");
+
+        assertTrue(cache.replace("1", "B"));
+        assertEquals("B", cache.get("1"));
+
+        assertFalse(cache.replace("2", "C"));
+        assertNull(cache.get("2"));
+
+        assertFalse(cache.replace("1", null));
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void testStalePopulate() {
+        var cache = new MongoDbEntityCache<String, String>(10, 0);
+
+        // Item is read, then updated and evicted before the read completes
+        var generation = cache.getGeneration();
+        cache.remove("1");
+
+        assertFalse(cache.putIfAbsent("1", "A", generation));
+        assertNull(cache.get("1"));
+
+        // Item read without concurrent changes is cached
+        generation = cache.getGeneration();
+        assertTrue(cache.putIfAbsent("1", "B", generation));
+        assertEquals("B", cache.get("1"));
+
+        // Item put by a write is not replaced by a read
+        generation = cache.getGeneration();
+        cache.put("2", "C");
+        assertFalse(cache.putIfAbsent("2", "D", cache.getGeneration()));
+        assertFalse(cache.putIfAbsent("2", "D", generation));
+        assertEquals("C", cache.get("2"));
+    }
+}
@@ -0,0 +1,99 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoClient;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MongoDbIndexManagerTest {
+
+    @Test
+    public void testIndexName() {
+        assertEquals("key_1_created_-1", MongoDbIndexManager.getIndexName(BsonDocument.parse("{ key: 1, created: -1 }")));
+        assertEquals("content_text", MongoDbIndexManager.getIndexName(BsonDocument.parse("{ content: 'text' }")));
+    }
+
+    @Test
+    public void testCompareIndexes() {
+        var registry = MongoClient.getDefaultCodecRegistry();
+        var keys = BsonDocument.parse("{ key: 1 }");
+        var options = new IndexOptions().unique(true)
+                .partialFilterExpression(Filters.exists("key"))
+                .expireAfter(3600L, TimeUnit.SECONDS);
+
+        var definition = MongoDbIndexManager.getDefinition(keys, options, registry);
+
+        var current = BsonDocument.parse("{ v: 2, key: { key: 1.0 }, name: 'key_1', unique: true, "
+                + "partialFilterExpression: { key: { $exists: true } }, expireAfterSeconds: 3600 }");
+        assertTrue(MongoDbIndexManager.isSameIndex(current, definition));
+
+        var changed = BsonDocument.parse("{ v: 2, key: { key: 1 }, name: 'key_1', unique: true, "
+                + "partialFilterExpression: { key: { $exists: true } }, expireAfterSeconds: 60 }");
+        assertFalse(MongoDbIndexManager.isSameIndex(changed, definition));
+
+        var reordered = BsonDocument.parse("{ key: { created: 1, key: 1 }, name: 'created_1_key_1' }");
+        var compound = MongoDbIndexManager.getDefinition(BsonDocument.parse("{ key: 1, created: 1 }"),
+                new IndexOptions(), registry);
+        assertFalse(MongoDbIndexManager.isSameIndex(reordered, compound));
+    }
+
+    @Test
+    public void testCompareCollations() {
+        var registry = MongoClient.getDefaultCodecRegistry();
+        var keys = BsonDocument.parse("{ key: 1 }");
+        var collation = Collation.builder().locale("en").collationStrength(CollationStrength.SECONDARY).build();
+        var definition = MongoDbIndexManager.getDefinition(keys, new IndexOptions().collation(collation), registry);
+
+        // Server fills in the fields that are not set
+        var current = BsonDocument.parse("{ v: 2, key: { key: 1 }, name: 'key_1', collation: { locale: 'en', "
+                + "caseLevel: false, caseFirst: 'off', strength: 2, numericOrdering: false, alternate: 'non-ignorable', "
+                + "maxVariable: 'punct', normalization: false, backwards: false, version: '57.1' } }");
+        assertTrue(MongoDbIndexManager.isSameIndex(current, definition));
+
+        var otherStrength = BsonDocument.parse("{ v: 2, key: { key: 1 }, name: 'key_1', "
+                + "collation: { locale: 'en', strength: 3 } }");
+        assertFalse(MongoDbIndexManager.isSameIndex(otherStrength, definition));
+
+        var noCollation = MongoDbIndexManager.getDefinition(keys, new IndexOptions(), registry);
+        assertFalse(MongoDbIndexManager.isSameIndex(current, noCollation));
+    }
+
+    @Test
+    public void testCompareTextIndexes() {
+        var registry = MongoClient.getDefaultCodecRegistry();
+        var keys = BsonDocument.parse("{ owner: 1, title: 'text', content: 'text' }");
+
+        var definition = MongoDbIndexManager.getDefinition(keys, new IndexOptions(), registry);
+        assertEquals(BsonDocument.parse("{ owner: 1, _fts: 'text', _ftsx: 1 }"), definition.getDocument("key"));
+
+        var current = BsonDocument.parse("{ v: 2, key: { owner: 1, _fts: 'text', _ftsx: 1 }, "
+                + "name: 'owner_1_title_text_content_text', weights: { content: 1, title: 1 }, "
+                + "default_language: 'english', language_override: 'language', textIndexVersion: 3 }");
+        assertTrue(MongoDbIndexManager.isSameIndex(current, definition));
+
+        var weighted = MongoDbIndexManager.getDefinition(keys,
+                new IndexOptions().weights(BsonDocument.parse("{ title: 10 }")), registry);
+        assertFalse(MongoDbIndexManager.isSameIndex(current, weighted));
+
+        var otherFields = BsonDocument.parse("{ v: 2, key: { owner: 1, _fts: 'text', _ftsx: 1 }, "
+                + "name: 'owner_1_title_text', weights: { title: 1 } }");
+        assertFalse(MongoDbIndexManager.isSameIndex(otherFields, definition));
+    }
+
+    @Test
+    public void testCompareWildcardIndexes() {
+        var registry = MongoClient.getDefaultCodecRegistry();
+        var definition = MongoDbIndexManager.getDefinition(BsonDocument.parse("{ 'attributes.$**': 1 }"),
+                new IndexOptions(), registry);
+
+        var current = BsonDocument.parse("{ v: 2, key: { 'attributes.$**': 1 }, name: 'attributes.$**_1' }");
+        assertTrue(MongoDbIndexManager.isSameIndex(current, definition));
+    }
+}
@@ -0,0 +1,91 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.IndexOptions;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.Test;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.errors.ConfigException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MongoDbIndexTest {
+
+    @Test
+    public void testManyFromConfig() throws ConfigException {
+        var config = ConfigParams.fromTuples(
+                "indexes.key_created.keys", "key:1,created:-1",
+                "indexes.key_created.unique", true,
+                "indexes.key_created.partial_filter", "{ deleted: false }",
+                "indexes.key_created.collation.locale", "en",
+                "indexes.key_created.collation.strength", 2,
+                "indexes.expire.keys", "{ created: 1 }",
+                "indexes.expire.expire_after_seconds", 3600
+        );
+
+        var indexes = MongoDbIndex.manyFromConfig(config);
+        assertEquals(2, indexes.size());
+
+        var index = indexes.stream().filter(item -> item.options.getName().equals("key_created")).findFirst().get();
+        assertEquals(BsonDocument.parse("{ key: 1, created: -1 }"), index.keys);
+        assertTrue(index.options.isUnique());
+        assertEquals(BsonDocument.parse("{ deleted: false }"), index.options.getPartialFilterExpression());
+        assertEquals("en", index.options.getCollation().getLocale());
+
+        index = indexes.stream().filter(item -> item.options.getName().equals("expire")).findFirst().get();
+        assertEquals(3600L, (long) index.options.getExpireAfter(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInvalidIndex() {
+        var config = ConfigParams.fromTuples("indexes.broken.unique", true);
+
+        try {
+            MongoDbIndex.manyFromConfig(config);
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("BAD_INDEX", ex.getCode());
+        }
+    }
+
+    @Test
+    public void testConflictingIndexes() throws ConfigException {
+        var persistence = new DummyMongoDbPersistence() {
+            {
+                ensureIndex(new Document("key", 1), new IndexOptions());
+            }
+        };
+
+        // Configured index with the name of the code index replaces it
+        persistence.configure(ConfigParams.fromTuples(
+                "indexes.key_1.keys", "key:1",
+                "indexes.key_1.unique", true
+        ));
+
+        // Index with the same keys under another name cannot be created
+        try {
+            persistence.configure(ConfigParams.fromTuples("indexes.by_key.keys", "key:1"));
+            fail("ConfigException expected");
+        } catch (ConfigException ex) {
+            assertEquals("INDEX_CONFLICT", ex.getCode());
+        }
+    }
+
+    @Test
+    public void testConflictingReactiveIndexes() throws ConfigException {
+        var persistence = new ReactiveDummyMongoDbPersistence() {
+            {
+                ensureIndex(new Document("key", 1), new IndexOptions());
+            }
+        };
+
+        // Reactive persistence declares indexes the same way
+        persistence.configure(ConfigParams.fromTuples("indexes.key_1.keys", "key:1"));
+
+        var ex = assertThrows(ConfigException.class,
+                () -> persistence.configure(ConfigParams.fromTuples("indexes.by_key.keys", "key:1")));
+        assertEquals("INDEX_CONFLICT", ex.getCode());
+    }
+}
@@ -0,0 +1,75 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.MongoClient;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.junit.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MongoDbKeysetTest {
+
+    private final MongoDbKeyset keyset = new MongoDbKeyset(BsonDocument.parse("{ key: -1 }"),
+            MongoClient.getDefaultCodecRegistry());
+
+    private static String encode(BsonDocument document) {
+        var buffer = new BasicOutputBuffer();
+        new BsonDocumentCodec().encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.toByteArray());
+    }
+
+    private static BsonDocument toDocument(Bson filter) {
+        return filter.toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
+    }
+
+    @Test
+    public void testFilter() {
+        var token = keyset.getToken(BsonDocument.parse("{ _id: '2', key: 'Key 2' }"));
+        var filter = toDocument(keyset.getFilter(token));
+
+        assertEquals(BsonDocument.parse("{ $or: [ "
+                + "{ $or: [ { key: { $lt: 'Key 2' } }, { key: { $eq: null } } ] }, "
+                + "{ key: { $eq: 'Key 2' }, _id: { $lt: '2' } } ] }"), filter);
+    }
+
+    @Test
+    public void testNullSortKey() {
+        var ascending = new MongoDbKeyset(BsonDocument.parse("{ key: 1 }"), MongoClient.getDefaultCodecRegistry());
+        var token = ascending.getToken(BsonDocument.parse("{ _id: '1' }"));
+        var filter = toDocument(ascending.getFilter(token));
+
+        // Items with keys follow items without them
+        assertEquals(BsonDocument.parse("{ $or: [ { key: { $ne: null } }, "
+                + "{ key: { $eq: null }, _id: { $gt: '1' } } ] }"), filter);
+    }
+
+    @Test
+    public void testInvalidTokens() {
+        // Operator documents are not accepted as values
+        var token = encode(new BsonDocument("s", new BsonArray(List.of(new BsonString("key"), new BsonString("_id"))))
+                .append("k", new BsonArray(List.of(BsonDocument.parse("{ $ne: null }"), new BsonString("1")))));
+        assertThrows(IllegalArgumentException.class, () -> keyset.getFilter(token));
+
+        // Tokens of other sort orders are rejected
+        var otherToken = encode(new BsonDocument("s", new BsonArray(List.of(new BsonString("content"), new BsonString("_id"))))
+                .append("k", new BsonArray(List.of(new BsonString("a"), new BsonString("1")))));
+        assertThrows(IllegalArgumentException.class, () -> keyset.getFilter(otherToken));
+
+        // Null ids are rejected
+        var nullIdToken = encode(new BsonDocument("s", new BsonArray(List.of(new BsonString("key"), new BsonString("_id"))))
+                .append("k", new BsonArray(List.of(new BsonString("a"), BsonNull.VALUE))));
+        assertThrows(IllegalArgumentException.class, () -> keyset.getFilter(nullIdToken));
+
+        assertThrows(IllegalArgumentException.class, () -> keyset.getFilter("not a token"));
+    }
+}
@@ -0,0 +1,84 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class MongoDbPublishersTest {
+
+    /**
+     * Publisher that emits items on request and records cancellation.
+     */
+    private static class ListPublisher<R> implements Publisher<R> {
+        private final List<R> _items;
+        private final RuntimeException _error;
+        boolean cancelled;
+
+        ListPublisher(List<R> items, RuntimeException error) {
+            _items = items;
+            _error = error;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super R> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private int _index;
+                private boolean _done;
+
+                @Override
+                public void request(long n) {
+                    for (var count = 0L; count < n && !_done && !cancelled && _index < _items.size(); count++)
+                        subscriber.onNext(_items.get(_index++));
+
+                    if (!_done && !cancelled && _index >= _items.size()) {
+                        _done = true;
+                        if (_error != null)
+                            subscriber.onError(_error);
+                        else
+                            subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testFirst() {
+        var publisher = new ListPublisher<>(List.of("A", "B", "C"), null);
+
+        assertEquals("A", MongoDbPublishers.first(publisher).join());
+        assertTrue(publisher.cancelled);
+
+        assertNull(MongoDbPublishers.first(new ListPublisher<String>(List.of(), null)).join());
+    }
+
+    @Test
+    public void testToList() {
+        var items = MongoDbPublishers.toList(new ListPublisher<>(List.of("A", "B", "C"), null)).join();
+
+        assertEquals(List.of("A", "B", "C"), items);
+    }
+
+    @Test
+    public void testErrors() {
+        var future = MongoDbPublishers.toVoid(new ListPublisher<>(List.of("A"), new IllegalStateException("Test error")));
+
+        try {
+            future.join();
+            fail("Exception expected");
+        } catch (CompletionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.bson.BsonDocument;
+import org.junit.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MongoDbSlowQueryDetectorTest {
+
+    @Test
+    public void testRedactFilter() {
+        var filter = BsonDocument.parse("{ key: 'Key 1', count: { $gt: 5, $lt: 10 }, "
+                + "$or: [ { content: 'abc' }, { tags: { $in: [ 'a', 'b' ] } } ] }");
+
+        var shape = MongoDbSlowQueryDetector.redact(filter);
+
+        assertEquals(BsonDocument.parse("{ key: '?', count: { $gt: '?', $lt: '?' }, "
+                + "$or: [ { content: '?' }, { tags: { $in: '?' } } ] }"), shape);
+    }
+
+    @Test
+    public void testSuggestIndex() {
+        var filter = BsonDocument.parse("{ $and: [ { key: 'Key 1' }, { count: { $gt: 5 } } ], "
+                + "tags: { $in: [ 'a' ] } }");
+        var sort = BsonDocument.parse("{ created: -1 }");
+
+        var index = MongoDbSlowQueryDetector.suggestIndex(filter, sort);
+
+        assertEquals(List.of("key", "tags", "created", "count"), List.copyOf(index.keySet()));
+        assertEquals(-1, index.getInt32("created").getValue());
+    }
+
+    @Test
+    public void testCollectPlan() {
+        var plan = BsonDocument.parse("{ stage: 'FETCH', inputStage: { stage: 'OR', inputStages: [ "
+                + "{ stage: 'IXSCAN', indexName: 'key_1' }, { stage: 'COLLSCAN' } ] } }");
+
+        var stages = new LinkedHashSet<String>();
+        var indexes = new LinkedHashSet<String>();
+        MongoDbSlowQueryDetector.collectPlan(plan, stages, indexes);
+
+        assertTrue(stages.contains("COLLSCAN"));
+        assertEquals(List.of("key_1"), List.copyOf(indexes));
+    }
+}
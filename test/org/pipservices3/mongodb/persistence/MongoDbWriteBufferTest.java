@@ -0,0 +1,146 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.junit.Test;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.mongodb.fixtures.Dummy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MongoDbWriteBufferTest {
+
+    private final List<List<WriteModel<Dummy>>> _batches = new ArrayList<>();
+
+    private synchronized List<MongoDbBulkItemResult<Object>> write(String correlationId, List<WriteModel<Dummy>> models,
+                                                                   List<Object> ids) {
+        _batches.add(models);
+
+        List<MongoDbBulkItemResult<Object>> results = new ArrayList<>();
+        for (var index = 0; index < ids.size(); index++)
+            results.add(new MongoDbBulkItemResult<>(index, ids.get(index), MongoDbBulkItemResult.Status.APPLIED));
+        return results;
+    }
+
+    private List<MongoDbBulkItemResult<Object>> writeWithFailure(String correlationId, List<WriteModel<Dummy>> models,
+                                                                 List<Object> ids) {
+        var results = write(correlationId, models, ids);
+        results.get(0).status = MongoDbBulkItemResult.Status.FAILED;
+        results.get(0).errorMessage = "Duplicate key";
+        return results;
+    }
+
+    private synchronized int getWrittenCount() {
+        return _batches.stream().mapToInt(List::size).sum();
+    }
+
+    @Test
+    public void testCoalesceAndFlush() throws ApplicationException {
+        var buffer = new MongoDbWriteBuffer<Dummy>(this::write, null, 100, 100, 60000);
+        buffer.start("test-write-buffer");
+
+        buffer.add(null, "1", new Dummy("1", "Key 1", "Content 1"), false);
+        buffer.add(null, "2", new Dummy("2", "Key 2", "Content 2"), false);
+        buffer.add(null, "1", new Dummy("1", "Key 1", "Content 2"), true);
+        assertEquals(2, buffer.getSize());
+
+        buffer.flush(null);
+
+        assertEquals(0, buffer.getSize());
+        assertEquals(1, _batches.size());
+
+        var models = _batches.get(0);
+        assertEquals(2, models.size());
+        assertTrue(models.get(0) instanceof ReplaceOneModel);
+        assertEquals("Content 2", ((ReplaceOneModel<Dummy>) models.get(0)).getReplacement().getContent());
+        assertTrue(models.get(1) instanceof InsertOneModel);
+
+        buffer.close(null);
+    }
+
+    @Test
+    public void testFlushIds() throws ApplicationException {
+        var buffer = new MongoDbWriteBuffer<Dummy>(this::write, null, 100, 100, 60000);
+        buffer.start("test-write-buffer");
+
+        buffer.add(null, "1", new Dummy("1", "Key 1", "Content 1"), true);
+        buffer.add(null, "2", new Dummy("2", "Key 2", "Content 2"), true);
+
+        // Only writes of the given ids are sent
+        buffer.flushIds(null, List.of("2", "3"));
+
+        assertEquals(1, buffer.getSize());
+        assertEquals(1, _batches.size());
+        assertEquals("2", ((ReplaceOneModel<Dummy>) _batches.get(0).get(0)).getReplacement().getId());
+
+        buffer.flushIds(null, List.of("3"));
+        assertEquals(1, _batches.size());
+
+        buffer.close(null);
+        assertEquals(2, getWrittenCount());
+    }
+
+    @Test
+    public void testFlushOnBatchSizeAndDrainOnClose() throws InterruptedException, ApplicationException {
+        var buffer = new MongoDbWriteBuffer<Dummy>(this::write, null, 10, 5, 60000);
+        buffer.start("test-write-buffer");
+
+        for (var index = 0; index < 5; index++)
+            buffer.add(null, String.valueOf(index), new Dummy(String.valueOf(index), "Key", "Content"), false);
+
+        for (var retry = 0; retry < 50 && getWrittenCount() < 5; retry++)
+            Thread.sleep(20);
+        assertEquals(5, getWrittenCount());
+
+        buffer.add(null, null, new Dummy(null, "Key", "Content"), false);
+        buffer.add(null, null, new Dummy(null, "Key", "Content"), false);
+        buffer.close(null);
+
+        assertEquals(7, getWrittenCount());
+        assertEquals(0, buffer.getSize());
+    }
+
+    @Test
+    public void testBackpressure() throws ApplicationException {
+        var buffer = new MongoDbWriteBuffer<Dummy>(this::write, null, 2, 2, 60000);
+        buffer.start("test-write-buffer");
+
+        // Blocks until the flusher makes room
+        for (var index = 0; index < 10; index++)
+            buffer.add(null, String.valueOf(index), new Dummy(String.valueOf(index), "Key", "Content"), false);
+
+        buffer.close(null);
+
+        assertEquals(10, getWrittenCount());
+    }
+
+    @Test
+    public void testReportFailures() throws ApplicationException {
+        var buffer = new MongoDbWriteBuffer<Dummy>(this::writeWithFailure, null, 100, 100, 60000);
+        buffer.start("test-write-buffer");
+
+        // Duplicate insert fails without being turned into an upsert
+        buffer.add(null, "1", new Dummy("1", "Key 1", "Content 1"), false);
+        buffer.add(null, "1", new Dummy("1", "Key 1", "Content 2"), false);
+        assertEquals(1, buffer.getSize());
+        assertEquals(1, buffer.getFailedCount());
+
+        try {
+            buffer.flush(null);
+            fail("Expected failed writes to be reported");
+        } catch (ApplicationException ex) {
+            assertEquals("WRITE_FAILED", ex.getCode());
+        }
+
+        assertTrue(_batches.get(0).get(0) instanceof InsertOneModel);
+        assertEquals("Content 1", ((InsertOneModel<Dummy>) _batches.get(0).get(0)).getDocument().getContent());
+        assertEquals(2, buffer.getFailedCount());
+
+        // Failures are reported once
+        buffer.close(null);
+    }
+}
@@ -0,0 +1,31 @@
+package org.pipservices3.mongodb.persistence;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import org.bson.Document;
+import org.pipservices3.commons.data.DataPage;
+import org.pipservices3.commons.data.FilterParams;
+import org.pipservices3.commons.data.PagingParams;
+import org.pipservices3.mongodb.fixtures.Dummy;
+
+import java.util.concurrent.CompletableFuture;
+
+public class ReactiveDummyMongoDbPersistence extends ReactiveIdentifiableMongoDbPersistence<Dummy, String> {
+
+    public ReactiveDummyMongoDbPersistence() {
+        super("dummies", Dummy.class);
+    }
+
+    @Override
+    protected void defineSchema() {
+        this.ensureIndex(new Document("key", 1), new IndexOptions());
+    }
+
+    public CompletableFuture<DataPage<Dummy>> getPageByFilter(String correlationId, FilterParams filter, PagingParams paging) {
+        filter = filter != null ? filter : new FilterParams();
+
+        var key = filter.getAsNullableString("key");
+
+        return super.getPageByFilter(correlationId, key != null ? Filters.eq("key", key) : null, paging, null, null);
+    }
+}
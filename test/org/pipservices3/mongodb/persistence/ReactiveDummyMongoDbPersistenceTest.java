@@ -0,0 +1,100 @@
+package org.pipservices3.mongodb.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pipservices3.commons.config.ConfigParams;
+import org.pipservices3.commons.convert.BooleanConverter;
+import org.pipservices3.commons.data.AnyValueMap;
+import org.pipservices3.commons.data.FilterParams;
+import org.pipservices3.commons.data.PagingParams;
+import org.pipservices3.commons.errors.ApplicationException;
+import org.pipservices3.mongodb.fixtures.Dummy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class ReactiveDummyMongoDbPersistenceTest {
+
+    private ReactiveDummyMongoDbPersistence _persistence;
+
+    @Before
+    public void setup() throws ApplicationException {
+        String mongoEnabled = System.getenv("MONGO_SERVICE_URI") != null ? System.getenv("MONGO_SERVICE_URI") : "true";
+        String mongoUri = System.getenv("MONGO_URI");
+        String mongoHost = System.getenv("MONGO_SERVICE_HOST") != null ? System.getenv("MONGO_SERVICE_HOST") : "localhost";
+        String mongoPort = System.getenv("MONGO_SERVICE_PORT") != null ? System.getenv("MONGO_SERVICE_PORT") : "27017";
+        String mongoDatabase = System.getenv("MONGO_DB") != null ? System.getenv("MONGO_DB") : "test";
+
+        if (!BooleanConverter.toBoolean(mongoEnabled) || (mongoUri == null && mongoHost == null))
+            return;
+
+        _persistence = new ReactiveDummyMongoDbPersistence();
+        _persistence.configure(ConfigParams.fromTuples(
+                "connection.uri", mongoUri,
+                "connection.host", mongoHost,
+                "connection.port", mongoPort,
+                "connection.database", mongoDatabase
+        ));
+
+        _persistence.open(null);
+        _persistence.clear(null);
+    }
+
+    @After
+    public void teardown() throws ApplicationException {
+        if (_persistence != null)
+            _persistence.close(null);
+    }
+
+    @Test
+    public void testCrudOperations() {
+        if (_persistence == null)
+            return;
+
+        // Create dummies concurrently
+        var dummy1 = _persistence.create(null, new Dummy(null, "Key 1", "Content 1"));
+        var dummy2 = _persistence.create(null, new Dummy(null, "Key 2", "Content 2"));
+        CompletableFuture.allOf(dummy1, dummy2).join();
+
+        assertNotNull(dummy1.join().getId());
+        assertEquals("Key 2", dummy2.join().getKey());
+
+        // Get page by filter
+        var page = _persistence.getPageByFilter(null, null, new PagingParams(0, 10, true)).join();
+        assertEquals(2, page.getData().size());
+        assertEquals(2, page.getTotal().longValue());
+
+        page = _persistence.getPageByFilter(null, FilterParams.fromTuples("key", "Key 1"), null).join();
+        assertEquals(1, page.getData().size());
+
+        // Update the dummy
+        var dummy = dummy1.join();
+        dummy.setContent("Updated Content 1");
+        var result = _persistence.update(null, dummy).join();
+        assertEquals("Updated Content 1", result.getContent());
+
+        // Partially update the dummy
+        result = _persistence.updatePartially(null, dummy.getId(),
+                AnyValueMap.fromTuples("content", "Partially Updated Content 1")).join();
+        assertEquals("Partially Updated Content 1", result.getContent());
+
+        // Set the dummy
+        result = _persistence.set(null, new Dummy("3", "Key 3", "Content 3")).join();
+        assertEquals("3", result.getId());
+
+        // Get and delete the dummies
+        result = _persistence.getOneById(null, dummy.getId()).join();
+        assertEquals(dummy.getId(), result.getId());
+
+        result = _persistence.deleteById(null, dummy.getId()).join();
+        assertEquals(dummy.getId(), result.getId());
+
+        _persistence.deleteByIds(null, List.of(dummy2.join().getId(), "3")).join();
+
+        assertNull(_persistence.getOneById(null, dummy.getId()).join());
+        assertEquals(0, _persistence.getListByIds(null, List.of(dummy2.join().getId(), "3")).join().size());
+    }
+}